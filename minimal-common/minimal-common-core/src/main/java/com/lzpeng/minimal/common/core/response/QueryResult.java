@@ -18,6 +18,11 @@ import java.util.List;
 @ApiModel("分页查询结果")
 public class QueryResult<T> {
 
+    /**
+     * 未知的数据总数或总页数
+     */
+    public static final long UNKNOWN = -1;
+
     /**
      * 数据列表
      */
@@ -42,10 +47,40 @@ public class QueryResult<T> {
     @ApiModelProperty("总页数")
     private long totalPage;
 
+    /**
+     * 是否有下一页
+     */
+    @ApiModelProperty("是否有下一页")
+    private boolean hasNext;
+
+    /**
+     * 下一页游标, 游标分页时返回, 没有下一页时为空
+     */
+    @ApiModelProperty("下一页游标")
+    private String next;
+
+    public QueryResult(List<T> list, long total, long page, long totalPage) {
+        this(list, total, page, totalPage, page < totalPage, null);
+    }
+
+    /**
+     * 游标分页查询结果, 不统计总数
+     * @param list 数据列表
+     * @param next 下一页游标
+     * @param <T> 数据类型
+     * @return 查询结果
+     */
+    public static <T> QueryResult<T> ofCursor(List<T> list, String next) {
+        return new QueryResult<>(list, UNKNOWN, UNKNOWN, UNKNOWN, next != null, next);
+    }
+
     /**
      * @return 是否为空
      */
     public boolean isEmpty(){
+        if (total == UNKNOWN) {
+            return list == null || list.isEmpty();
+        }
         return total == 0;
     }
 }
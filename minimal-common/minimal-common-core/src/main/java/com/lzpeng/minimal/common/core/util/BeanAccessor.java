@@ -0,0 +1,232 @@
+package com.lzpeng.minimal.common.core.util;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.exceptions.UtilException;
+import cn.hutool.core.util.ClassUtil;
+import cn.hutool.core.util.ReflectUtil;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JavaBean 字段访问器
+ * 每个类只解析一次字段, 通过 {@link MethodHandle} 读写字段值, 避免每次调用都反射查找字段
+ * 由 {@link BeanUtils} 和 {@link ExcelUtils} 共用
+ * @author: Lzpeng
+ */
+public final class BeanAccessor {
+
+    /**
+     * 类 与 字段访问器缓存
+     */
+    private static final Map<Class<?>, BeanAccessor> ACCESSOR_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 所有可读写的字段(非 static, 非 final), 子类字段在前
+     */
+    private final List<Property> properties;
+
+    /**
+     * 字段名 与 字段
+     */
+    private final Map<String, Property> propertyMap;
+
+    /**
+     * 字符串类型的字段
+     */
+    private final List<Property> stringProperties;
+
+    /**
+     * 集合类型的字段
+     */
+    private final List<Property> collectionProperties;
+
+    private BeanAccessor(Class<?> beanClass) {
+        List<Property> properties = new ArrayList<>();
+        Map<String, Property> propertyMap = new HashMap<>();
+        List<Property> stringProperties = new ArrayList<>();
+        List<Property> collectionProperties = new ArrayList<>();
+        for (Field field : ReflectUtil.getFields(beanClass)) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || propertyMap.containsKey(field.getName())) {
+                // 跳过常量 和 被子类同名字段隐藏的父类字段
+                continue;
+            }
+            Property property = new Property(field);
+            properties.add(property);
+            propertyMap.put(property.getName(), property);
+            if (CharSequence.class.isAssignableFrom(field.getType())) {
+                stringProperties.add(property);
+            } else if (Collection.class.isAssignableFrom(field.getType())) {
+                collectionProperties.add(property);
+            }
+        }
+        this.properties = Collections.unmodifiableList(properties);
+        this.propertyMap = Collections.unmodifiableMap(propertyMap);
+        this.stringProperties = Collections.unmodifiableList(stringProperties);
+        this.collectionProperties = Collections.unmodifiableList(collectionProperties);
+    }
+
+    /**
+     * 获取类的字段访问器, 每个类只解析一次
+     * @param beanClass JavaBean类型
+     * @return 字段访问器
+     */
+    public static BeanAccessor of(Class<?> beanClass) {
+        return ACCESSOR_CACHE.computeIfAbsent(beanClass, BeanAccessor::new);
+    }
+
+    /**
+     * @return 所有可读写的字段
+     */
+    public List<Property> getProperties() {
+        return properties;
+    }
+
+    /**
+     * 根据字段名获取字段
+     * @param name 字段名
+     * @return 字段, 不存在时返回 null
+     */
+    public Property getProperty(String name) {
+        return propertyMap.get(name);
+    }
+
+    /**
+     * @return 字符串类型的字段
+     */
+    public List<Property> getStringProperties() {
+        return stringProperties;
+    }
+
+    /**
+     * @return 集合类型的字段
+     */
+    public List<Property> getCollectionProperties() {
+        return collectionProperties;
+    }
+
+    /**
+     * 单个字段的读写方法
+     */
+    public static final class Property {
+
+        /**
+         * 统一的 getter 方法类型 (Object)Object
+         */
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        /**
+         * 统一的 setter 方法类型 (Object, Object)void
+         */
+        private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+        /**
+         * 字段
+         */
+        private final Field field;
+
+        /**
+         * 是否集合类型
+         */
+        private final boolean collection;
+
+        /**
+         * 读取字段值
+         */
+        private final MethodHandle getter;
+
+        /**
+         * 设置字段值
+         */
+        private final MethodHandle setter;
+
+        private Property(Field field) {
+            this.field = field;
+            this.field.setAccessible(true);
+            this.collection = Collection.class.isAssignableFrom(field.getType());
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                this.getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                this.setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new UtilException(e, "无法访问字段: {}", field);
+            }
+        }
+
+        /**
+         * @return 字段
+         */
+        public Field getField() {
+            return field;
+        }
+
+        /**
+         * @return 字段名
+         */
+        public String getName() {
+            return field.getName();
+        }
+
+        /**
+         * @return 字段类型
+         */
+        public Class<?> getType() {
+            return field.getType();
+        }
+
+        /**
+         * @return 是否集合类型
+         */
+        public boolean isCollection() {
+            return collection;
+        }
+
+        /**
+         * 获取字段值
+         * @param bean 实体
+         * @return 字段值
+         */
+        public Object get(Object bean) {
+            try {
+                return (Object) getter.invokeExact(bean);
+            } catch (Throwable e) {
+                throw new UtilException(e, "读取字段 {} 失败", field);
+            }
+        }
+
+        /**
+         * 设置字段值, 类型不一致时转换为字段类型
+         * @param bean 实体
+         * @param value 字段值
+         */
+        public void set(Object bean, Object value) {
+            Class<?> type = field.getType();
+            if (value == null) {
+                // 基本类型设置为默认值
+                value = ClassUtil.getDefaultValue(type);
+            } else if (!ClassUtil.isAssignable(type, value.getClass())) {
+                value = Convert.convert(type, value);
+            }
+            setDirectly(bean, value);
+        }
+
+        /**
+         * 设置字段值, 不做类型转换
+         * @param bean 实体
+         * @param value 字段值, 类型必须与字段一致
+         */
+        public void setDirectly(Object bean, Object value) {
+            try {
+                setter.invokeExact(bean, value);
+            } catch (Throwable e) {
+                throw new UtilException(e, "设置字段 {} 失败", field);
+            }
+        }
+    }
+}
@@ -1,12 +1,10 @@
 package com.lzpeng.minimal.common.core.util;
 
-import cn.hutool.core.util.ClassUtil;
-import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.core.util.StrUtil;
 import org.apache.commons.collections4.CollectionUtils;
 
-import java.lang.reflect.Field;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * @author: Lzpeng
@@ -19,17 +17,11 @@ public class BeanUtils {
      * @return 转换后的bean
      */
     public static Object convertBlankToNull(Object bean){
-        Field[] fields = ReflectUtil.getFields(bean.getClass());
-        for (Field field : fields) {
-            // 如果是子字符串类型
-            if (CharSequence.class.isAssignableFrom(field.getType())){
-                CharSequence str = (CharSequence) ReflectUtil.getFieldValue(bean, field);
-                // 如果是空字符串 或者 undefined 则设置为 null
-                if (str != null && StrUtil.isBlankOrUndefined(str)) {
-                    ReflectUtil.setFieldValue(bean, field, null);
-                }
-            } else if (!ClassUtil.isSimpleValueType(field.getType())){
-                // 如果不是简单类型
+        for (BeanAccessor.Property property : BeanAccessor.of(bean.getClass()).getStringProperties()) {
+            CharSequence str = (CharSequence) property.get(bean);
+            // 如果是空字符串 或者 undefined 则设置为 null
+            if (str != null && StrUtil.isBlankOrUndefined(str)) {
+                property.setDirectly(bean, null);
             }
         }
         return bean;
@@ -40,18 +32,38 @@ public class BeanUtils {
      * @return 转换后的bean
      */
     public static Object convertEmptyCollectionToNull(Object bean){
-        Field[] fields = ReflectUtil.getFields(bean.getClass());
-        for (Field field : fields) {
-            // 如果是集合类型
-            if (Collection.class.isAssignableFrom(field.getType())){
-                Collection collection = (Collection) ReflectUtil.getFieldValue(bean, field);
-                // 如果是空集合 则设置为 null
-                if (CollectionUtils.isEmpty(collection)) {
-                    ReflectUtil.setFieldValue(bean, field, null);
-                }
+        for (BeanAccessor.Property property : BeanAccessor.of(bean.getClass()).getCollectionProperties()) {
+            Collection collection = (Collection) property.get(bean);
+            // 如果是空集合 则设置为 null
+            if (CollectionUtils.isEmpty(collection)) {
+                property.setDirectly(bean, null);
             }
         }
         return bean;
     }
 
+    /**
+     * 复制 source 中的非空字段到 target, 空集合视为空值
+     * 字段读写方法每个类只解析一次, 复制时不再反射
+     * @param source 源对象
+     * @param target 目标对象, source 必须是 target 的同类或子类实例, 不能是代理对象, 否则会写入代理对象自身的字段
+     * @param <T> 对象类型
+     * @return 目标对象
+     */
+    public static <T> T copyNonEmptyProperties(T source, T target){
+        if (!target.getClass().isInstance(source)) {
+            throw new IllegalArgumentException(StrUtil.format("{} 不能复制到 {}", source.getClass(), target.getClass()));
+        }
+        List<BeanAccessor.Property> properties = BeanAccessor.of(target.getClass()).getProperties();
+        for (int i = 0; i < properties.size(); i++) {
+            BeanAccessor.Property property = properties.get(i);
+            Object value = property.get(source);
+            if (value == null || (property.isCollection() && ((Collection) value).isEmpty())) {
+                continue;
+            }
+            property.setDirectly(target, value);
+        }
+        return target;
+    }
+
 }
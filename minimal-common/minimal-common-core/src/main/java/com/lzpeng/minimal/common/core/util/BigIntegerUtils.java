@@ -1,22 +1,18 @@
 package com.lzpeng.minimal.common.core.util;
 
-import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.lang.Assert;
 
 import java.math.BigInteger;
 
 /**
  * BigInteger 进制转换工具
+ * 能用 long 表示时走 long 的快速路径, 超出时每次处理能放入 long 的一段数字, 减少 BigInteger 运算次数
  * @author: Lzpeng
  */
 public class BigIntegerUtils {
 
     /**
-     *  初始化 62 进制数据，索引位置代表字符的数值，比如 A代表10，z代表61等
-     */
-    private static final String DEFAULT_DIGITS = StringConstant.DEFAULT_DIGITS;
-
-    /**
-     *  默认 10 进制
+     *  默认 10 进制
      */
     private static final int TEN_RADIX = 10;
 
@@ -30,81 +26,94 @@ public class BigIntegerUtils {
      */
     private static final char NEGATIVE = '-';
 
-
-    /**
-     * 10 进制 转 任意进制
-     * @param num 10进制数字
-     * @param radix 要转换为的进制数
-     * @param digits radix进制数中包含的字符
-     * @return 转换后的结果
-     */
-    static String toString(BigInteger num, int radix, String digits) {
-        return toString(num, BigInteger.valueOf(radix), digits);
-    }
     /**
      * 10 进制 转 任意进制
      * @param num 10进制数字
      * @param radix 要转换为的进制数
-     * @param digits radix进制数中包含的字符
+     * @param alphabet 已校验的字符表
      * @return 转换后的结果
      */
-    private static String toString(BigInteger num, BigInteger radix, String digits) {
-        if (radix.compareTo(BigInteger.valueOf(TEN_RADIX)) == 0) {
+    static String toString(BigInteger num, int radix, RadixAlphabet alphabet) {
+        if (radix == TEN_RADIX) {
             return String.valueOf(num);
         }
+        if (num.bitLength() < Long.SIZE) {
+            return RadixNumberUtils.toString(num.longValue(), radix, alphabet);
+        }
         boolean negative = (num.signum() < 0);
         if (negative) {
             // 如果是负数, 取其正数部分
             num = num.negate();
         }
-        StringBuilder builder = new StringBuilder();
-        // 要有等于号,等于的时候是1
-        while (num.compareTo(radix) >= 0) {
-            builder.append(digits.charAt(num.mod(radix).intValue()));
-            num = num.divide(radix);
+        // 每段 chunkDigits 位, 一次除法得到一段
+        long chunkRadix = radix;
+        int chunkDigits = 1;
+        while (chunkRadix <= Long.MAX_VALUE / radix) {
+            chunkRadix *= radix;
+            chunkDigits++;
+        }
+        BigInteger bigChunkRadix = BigInteger.valueOf(chunkRadix);
+        char[] buf = new char[num.bitLength() + 1];
+        int charPos = buf.length;
+        while (num.bitLength() >= Long.SIZE) {
+            BigInteger[] quotientAndRemainder = num.divideAndRemainder(bigChunkRadix);
+            long chunk = quotientAndRemainder[1].longValue();
+            // 低位的段不足 chunkDigits 位时补 0
+            for (int i = 0; i < chunkDigits; i++) {
+                buf[--charPos] = alphabet.charOf((int) (chunk % radix));
+                chunk /= radix;
+            }
+            num = quotientAndRemainder[0];
         }
-        builder.append(digits.charAt(num.intValue()));
+        // 最高位的段不补 0
+        long head = num.longValue();
+        do {
+            buf[--charPos] = alphabet.charOf((int) (head % radix));
+            head /= radix;
+        } while (head > 0);
         if (negative) {
-            builder.append('-');
+            buf[--charPos] = NEGATIVE;
         }
-        return builder.reverse().toString();
+        return new String(buf, charPos, buf.length - charPos);
     }
 
     /**
      * 任意进制转10进制
+     * Horner 法从高位向低位累加, 先用 long 累加, 超出 long 后每段能放入 long 的数字合并一次
      * @param str radix进制数字的字符串
      * @param radix 进制数
-     * @param digits radix进制数中包含的字符
-     * @return 10进制数字
-     */
-    static BigInteger valueOf(String str, int radix, String digits) {
-        return valueOf(str, BigInteger.valueOf(radix), digits);
-    }
-    /**
-     * 任意进制转10进制
-     * @param str radix进制数字的字符串
-     * @param radix 进制数
-     * @param digits radix进制数中包含的字符
+     * @param alphabet 已校验的字符表
      * @return 10进制数字
      */
-    private static BigInteger valueOf(String str, BigInteger radix, String digits) {
-        digits = StrUtil.isBlank(digits) ? DEFAULT_DIGITS : digits;
-        // 将 0 开头的字符串进行替换
-        str = str.replace("^0*", "");
+    static BigInteger valueOf(String str, int radix, RadixAlphabet alphabet) {
+        Assert.notBlank(str, "传入的数字为空");
         boolean negative = false;
+        int i = 0, len = str.length();
         char firstChar = str.charAt(0);
-        if (firstChar == NEGATIVE){
-            negative = true;
-            str = str.substring(1);
-        } else if (firstChar == POSITIVE){
-            str = str.substring(1);
+        if (alphabet.valueOf(firstChar) < 0) {
+            if (firstChar == NEGATIVE) {
+                negative = true;
+            } else {
+                Assert.isTrue(firstChar == POSITIVE, "\"{}\" 中的 {} 是不合法字符", str, firstChar);
+            }
+            Assert.isFalse(len == 1, "\"{}\" 是不合法字符串,不能仅包含 '+' 或者 '-'", str);
+            i++;
+        }
+        // result * radix + digit 不会溢出的上限
+        long limit = (Long.MAX_VALUE - (radix - 1)) / radix;
+        long result = 0;
+        while (i < len && result <= limit) {
+            result = result * radix + alphabet.digit(str, i++, radix);
         }
-        BigInteger num = BigInteger.ZERO;
-        for (int i = 0; i < str.length(); i++) {
-            int index = digits.indexOf(str.charAt(i));
-            BigInteger bigIndex = BigInteger.valueOf(index);
-            BigInteger temp = radix.pow(str.length() - i - 1);
-            num = num.add(bigIndex.multiply(temp));
+        BigInteger num = BigInteger.valueOf(result);
+        while (i < len) {
+            long chunk = 0;
+            long chunkRadix = 1;
+            while (i < len && chunkRadix <= limit) {
+                chunk = chunk * radix + alphabet.digit(str, i++, radix);
+                chunkRadix *= radix;
+            }
+            num = num.multiply(BigInteger.valueOf(chunkRadix)).add(BigInteger.valueOf(chunk));
         }
         return negative ? num.negate() : num;
     }
@@ -0,0 +1,97 @@
+package com.lzpeng.minimal.common.core.util;
+
+import com.lzpeng.minimal.common.core.annotation.Excel;
+
+import java.lang.reflect.Field;
+
+/**
+ * Excel 列信息, 由 {@link Excel} 注解的字段解析而来
+ * 每个类只解析一次, 见 {@link ExcelUtils#getColumns(Class)}
+ * @author: Lzpeng
+ */
+public class ExcelColumn {
+
+    /**
+     * 字段
+     */
+    private final Field field;
+
+    /**
+     * 字段上的注解
+     */
+    private final Excel excel;
+
+    /**
+     * 字段读写方法
+     */
+    private final BeanAccessor.Property property;
+
+    public ExcelColumn(Field field, Excel excel, BeanAccessor.Property property) {
+        this.field = field;
+        this.excel = excel;
+        this.property = property;
+    }
+
+    /**
+     * @return 字段名
+     */
+    public String getFieldName() {
+        return field.getName();
+    }
+
+    /**
+     * @return 字段类型
+     */
+    public Class<?> getFieldType() {
+        return field.getType();
+    }
+
+    /**
+     * @return 列名
+     */
+    public String getName() {
+        return excel.name();
+    }
+
+    /**
+     * @return 是否导入此列
+     */
+    public boolean isImported() {
+        return excel.imported();
+    }
+
+    /**
+     * @return 是否导出此列
+     */
+    public boolean isExported() {
+        return excel.exported();
+    }
+
+    /**
+     * 获取导出的值, 为空时返回默认值
+     * @param bean 实体
+     * @return 导出的值
+     */
+    public Object getExportValue(Object bean) {
+        Object value = getValue(bean);
+        return value == null ? excel.defaultValue() : value;
+    }
+
+    /**
+     * 获取字段值
+     * @param bean 实体
+     * @return 字段值
+     */
+    public Object getValue(Object bean) {
+        return property.get(bean);
+    }
+
+    /**
+     * 设置字段值
+     * @param bean 实体
+     * @param value 字段值
+     */
+    public void setValue(Object bean, Object value) {
+        property.set(bean, value);
+    }
+}
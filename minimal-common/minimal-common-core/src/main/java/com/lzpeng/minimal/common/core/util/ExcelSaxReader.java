@@ -0,0 +1,214 @@
+package com.lzpeng.minimal.common.core.util;
+
+import cn.hutool.core.util.ReflectUtil;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.util.StringUtils;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 基于 SAX 事件模型读取 xlsx
+ * 逐行解析第一个 sheet, 首行为标题行, 按 {@link com.lzpeng.minimal.common.core.annotation.Excel#name()} 映射字段
+ * 每读满 chunkSize 行交给 consumer 处理, 内存中最多只保留一个批次的数据
+ * @author: Lzpeng
+ */
+public class ExcelSaxReader<T> {
+
+    /**
+     * JavaBean类型
+     */
+    private final Class<T> clazz;
+
+    /**
+     * 每批次的行数
+     */
+    private final int chunkSize;
+
+    /**
+     * 每批次数据的处理者
+     */
+    private final Consumer<List<T>> consumer;
+
+    public ExcelSaxReader(Class<T> clazz, int chunkSize, Consumer<List<T>> consumer) {
+        this.clazz = clazz;
+        this.chunkSize = chunkSize;
+        this.consumer = consumer;
+    }
+
+    /**
+     * 读取输入流, 先写入临时文件, 避免 OPCPackage 将整个压缩包读入内存
+     * @param inputStream xlsx 输入流
+     * @return 读取的行数
+     * @throws IOException 读取异常
+     */
+    public long read(InputStream inputStream) throws IOException {
+        File file = File.createTempFile("minimal-import-", ".xlsx");
+        try {
+            Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return read(file);
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    /**
+     * 读取文件
+     * @param file xlsx 文件
+     * @return 读取的行数
+     * @throws IOException 读取异常
+     */
+    public long read(File file) throws IOException {
+        OPCPackage pkg = null;
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader reader = new XSSFReader(pkg);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return 0;
+            }
+            RowHandler handler = new RowHandler();
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = newXmlReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, handler, new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+            handler.flush();
+            return handler.count;
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("解析 Excel 失败", e);
+        } finally {
+            if (pkg != null) {
+                // 只读打开, 不需要保存
+                pkg.revert();
+            }
+        }
+    }
+
+    /**
+     * 创建 SAX 解析器, 禁用外部实体
+     * @return SAX 解析器
+     */
+    private static XMLReader newXmlReader() throws ParserConfigurationException, SAXException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        return factory.newSAXParser().getXMLReader();
+    }
+
+    /**
+     * 行处理器
+     */
+    private class RowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        /**
+         * 列号 与 列信息, 由标题行得到
+         */
+        private final Map<Integer, ExcelColumn> columns = new HashMap<>();
+
+        /**
+         * 当前批次
+         */
+        private List<T> chunk = new ArrayList<>(chunkSize);
+
+        /**
+         * 当前行数据
+         */
+        private T current;
+
+        /**
+         * 当前行是否有数据
+         */
+        private boolean hasValue;
+
+        /**
+         * 当前行是否为标题行
+         */
+        private boolean header;
+
+        /**
+         * 已读取的行数
+         */
+        private long count;
+
+        @Override
+        public void startRow(int rowNum) {
+            header = rowNum == 0;
+            if (!header) {
+                current = ReflectUtil.newInstance(clazz);
+                hasValue = false;
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (header || !hasValue) {
+                return;
+            }
+            chunk.add(current);
+            count++;
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (StringUtils.isEmpty(formattedValue)) {
+                return;
+            }
+            int col = new CellReference(cellReference).getCol();
+            if (header) {
+                for (ExcelColumn column : ExcelUtils.getImportColumns(clazz)) {
+                    if (column.getName().equals(formattedValue.trim())) {
+                        columns.put(col, column);
+                    }
+                }
+            } else {
+                ExcelColumn column = columns.get(col);
+                if (column != null) {
+                    column.setValue(current, formattedValue);
+                    hasValue = true;
+                }
+            }
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            // 页眉页脚不处理
+        }
+
+        /**
+         * 将当前批次交给 consumer 处理
+         */
+        private void flush() {
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+    }
+}
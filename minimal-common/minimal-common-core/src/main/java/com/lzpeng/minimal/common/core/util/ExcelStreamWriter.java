@@ -0,0 +1,175 @@
+package com.lzpeng.minimal.common.core.util;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 流式写入 Excel
+ * 使用 POI SXSSF, 内存中只保留 rowAccessWindowSize 行, 其余行写入临时文件
+ * 适合大数据量导出, 用法:
+ * <pre>
+ * try (ExcelStreamWriter&lt;User&gt; writer = new ExcelStreamWriter&lt;&gt;(User.class, outputStream)) {
+ *     writer.write(users);
+ * }
+ * </pre>
+ * @author: Lzpeng
+ */
+public class ExcelStreamWriter<T> implements Closeable {
+
+    /**
+     * 默认内存中保留的行数
+     */
+    public static final int DEFAULT_ROW_ACCESS_WINDOW_SIZE = 500;
+
+    /**
+     * 单个 sheet 最大行数
+     */
+    private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    /**
+     * 流式工作簿
+     */
+    private final SXSSFWorkbook workbook;
+
+    /**
+     * 输出流
+     */
+    private final OutputStream outputStream;
+
+    /**
+     * 导出的列
+     */
+    private final List<ExcelColumn> columns;
+
+    /**
+     * 日期格式
+     */
+    private final CellStyle dateStyle;
+
+    /**
+     * 当前 sheet
+     */
+    private SXSSFSheet sheet;
+
+    /**
+     * 当前 sheet 下一行的行号
+     */
+    private int rowIndex;
+
+    /**
+     * 已写入的数据行数
+     */
+    private long count;
+
+    public ExcelStreamWriter(Class<T> clazz, OutputStream outputStream) {
+        this(clazz, outputStream, DEFAULT_ROW_ACCESS_WINDOW_SIZE);
+    }
+
+    public ExcelStreamWriter(Class<T> clazz, OutputStream outputStream, int rowAccessWindowSize) {
+        this.outputStream = outputStream;
+        this.columns = ExcelUtils.getExportColumns(clazz);
+        this.workbook = new SXSSFWorkbook(rowAccessWindowSize);
+        // 压缩临时文件
+        this.workbook.setCompressTempFiles(true);
+        this.dateStyle = workbook.createCellStyle();
+        this.dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+        newSheet();
+    }
+
+    /**
+     * 写入数据, 可多次调用
+     * @param dataList 数据
+     */
+    public void write(Collection<T> dataList) {
+        for (T data : dataList) {
+            write(data);
+        }
+    }
+
+    /**
+     * 写入一行数据
+     * @param data 数据
+     */
+    public void write(T data) {
+        if (rowIndex >= MAX_ROWS) {
+            // 超过单个 sheet 最大行数, 写入新 sheet
+            newSheet();
+        }
+        Row row = sheet.createRow(rowIndex++);
+        for (int i = 0; i < columns.size(); i++) {
+            setCellValue(row.createCell(i), columns.get(i).getExportValue(data));
+        }
+        count++;
+    }
+
+    /**
+     * @return 已写入的数据行数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 将工作簿写入输出流, 并删除临时文件
+     * 不关闭输出流
+     * @throws IOException 写入异常
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            workbook.write(outputStream);
+            outputStream.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * 创建新 sheet 并写入标题行
+     */
+    private void newSheet() {
+        sheet = workbook.createSheet();
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < columns.size(); i++) {
+            header.createCell(i).setCellValue(columns.get(i).getName());
+        }
+        rowIndex = 1;
+    }
+
+    /**
+     * 设置单元格的值
+     * @param cell 单元格
+     * @param value 值
+     */
+    private void setCellValue(Cell cell, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number) {
+            cell.setCellValue(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof Date) {
+            cell.setCellValue((Date) value);
+            cell.setCellStyle(dateStyle);
+        } else if (value instanceof Calendar) {
+            cell.setCellValue((Calendar) value);
+            cell.setCellStyle(dateStyle);
+        } else {
+            cell.setCellValue(value.toString());
+        }
+    }
+}
@@ -5,6 +5,7 @@ import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.poi.excel.ExcelUtil;
 import cn.hutool.poi.excel.ExcelWriter;
 import com.lzpeng.minimal.common.core.annotation.Excel;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
@@ -12,12 +13,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
 import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Excel 工具类
@@ -25,6 +25,47 @@ import java.util.Map;
  */
 public class ExcelUtils {
 
+    /**
+     * 类 与 Excel 列信息缓存
+     */
+    private static final Map<Class<?>, List<ExcelColumn>> COLUMN_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 获取类中 {@link Excel} 注解的列信息, 每个类只解析一次
+     * @param clazz JavaBean类型
+     * @return 列信息
+     */
+    public static List<ExcelColumn> getColumns(Class<?> clazz) {
+        return COLUMN_CACHE.computeIfAbsent(clazz, key -> {
+            List<ExcelColumn> columns = new ArrayList<>();
+            for (BeanAccessor.Property property : BeanAccessor.of(key).getProperties()) {
+                Excel excel = property.getField().getAnnotation(Excel.class);
+                if (excel != null) {
+                    columns.add(new ExcelColumn(property.getField(), excel, property));
+                }
+            }
+            return Collections.unmodifiableList(columns);
+        });
+    }
+
+    /**
+     * 获取导出的列信息
+     * @param clazz JavaBean类型
+     * @return 导出的列信息
+     */
+    public static List<ExcelColumn> getExportColumns(Class<?> clazz) {
+        return getColumns(clazz).stream().filter(ExcelColumn::isExported).collect(Collectors.toList());
+    }
+
+    /**
+     * 获取导入的列信息
+     * @param clazz JavaBean类型
+     * @return 导入的列信息
+     */
+    public static List<ExcelColumn> getImportColumns(Class<?> clazz) {
+        return getColumns(clazz).stream().filter(ExcelColumn::isImported).collect(Collectors.toList());
+    }
+
     /**
      * 将集合写入文件
      * @param dataList 数据
@@ -50,16 +91,11 @@ public class ExcelUtils {
         }
         List<Map<String, Object>> list = new ArrayList<>();
         Class<T> clazz = (Class<T>) dataList.get(0).getClass();
+        List<ExcelColumn> columns = getExportColumns(clazz);
         for (T data : dataList) {
-            Field[] fields = ReflectUtil.getFields(clazz);
-            Map<String, Object> map = new HashMap<>(fields.length);
-            for (Field field : fields) {
-                Excel excel = field.getAnnotation(Excel.class);
-                if (excel != null && excel.exported()) {
-                    Object value = ReflectUtil.getFieldValue(data, field);
-                    value = value == null ? excel.defaultValue() : value;
-                    map.put(excel.name(), value);
-                }
+            Map<String, Object> map = new LinkedHashMap<>(columns.size());
+            for (ExcelColumn column : columns) {
+                map.put(column.getName(), column.getExportValue(data));
             }
             list.add(map);
         }
@@ -86,22 +122,14 @@ public class ExcelUtils {
         if (CollectionUtils.isEmpty(list)) {
             return dataList;
         }
-        // 字段名 和 Excel列名 Map  name:名称
-        Field[] fields = ReflectUtil.getFields(clazz);
-        Map<String, String> keyNameMap = new HashMap<>(fields.length);
-        for (Field field : fields) {
-            Excel excel = field.getAnnotation(Excel.class);
-            if (excel != null && excel.imported()) {
-                keyNameMap.put(field.getName(), excel.name());
-            }
-        }
+        List<ExcelColumn> columns = getImportColumns(clazz);
         for (Map<String, Object> map : list) {
             T data = ReflectUtil.newInstance(clazz);
-            // 遍历 字段名 和 Excel列名 Map
-            for (Map.Entry<String, String> entry : keyNameMap.entrySet()) {
-                Object fieldValue = map.get(entry.getValue());
+            // 遍历导入的列
+            for (ExcelColumn column : columns) {
+                Object fieldValue = map.get(column.getName());
                 if (!StringUtils.isEmpty(fieldValue)) {
-                    ReflectUtil.setFieldValue(data, entry.getKey(), fieldValue);
+                    column.setValue(data, fieldValue);
                 }
             }
             dataList.add(data);
@@ -109,6 +137,29 @@ public class ExcelUtils {
         return dataList;
     }
 
+    /**
+     * 从输入流分批读取数据, 每读满 chunkSize 行交给 consumer 处理
+     * xlsx 使用 SAX 事件模型逐行解析, xls 仍整体读取后分批
+     * @param inputStream 输入流
+     * @param clazz JavaBean类型
+     * @param chunkSize 每批次的行数
+     * @param consumer 每批次数据的处理者
+     * @param <T> JavaBean类型
+     * @return 读取的行数
+     * @throws IOException 读取异常
+     */
+    public static <T> long readDataFromStream(InputStream inputStream, Class<T> clazz, int chunkSize, Consumer<List<T>> consumer) throws IOException {
+        InputStream stream = FileMagic.prepareToCheckMagic(inputStream);
+        if (FileMagic.valueOf(stream) == FileMagic.OOXML) {
+            return new ExcelSaxReader<>(clazz, chunkSize, consumer).read(stream);
+        }
+        List<T> dataList = readDataFromStream(stream, clazz);
+        for (int from = 0; from < dataList.size(); from += chunkSize) {
+            consumer.accept(dataList.subList(from, Math.min(from + chunkSize, dataList.size())));
+        }
+        return dataList.size();
+    }
+
     /**
      * 从文件读取数据集合
      * @param file 文件
@@ -0,0 +1,110 @@
+package com.lzpeng.minimal.common.core.util;
+
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.util.StrUtil;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进制转换字符表
+ * 每种字符表只校验一次, 并建立 128 个元素的反查表, 解析时 O(1) 得到字符代表的数值
+ * @author: Lzpeng
+ */
+final class RadixAlphabet {
+
+    /**
+     * 反查表大小, 只支持 ASCII 字符
+     */
+    private static final int TABLE_SIZE = 128;
+
+    /**
+     * 字符表 与 已校验的字符表
+     */
+    private static final Map<String, RadixAlphabet> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 默认字符表
+     */
+    static final RadixAlphabet DEFAULT = of(StringConstant.DEFAULT_DIGITS);
+
+    /**
+     * 下标为数值, 值为字符
+     */
+    private final char[] chars;
+
+    /**
+     * 下标为字符, 值为数值, 不在字符表中为 -1
+     */
+    private final byte[] values;
+
+    private RadixAlphabet(String digits) {
+        Assert.isFalse(digits.length() == 1, "digits 的字符数量不能为 1");
+        Assert.isFalse(digits.length() > TABLE_SIZE, "digits 的字符数量不能超过 {}", TABLE_SIZE);
+        this.chars = digits.toCharArray();
+        this.values = new byte[TABLE_SIZE];
+        Arrays.fill(values, (byte) -1);
+        for (int i = 0; i < chars.length; i++) {
+            char ch = chars[i];
+            Assert.isTrue(ch < TABLE_SIZE, "digits 只能包含 ASCII 字符: {}", ch);
+            Assert.isTrue(values[ch] < 0, "digits 中的字符 {} 重复", ch);
+            values[ch] = (byte) i;
+        }
+    }
+
+    /**
+     * 得到已校验的字符表, 每种字符表只校验一次
+     * @param digits 字符表, 为空时使用默认字符表
+     * @return 字符表
+     */
+    static RadixAlphabet of(String digits) {
+        if (StrUtil.isBlank(digits)) {
+            return DEFAULT;
+        }
+        RadixAlphabet alphabet = CACHE.get(digits);
+        return alphabet != null ? alphabet : CACHE.computeIfAbsent(digits, RadixAlphabet::new);
+    }
+
+    /**
+     * 校验进制是否在字符表支持的范围内
+     * @param radix 进制数
+     */
+    void checkRadix(int radix) {
+        if (radix < Character.MIN_RADIX || radix > chars.length) {
+            throw new IllegalArgumentException(StrUtil.format("错误的进制 {}, 支持的进制范围为 {} 至 {}", radix, Character.MIN_RADIX, chars.length));
+        }
+    }
+
+    /**
+     * @param value 数值
+     * @return 数值对应的字符
+     */
+    char charOf(int value) {
+        return chars[value];
+    }
+
+    /**
+     * @param ch 字符
+     * @return 字符代表的数值, 不在字符表中为 -1
+     */
+    int valueOf(char ch) {
+        return ch < TABLE_SIZE ? values[ch] : -1;
+    }
+
+    /**
+     * 得到字符串中第 index 个字符在 radix 进制下代表的数值
+     * @param str 字符串
+     * @param index 位置
+     * @param radix 进制数
+     * @return 数值
+     */
+    int digit(String str, int index, int radix) {
+        char ch = str.charAt(index);
+        int digit = valueOf(ch);
+        if (digit < 0 || digit >= radix) {
+            throw new IllegalArgumentException(StrUtil.format("\"{}\" 中的 {} 是不合法字符", str, ch));
+        }
+        return digit;
+    }
+}
@@ -0,0 +1,116 @@
+package com.lzpeng.minimal.common.core.util;
+
+import lombok.Data;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JavaBean 工具基准测试, 对比优化前每次通过 ReflectUtil 查找字段和 hutool BeanUtil 复制属性的实现
+ * convert 会修改传入的对象, 每次调用都新建对象, newSample 为新建对象本身的耗时
+ * 运行 main 方法或 java -cp target/test-classes:... org.openjdk.jmh.Main BeanUtilsBenchmark
+ * @author : Lzpeng
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeanUtilsBenchmark {
+
+    /**
+     * 部分字段为空的更新数据
+     */
+    private Sample source;
+
+    /**
+     * 被更新的对象
+     */
+    private Sample target;
+
+    @Setup
+    public void setUp() {
+        source = new Sample();
+        source.setName("name");
+        source.setRemark("remark");
+        source.setOrderNum(1);
+        source.setTags(new HashSet<>(Arrays.asList("a", "b")));
+        target = newSample();
+    }
+
+    @Benchmark
+    public Sample newSample() {
+        Sample sample = new Sample();
+        sample.setId("id");
+        sample.setName(" ");
+        sample.setCode("undefined");
+        sample.setRemark("");
+        sample.setCreateUser("admin");
+        sample.setCreateTime(new Date(0L));
+        sample.setOrderNum(0);
+        sample.setChildren(new ArrayList<>());
+        sample.setTags(new HashSet<>());
+        return sample;
+    }
+
+    @Benchmark
+    public Object convertBlankToNullLegacy() {
+        return LegacyBeanUtils.convertBlankToNull(newSample());
+    }
+
+    @Benchmark
+    public Object convertBlankToNull() {
+        return BeanUtils.convertBlankToNull(newSample());
+    }
+
+    @Benchmark
+    public Object convertEmptyCollectionToNullLegacy() {
+        return LegacyBeanUtils.convertEmptyCollectionToNull(newSample());
+    }
+
+    @Benchmark
+    public Object convertEmptyCollectionToNull() {
+        return BeanUtils.convertEmptyCollectionToNull(newSample());
+    }
+
+    @Benchmark
+    public Sample copyNonEmptyPropertiesLegacy() {
+        return LegacyBeanUtils.copyNonEmptyProperties(source, target);
+    }
+
+    @Benchmark
+    public Sample copyNonEmptyProperties() {
+        return BeanUtils.copyNonEmptyProperties(source, target);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BeanUtilsBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * 与实体字段数量相近的 JavaBean
+     */
+    @Data
+    public static class Sample {
+        private String id;
+        private String name;
+        private String code;
+        private String remark;
+        private String createUser;
+        private Date createTime;
+        private Integer orderNum;
+        private Boolean enabled;
+        private List<Sample> children;
+        private Set<String> tags;
+    }
+}
@@ -0,0 +1,50 @@
+package com.lzpeng.minimal.common.core.util;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.bean.copier.CopyOptions;
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.core.util.StrUtil;
+import org.apache.commons.collections4.CollectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+
+/**
+ * 优化前的 {@link BeanUtils}, 每次调用通过 ReflectUtil 查找并读写字段, 复制属性使用 hutool 的 BeanUtil
+ * 用于基准测试对比
+ * @author : Lzpeng
+ */
+final class LegacyBeanUtils {
+
+    private LegacyBeanUtils() {
+    }
+
+    static Object convertBlankToNull(Object bean) {
+        for (Field field : ReflectUtil.getFields(bean.getClass())) {
+            if (CharSequence.class.isAssignableFrom(field.getType())) {
+                CharSequence str = (CharSequence) ReflectUtil.getFieldValue(bean, field);
+                if (str != null && StrUtil.isBlankOrUndefined(str)) {
+                    ReflectUtil.setFieldValue(bean, field, null);
+                }
+            }
+        }
+        return bean;
+    }
+
+    static Object convertEmptyCollectionToNull(Object bean) {
+        for (Field field : ReflectUtil.getFields(bean.getClass())) {
+            if (Collection.class.isAssignableFrom(field.getType())) {
+                Collection collection = (Collection) ReflectUtil.getFieldValue(bean, field);
+                if (CollectionUtils.isEmpty(collection)) {
+                    ReflectUtil.setFieldValue(bean, field, null);
+                }
+            }
+        }
+        return bean;
+    }
+
+    static <T> T copyNonEmptyProperties(T source, T target) {
+        BeanUtil.copyProperties(source, target, CopyOptions.create().setIgnoreNullValue(true));
+        return target;
+    }
+}
@@ -0,0 +1,130 @@
+package com.lzpeng.minimal.common.core.util;
+
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.util.StrUtil;
+
+import java.math.BigInteger;
+
+/**
+ * 优化前的 {@link RadixNumberUtils} 和 {@link BigIntegerUtils}
+ * 每次调用校验字符表, 通过 digits.indexOf 查找字符, BigInteger 逐位转换且每位计算一次 radix.pow
+ * 用于基准测试对比
+ * @author : Lzpeng
+ */
+final class LegacyRadixNumberUtils {
+
+    private static final String DEFAULT_DIGITS = StringConstant.DEFAULT_DIGITS;
+
+    private static final int TEN_RADIX = 10;
+
+    private static final char POSITIVE = '+';
+
+    private static final char NEGATIVE = '-';
+
+    private LegacyRadixNumberUtils() {
+    }
+
+    static String toString(long num, int radix, String digits) {
+        digits = checkDigits(radix, digits);
+        if (radix == TEN_RADIX) {
+            return String.valueOf(num);
+        }
+        char[] buf = new char[65];
+        int charPos = 64;
+        boolean negative = (num < 0);
+        if (!negative) {
+            num = -num;
+        }
+        while (num <= -radix) {
+            buf[charPos--] = digits.charAt((int) (-(num % radix)));
+            num = num / radix;
+        }
+        buf[charPos] = digits.charAt((int) (-num));
+        if (negative) {
+            buf[--charPos] = NEGATIVE;
+        }
+        return new String(buf, charPos, (65 - charPos));
+    }
+
+    static long parseLong(String str, int radix, String digits) {
+        digits = checkDigits(radix, digits);
+        Assert.notBlank(str, "传入的数字为空");
+        long result = 0;
+        boolean negative = false;
+        int i = 0, len = str.length();
+        long limit = -Long.MAX_VALUE;
+        char firstChar = str.charAt(0);
+        if (digits.indexOf(firstChar) < 0) {
+            if (firstChar == NEGATIVE) {
+                negative = true;
+                limit = Long.MIN_VALUE;
+            } else {
+                Assert.isFalse(firstChar == POSITIVE, "\"{}\" 中的 {} 是不合法字符", str, firstChar);
+            }
+            Assert.isFalse(len == 1, "\"{}\" 是不合法字符串,不能仅包含 '+' 或者 '-'", str);
+            i++;
+        }
+        long multmin = limit / radix;
+        while (i < len) {
+            char ch = str.charAt(i++);
+            int digit = digits.indexOf(ch);
+            Assert.isTrue(digit >= 0 && digit < radix, "\"{}\" 中的 {} 是不合法字符", str, ch);
+            Assert.isTrue(result > multmin, "{} 进制数字 \"{}\" 已超过 Long 可存储的最大数字 {}", radix, str, Long.MAX_VALUE);
+            result *= radix;
+            Assert.isTrue(result > limit + digit, "{} 进制数字 \"{}\" 已超过 Long 可存储的最大数字 {}", radix, str, Long.MAX_VALUE);
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    static String toString(BigInteger num, int radix, String digits) {
+        digits = checkDigits(radix, digits);
+        if (radix == TEN_RADIX) {
+            return String.valueOf(num);
+        }
+        BigInteger bigRadix = BigInteger.valueOf(radix);
+        boolean negative = (num.signum() < 0);
+        if (negative) {
+            num = num.negate();
+        }
+        StringBuilder builder = new StringBuilder();
+        while (num.compareTo(bigRadix) >= 0) {
+            builder.append(digits.charAt(num.mod(bigRadix).intValue()));
+            num = num.divide(bigRadix);
+        }
+        builder.append(digits.charAt(num.intValue()));
+        if (negative) {
+            builder.append(NEGATIVE);
+        }
+        return builder.reverse().toString();
+    }
+
+    static BigInteger parseBigInteger(String str, int radix, String digits) {
+        digits = checkDigits(radix, digits);
+        BigInteger bigRadix = BigInteger.valueOf(radix);
+        boolean negative = false;
+        char firstChar = str.charAt(0);
+        if (firstChar == NEGATIVE) {
+            negative = true;
+            str = str.substring(1);
+        } else if (firstChar == POSITIVE) {
+            str = str.substring(1);
+        }
+        BigInteger num = BigInteger.ZERO;
+        for (int i = 0; i < str.length(); i++) {
+            BigInteger digit = BigInteger.valueOf(digits.indexOf(str.charAt(i)));
+            num = num.add(digit.multiply(bigRadix.pow(str.length() - i - 1)));
+        }
+        return negative ? num.negate() : num;
+    }
+
+    /**
+     * 每次调用都执行的字符表和进制校验
+     */
+    private static String checkDigits(int radix, String digits) {
+        digits = StrUtil.isBlank(digits) ? DEFAULT_DIGITS : digits;
+        Assert.isFalse(StrUtil.length(digits) == 1, "digits 的字符数量不能为 1");
+        Assert.isFalse(radix < Character.MIN_RADIX || radix > digits.length(), "错误的进制 {}, 支持的进制范围为 {} 至 {}", radix, Character.MIN_RADIX, digits.length());
+        return digits;
+    }
+}
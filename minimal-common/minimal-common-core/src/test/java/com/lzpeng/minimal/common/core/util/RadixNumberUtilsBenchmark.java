@@ -0,0 +1,107 @@
+package com.lzpeng.minimal.common.core.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进制转换基准测试, 对比优化前逐字符 indexOf 查找, BigInteger 逐位转换的实现
+ * long 为雪花id 大小的正数, BigInteger 为 128 位, 与实体 id 中包名和类名编码后的长度相近
+ * 运行 main 方法或 java -cp target/test-classes:... org.openjdk.jmh.Main RadixNumberUtilsBenchmark
+ * @author : Lzpeng
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RadixNumberUtilsBenchmark {
+
+    /**
+     * 预先生成的数字个数, 2 的幂
+     */
+    private static final int SIZE = 1024;
+
+    private static final String DIGITS = StringConstant.DEFAULT_DIGITS;
+
+    @Param({"36", "62"})
+    public int radix;
+
+    private final long[] longs = new long[SIZE];
+
+    private final String[] longStrings = new String[SIZE];
+
+    private final BigInteger[] bigIntegers = new BigInteger[SIZE];
+
+    private final String[] bigIntegerStrings = new String[SIZE];
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(20200707L);
+        for (int i = 0; i < SIZE; i++) {
+            longs[i] = random.nextLong() & Long.MAX_VALUE;
+            longStrings[i] = RadixNumberUtils.toString(longs[i], radix, DIGITS);
+            bigIntegers[i] = new BigInteger(128, random);
+            bigIntegerStrings[i] = RadixNumberUtils.toString(bigIntegers[i], radix, DIGITS);
+        }
+    }
+
+    /**
+     * @return 下一个下标
+     */
+    private int next() {
+        return index = (index + 1) & (SIZE - 1);
+    }
+
+    @Benchmark
+    public String toStringLongLegacy() {
+        return LegacyRadixNumberUtils.toString(longs[next()], radix, DIGITS);
+    }
+
+    @Benchmark
+    public String toStringLong() {
+        return RadixNumberUtils.toString(longs[next()], radix, DIGITS);
+    }
+
+    @Benchmark
+    public long parseLongLegacy() {
+        return LegacyRadixNumberUtils.parseLong(longStrings[next()], radix, DIGITS);
+    }
+
+    @Benchmark
+    public long parseLong() {
+        return RadixNumberUtils.parseLong(longStrings[next()], radix, DIGITS);
+    }
+
+    @Benchmark
+    public String toStringBigIntegerLegacy() {
+        return LegacyRadixNumberUtils.toString(bigIntegers[next()], radix, DIGITS);
+    }
+
+    @Benchmark
+    public String toStringBigInteger() {
+        return RadixNumberUtils.toString(bigIntegers[next()], radix, DIGITS);
+    }
+
+    @Benchmark
+    public BigInteger parseBigIntegerLegacy() {
+        return LegacyRadixNumberUtils.parseBigInteger(bigIntegerStrings[next()], radix, DIGITS);
+    }
+
+    @Benchmark
+    public BigInteger parseBigInteger() {
+        return RadixNumberUtils.parseBigInteger(bigIntegerStrings[next()], radix, DIGITS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RadixNumberUtilsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
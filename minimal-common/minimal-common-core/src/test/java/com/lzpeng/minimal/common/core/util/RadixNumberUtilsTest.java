@@ -0,0 +1,141 @@
+package com.lzpeng.minimal.common.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 进制转换工具单元测试
+ * 随机数字在各进制下往返转换, 36 进制以内与 JDK 的结果对比
+ * @author : Lzpeng
+ */
+class RadixNumberUtilsTest {
+
+    /**
+     * 默认 62 进制字符
+     */
+    private static final String DIGITS = StringConstant.DEFAULT_DIGITS;
+
+    /**
+     * 测试的进制
+     */
+    private static final int[] RADIXES = {2, 7, 10, 16, 36, 62};
+
+    /**
+     * 每个进制随机测试的次数
+     */
+    private static final int SAMPLES = 2000;
+
+    /**
+     * 固定种子, 失败时可以重现
+     */
+    private final Random random = new Random(20200707L);
+
+    /**
+     * long 往返转换
+     */
+    @Test
+    void longRoundTrip() {
+        for (int radix : RADIXES) {
+            for (int i = 0; i < SAMPLES; i++) {
+                assertLongRoundTrip(random.nextLong(), radix);
+            }
+            assertLongRoundTrip(0L, radix);
+            assertLongRoundTrip(Long.MAX_VALUE, radix);
+            assertLongRoundTrip(Long.MIN_VALUE, radix);
+        }
+    }
+
+    /**
+     * int 往返转换
+     */
+    @Test
+    void intRoundTrip() {
+        for (int radix : RADIXES) {
+            for (int i = 0; i < SAMPLES; i++) {
+                int num = random.nextInt();
+                String str = RadixNumberUtils.toString(num, radix, DIGITS);
+                assertEquals(num, RadixNumberUtils.parseInt(str, radix, DIGITS));
+            }
+            assertEquals(Integer.MIN_VALUE, RadixNumberUtils.parseInt(RadixNumberUtils.toString(Integer.MIN_VALUE, radix, DIGITS), radix, DIGITS));
+            assertEquals(Integer.MAX_VALUE, RadixNumberUtils.parseInt(RadixNumberUtils.toString(Integer.MAX_VALUE, radix, DIGITS), radix, DIGITS));
+        }
+    }
+
+    /**
+     * BigInteger 往返转换, 包含超出 long 范围的数字
+     */
+    @Test
+    void bigIntegerRoundTrip() {
+        for (int radix : RADIXES) {
+            for (int i = 0; i < SAMPLES; i++) {
+                BigInteger num = new BigInteger(random.nextInt(512) + 1, random);
+                if (random.nextBoolean()) {
+                    num = num.negate();
+                }
+                String str = RadixNumberUtils.toString(num, radix, DIGITS);
+                if (radix <= Character.MAX_RADIX) {
+                    assertEquals(num.toString(radix), str);
+                }
+                assertEquals(num, RadixNumberUtils.parseBigInteger(str, radix, DIGITS));
+            }
+        }
+    }
+
+    /**
+     * 符号 和 前导 0
+     */
+    @Test
+    void signAndLeadingZeros() {
+        assertEquals(127, RadixNumberUtils.parseInt("+7f", 16, DIGITS));
+        assertEquals(-128, RadixNumberUtils.parseInt("-80", 16, DIGITS));
+        assertEquals(61L, RadixNumberUtils.parseLong("000Z", 62, DIGITS));
+        assertEquals(BigInteger.valueOf(61), RadixNumberUtils.parseBigInteger("000Z", 62, DIGITS));
+        assertEquals(BigInteger.valueOf(-61), RadixNumberUtils.parseBigInteger("-Z", 62, DIGITS));
+    }
+
+    /**
+     * 自定义字符表
+     */
+    @Test
+    void customDigits() {
+        String digits = StringConstant.KEYBOARD;
+        for (int i = 0; i < SAMPLES; i++) {
+            long num = random.nextLong();
+            String str = RadixNumberUtils.toString(num, digits.length(), digits);
+            assertEquals(num, RadixNumberUtils.parseLong(str, digits.length(), digits));
+        }
+    }
+
+    /**
+     * 非法输入
+     */
+    @Test
+    void invalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> RadixNumberUtils.parseLong("zzzzzzzzzzzz", 62, DIGITS));
+        assertThrows(IllegalArgumentException.class, () -> RadixNumberUtils.parseInt("80000000", 16, DIGITS));
+        assertThrows(IllegalArgumentException.class, () -> RadixNumberUtils.parseInt("#12", 10, DIGITS));
+        assertThrows(IllegalArgumentException.class, () -> RadixNumberUtils.parseInt("1g", 16, DIGITS));
+        assertThrows(IllegalArgumentException.class, () -> RadixNumberUtils.parseLong("-", 10, DIGITS));
+        assertThrows(IllegalArgumentException.class, () -> RadixNumberUtils.parseBigInteger("12_3", 10, DIGITS));
+        assertThrows(IllegalArgumentException.class, () -> RadixNumberUtils.toString(1L, 63, DIGITS));
+        assertThrows(IllegalArgumentException.class, () -> RadixNumberUtils.toString(1L, 2, "aa"));
+    }
+
+    /**
+     * 断言 long 往返转换一致, 36 进制以内与 JDK 一致
+     * @param num 数字
+     * @param radix 进制
+     */
+    private void assertLongRoundTrip(long num, int radix) {
+        String str = RadixNumberUtils.toString(num, radix, DIGITS);
+        if (radix <= Character.MAX_RADIX) {
+            assertEquals(Long.toString(num, radix), str);
+        }
+        assertEquals(num, RadixNumberUtils.parseLong(str, radix, DIGITS));
+        assertEquals(BigInteger.valueOf(num), RadixNumberUtils.parseBigInteger(str, radix, DIGITS));
+    }
+}
@@ -1,25 +1,44 @@
 package com.lzpeng.minimal.common.jpa;
 
+import cn.hutool.core.lang.Snowflake;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
+import com.lzpeng.minimal.common.jpa.hibernate.EncodedIdColumnIntegrator;
+import com.lzpeng.minimal.common.jpa.hibernate.EncodedIdType;
+import com.lzpeng.minimal.common.jpa.support.AuthorityEntityReadPermission;
+import com.lzpeng.minimal.common.jpa.support.EntityReadPermission;
+import com.lzpeng.minimal.common.jpa.support.MeteredSnowflake;
+import com.lzpeng.minimal.common.jpa.support.WorkerIdAllocator;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.orm.jpa.support.OpenEntityManagerInViewFilter;
 
 import javax.persistence.EntityManager;
+import java.util.Collections;
 import java.util.Optional;
 
 /**
  * @author: Lzpeng
  */
 @EnableJpaAuditing
+@EnableConfigurationProperties(MinimalJpaProperties.class)
 @ComponentScan(basePackageClasses = JpaAutoConfiguration.class)
 public final class JpaAutoConfiguration {
 
@@ -46,6 +65,38 @@ public final class JpaAutoConfiguration {
         return new JPAQueryFactory(entityManager);
     }
 
+    /**
+     * 使用租用的 worker id 生成 id, 多副本部署时不会重复, 租约失效期间拒绝生成 id
+     * 优先于 {@link com.lzpeng.minimal.common.core.config.CommonBean#snowflake()}
+     * @param workerIdAllocator worker id 分配器
+     * @param meterRegistry 指标注册表
+     * @return snowflake id 生成器
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "minimal.jpa.worker", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public Snowflake leasedSnowflake(WorkerIdAllocator workerIdAllocator, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new MeteredSnowflake(workerIdAllocator, meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * 在 EntityManagerFactory 创建前设置实体 id 的存储方式
+     * BIGINT 存储方式下注册 {@link EncodedIdColumnIntegrator} 修正 id 列的建表类型
+     * @param jpaProperties JPA 模块属性配置
+     * @return Hibernate 属性定制器
+     */
+    @Bean
+    public HibernatePropertiesCustomizer entityIdStorageCustomizer(MinimalJpaProperties jpaProperties) {
+        return hibernateProperties -> {
+            MinimalJpaProperties.Id id = jpaProperties.getId();
+            EncodedIdType.configure(id.getStorage(), id.getFormat());
+            if (EncodedIdType.isNumeric()) {
+                hibernateProperties.put("hibernate.integrator_provider",
+                        (IntegratorProvider) () -> Collections.singletonList(new EncodedIdColumnIntegrator()));
+            }
+        };
+    }
+
     /**
      * SpringBoot jpa 使用懒加载时，报异常：session失效
      * 要使用懒加载特性必须配置此 Bean
@@ -83,4 +134,22 @@ public final class JpaAutoConfiguration {
         mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
         return converter;
     }
+
+    /**
+     * 引入 Spring Security 时按当前用户的权限校验通过 id 解析实体的读权限
+     * 未引入时没有 {@link EntityReadPermission}, {@link com.lzpeng.minimal.common.jpa.support.EntityIdResolver} 拒绝解析所有实体
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.security.core.context.SecurityContextHolder")
+    static class EntityReadPermissionConfiguration {
+
+        /**
+         * @return 按权限校验实体读权限
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public EntityReadPermission entityReadPermission() {
+            return new AuthorityEntityReadPermission();
+        }
+    }
 }
@@ -0,0 +1,20 @@
+package com.lzpeng.minimal.common.jpa.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author: Lzpeng
+ * 标记以字符串列保存的其他实体 id, 没有映射为关联的外键
+ * 迁移实体 id 格式时与外键列一起更新
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EntityIdReference {
+
+    /**
+     * 被引用的实体类
+     * @return
+     */
+    Class<?> value();
+}
@@ -0,0 +1,144 @@
+package com.lzpeng.minimal.common.jpa.config;
+
+import com.lzpeng.minimal.common.jpa.domain.enums.EntityIdFormat;
+import com.lzpeng.minimal.common.jpa.domain.enums.EntityIdStorage;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * JPA 模块属性配置
+ * @author: Lzpeng
+ */
+@Data
+@ConfigurationProperties(prefix = "minimal.jpa")
+public class MinimalJpaProperties {
+
+    /**
+     * 批量保存配置
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * 导出配置
+     */
+    private Export export = new Export();
+
+    /**
+     * 分页总数配置
+     */
+    private Count count = new Count();
+
+    /**
+     * snowflake worker id 租约配置
+     */
+    private Worker worker = new Worker();
+
+    /**
+     * 实体 id 配置
+     */
+    private Id id = new Id();
+
+    /**
+     * 树形结构配置
+     */
+    private Tree tree = new Tree();
+
+    /**
+     * 批量保存配置
+     */
+    @Data
+    public static class Batch {
+        /**
+         * 每批次保存的实体数量, 每批次结束后 flush 并 clear EntityManager
+         * 建议与 spring.jpa.properties.hibernate.jdbc.batch_size 保持一致
+         */
+        private int chunkSize = 500;
+    }
+
+    /**
+     * 导出配置
+     */
+    @Data
+    public static class Export {
+        /**
+         * 每次从数据库读取的实体数量, 每次读取后 clear EntityManager
+         */
+        private int pageSize = 1000;
+        /**
+         * SXSSF 内存中保留的行数, 其余行写入临时文件
+         */
+        private int rowAccessWindowSize = 500;
+    }
+
+    /**
+     * 分页总数配置
+     */
+    @Data
+    public static class Count {
+        /**
+         * CACHED 模式下总数缓存时间 毫秒
+         */
+        private long cacheTtl = 30000;
+        /**
+         * CACHED 模式下最多缓存的查询条件数量
+         */
+        private int cacheCapacity = 1024;
+    }
+
+    /**
+     * snowflake worker id 租约配置
+     */
+    @Data
+    public static class Worker {
+        /**
+         * 是否从租约表分配 worker id, 关闭时使用 worker id 0
+         */
+        private boolean enabled = true;
+        /**
+         * 租约表名
+         */
+        private String table = "minimal_worker_lease";
+        /**
+         * 租约有效时间 毫秒, 超过此时间未续约的 worker id 可被其他实例回收(按数据库时间计算)
+         * 本实例超过此时间未续约成功时暂停生成 id
+         */
+        private long leaseTtl = 60000;
+        /**
+         * 续约间隔 毫秒, 应小于租约有效时间
+         */
+        private long heartbeatInterval = 20000;
+    }
+
+    /**
+     * 实体 id 配置
+     */
+    @Data
+    public static class Id {
+        /**
+         * 新生成的实体 id 格式
+         */
+        private EntityIdFormat format = EntityIdFormat.DEFAULT;
+        /**
+         * 启动时(Web 服务启动前)将已有数据的 id 迁移为 format 格式, 只支持 MySQL, 迁移完成后应关闭
+         * 多个实例通过数据库命名锁依次执行, 但迁移期间仍在运行的旧实例会读写旧格式的 id, 应只启动单个实例迁移
+         */
+        private boolean migrateOnStartup = false;
+        /**
+         * 主键和外键列的存储方式, BIGINT 时只存储雪花id, 编码后的 id 只出现在实体和接口中
+         * 只对新建的表生效, 已有数据须自行将 id 列和外键列转换为雪花id
+         */
+        private EntityIdStorage storage = EntityIdStorage.STRING;
+    }
+
+    /**
+     * 树形结构配置
+     */
+    @Data
+    public static class Tree {
+        /**
+         * 快照校验间隔 毫秒, 距上次校验超过此时间后, 使用快照前查询表的行数, 最大 id, 最大更新时间和版本号之和,
+         * 与构建快照时不一致则重建, 使其他实例或绕过 TreeService 的修改生效. 0 表示每次使用快照前都校验
+         */
+        private long snapshotCheckInterval = 5000;
+    }
+}
@@ -1,22 +1,24 @@
 package com.lzpeng.minimal.common.jpa.controller;
 
-import cn.hutool.core.util.TypeUtil;
 import com.lzpeng.minimal.common.core.domain.TableDictionary;
 import com.lzpeng.minimal.common.core.response.QueryResult;
 import com.lzpeng.minimal.common.core.response.Result;
 import com.lzpeng.minimal.common.core.response.ResultUtil;
 import com.lzpeng.minimal.common.jpa.domain.dto.BatchModel;
+import com.lzpeng.minimal.common.jpa.domain.dto.BatchResult;
 import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+import com.lzpeng.minimal.common.jpa.domain.enums.CountMode;
 import com.lzpeng.minimal.common.jpa.service.BaseService;
 import com.lzpeng.minimal.common.jpa.support.DataDictionaryService;
+import com.lzpeng.minimal.common.jpa.support.TypeArgumentRegistry;
 import com.querydsl.core.types.Predicate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.lang.reflect.Type;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 基础的Controller
@@ -81,6 +83,33 @@ public class BaseController<Entity extends BaseEntity> extends com.lzpeng.minima
         return ResultUtil.success(result);
     }
 
+    /**
+     * 根据查询条件和分页条件查询实体
+     * @param page 页码
+     * @param size 每页行数
+     * @param count 总数统计方式, 见 {@link CountMode}, 为空时精确统计
+     * @param model JPA Example 查询条件
+     * @return 符合条件的实体列表
+     */
+    public Result<QueryResult<Entity>> query(int page, int size, String count, Entity model) {
+        QueryResult<Entity> result = baseService.query(page, size, model, CountMode.parse(count));
+        return ResultUtil.success(result);
+    }
+
+    /**
+     * 根据查询条件和分页条件查询实体的部分字段
+     * @param page 页码
+     * @param size 每页行数
+     * @param count 总数统计方式, 见 {@link CountMode}, 为空时精确统计
+     * @param fields 要查询的字段
+     * @param model JPA Example 查询条件
+     * @return 字段名与值的 Map 列表
+     */
+    public Result<QueryResult<Map<String, Object>>> queryFields(int page, int size, String count, String[] fields, Entity model) {
+        QueryResult<Map<String, Object>> result = baseService.queryFields(page, size, model, CountMode.parse(count), fields);
+        return ResultUtil.success(result);
+    }
+
     /**
      * 根据查询条件和分页条件查询实体
      * @param page 页码
@@ -93,6 +122,30 @@ public class BaseController<Entity extends BaseEntity> extends com.lzpeng.minima
         return ResultUtil.success(result);
     }
 
+    /**
+     * 根据查询条件游标分页查询实体
+     * @param cursor 上一页返回的游标, 为空时查询第一页
+     * @param size 每页行数
+     * @param model JPA Example 查询条件
+     * @return 符合条件的实体列表及下一页游标
+     */
+    public Result<QueryResult<Entity>> seek(String cursor, int size, Entity model) {
+        QueryResult<Entity> result = baseService.seek(cursor, size, model);
+        return ResultUtil.success(result);
+    }
+
+    /**
+     * 根据查询条件游标分页查询实体
+     * @param cursor 上一页返回的游标, 为空时查询第一页
+     * @param size 每页行数
+     * @param predicate Query DSL查询条件
+     * @return 符合条件的实体列表及下一页游标
+     */
+    public Result<QueryResult<Entity>> seek(String cursor, int size, Predicate predicate) {
+        QueryResult<Entity> result = baseService.seek(cursor, size, predicate);
+        return ResultUtil.success(result);
+    }
+
     /**
      * 根据id查询实体
      * @param id id
@@ -118,32 +171,28 @@ public class BaseController<Entity extends BaseEntity> extends com.lzpeng.minima
      * @return 实体类型
      */
     protected Class<Entity> getEntityClass(){
-        Type type = TypeUtil.getTypeArgument(getClass());
-        if (type != null && type instanceof Class) {
-            return (Class<Entity>) type;
-        }
-        return null;
+        return TypeArgumentRegistry.getTypeArgument(getClass());
     }
 
 
     /**
-     * 批量增删改查
+     * 批量增删改
      * @param batch 批量操作的数据
-     * @return 批量操作结果
+     * @return 各部分的行数及耗时
      */
-    public Result<Object> batch(BatchModel<Entity> batch){
-        Object result = baseService.batch(batch);
+    public Result<BatchResult> batch(BatchModel<Entity> batch){
+        BatchResult result = baseService.batch(batch);
         return ResultUtil.success(result);
     }
 
     /**
      * 从文件导入实体
      * @param file 上传的文件
-     * @return 导入成功的实体
+     * @return 导入成功的实体数量
      */
-    public Result<List<Entity>> importData(MultipartFile file) throws IOException {
-        List<Entity> list = baseService.importData(file);
-        return ResultUtil.success(list);
+    public Result<Long> importData(MultipartFile file) throws IOException {
+        long count = baseService.importData(file);
+        return ResultUtil.success(count);
     }
 
     /**
@@ -0,0 +1,62 @@
+package com.lzpeng.minimal.common.jpa.controller;
+
+import com.lzpeng.minimal.common.core.response.Result;
+import com.lzpeng.minimal.common.core.response.ResultUtil;
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+import com.lzpeng.minimal.common.jpa.support.EntityIdResolver;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 根据 id 解析任意类型的实体, 供前端和审计工具处理混合类型的引用
+ * @author: Lzpeng
+ */
+@RestController
+@RequestMapping("/resolve")
+@Api(tags = "实体 id 解析接口")
+public class EntityIdResolveController {
+
+    private final EntityIdResolver entityIdResolver;
+
+    public EntityIdResolveController(EntityIdResolver entityIdResolver) {
+        this.entityIdResolver = entityIdResolver;
+    }
+
+    /**
+     * 根据 id 解析实体
+     * @param id 任意实体的 id
+     * @return 实体, 不存在或无法识别时为空
+     */
+    @GetMapping("/{id}")
+    @ApiOperation("根据 id 解析实体")
+    public Result<BaseEntity> resolve(@ApiParam(value = "实体id", required = true) @PathVariable("id") String id) {
+        return ResultUtil.success(entityIdResolver.resolve(id));
+    }
+
+    /**
+     * 根据 id 批量解析实体
+     * @param ids 任意实体的 id
+     * @return id 与 实体, 不包含不存在或无法识别的 id
+     */
+    @GetMapping
+    @ApiOperation("根据 id 批量解析实体")
+    public Result<Map<String, BaseEntity>> resolveAll(@ApiParam(value = "实体id", required = true) @RequestParam("ids") List<String> ids) {
+        return ResultUtil.success(entityIdResolver.resolveAll(ids));
+    }
+
+    /**
+     * 根据 id 批量解析实体, id 较多时使用
+     * @param ids 任意实体的 id
+     * @return id 与 实体, 不包含不存在或无法识别的 id
+     */
+    @PostMapping("/batch")
+    @ApiOperation("根据 id 批量解析实体")
+    public Result<Map<String, BaseEntity>> resolveBatch(@RequestBody List<String> ids) {
+        return ResultUtil.success(entityIdResolver.resolveAll(ids));
+    }
+}
@@ -1,13 +1,12 @@
 package com.lzpeng.minimal.common.jpa.controller;
 
-import cn.hutool.core.util.TypeUtil;
 import com.lzpeng.minimal.common.core.response.Result;
 import com.lzpeng.minimal.common.core.response.ResultUtil;
 import com.lzpeng.minimal.common.jpa.domain.entity.LeftTreeRightTableEntity;
 import com.lzpeng.minimal.common.jpa.domain.entity.TreeEntity;
 import com.lzpeng.minimal.common.jpa.service.LeftTreeRightTableService;
+import com.lzpeng.minimal.common.jpa.support.TypeArgumentRegistry;
 
-import java.lang.reflect.Type;
 import java.util.List;
 
 /**
@@ -30,16 +29,22 @@ public class LeftTreeRightTableController<Tree extends TreeEntity<Tree>, Entity
         return ResultUtil.success(leftTreeData);
     }
 
+    /**
+     * 按层懒加载左树数据
+     * @param parentId 父节点 id, 为空时查询根节点
+     * @return 子节点, 带 hasChildren 和 childCount
+     */
+    public Result<List<Tree>> leftTreeChildren(String parentId){
+        List<Tree> children = leftTreeRightTableService.leftTreeChildren(parentId);
+        return ResultUtil.success(children);
+    }
+
     /**
      * 得到左树类型
      * @return 左树类型
      */
     protected Class<Tree> getLeftTreeClass(){
-        Type type = TypeUtil.getTypeArgument(getClass());
-        if (type != null && type instanceof Class) {
-            return (Class<Tree>) type;
-        }
-        return null;
+        return TypeArgumentRegistry.getTypeArgument(getClass());
     }
 
     /**
@@ -47,11 +52,7 @@ public class LeftTreeRightTableController<Tree extends TreeEntity<Tree>, Entity
      * @return 右表类型
      */
     protected Class<Entity> getRightTableClass(){
-        Type type = TypeUtil.getTypeArgument(getClass(), 1);
-        if (type != null && type instanceof Class) {
-            return (Class<Entity>) type;
-        }
-        return null;
+        return TypeArgumentRegistry.getTypeArgument(getClass(), 1);
     }
 
     @Override
@@ -37,5 +37,37 @@ public class TreeController<Entity extends TreeEntity<Entity>> extends BaseContr
         return ResultUtil.success(entities);
     }
 
+    /**
+     * 按层懒加载, 查询父节点的直接子节点
+     * @param parentId 父节点 id, 为空时查询根节点
+     * @return 子节点, 带 hasChildren 和 childCount
+     */
+    public Result<List<Entity>> children(String parentId) {
+        List<Entity> entities = treeService.children(parentId);
+        return ResultUtil.success(entities);
+    }
+
+    /**
+     * 移动节点到新的父节点下
+     * @param id 节点 id
+     * @param parentId 新的父节点 id, 为空时移动为根节点
+     * @param position 在新的同级节点中的位置, 从 0 开始, 为空时放在最后
+     * @return 移动结果
+     */
+    public Result<Void> move(String id, String parentId, Integer position) {
+        treeService.move(id, parentId, position);
+        return ResultUtil.success();
+    }
+
+    /**
+     * 按给定顺序重排同一父节点下的子节点
+     * @param parentId 父节点 id, 为空时重排根节点
+     * @param ids 排好序的子节点 id
+     * @return 更新的行数
+     */
+    public Result<Integer> reorder(String parentId, List<String> ids) {
+        int count = treeService.reorder(parentId, ids);
+        return ResultUtil.success(count);
+    }
 
 }
@@ -1,10 +1,11 @@
 package com.lzpeng.minimal.common.jpa.converter;
 
-import cn.hutool.core.util.TypeUtil;
 import com.lzpeng.minimal.common.core.domain.enums.BaseEnum;
+import com.lzpeng.minimal.common.jpa.support.TypeArgumentRegistry;
 
 import javax.persistence.AttributeConverter;
-import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -18,6 +19,11 @@ import java.util.Optional;
  */
 public abstract class BaseEnumConverter<ATTR extends Enum & BaseEnum<DB>, DB> implements AttributeConverter<ATTR, DB> {
 
+    /**
+     * 数据库存储的值 与 枚举, 每次读取一行数据都会转换, 只构建一次
+     */
+    private volatile Map<DB, ATTR> codeMap;
+
     /**
      * 将枚举转换为数据库要存储的值
      * @param attribute 枚举值
@@ -37,19 +43,39 @@ public abstract class BaseEnumConverter<ATTR extends Enum & BaseEnum<DB>, DB> im
      */
     @Override
     public ATTR convertToEntityAttribute(DB dbData) {
-        // 得到真实枚举类型
-        Type type = TypeUtil.getTypeArgument(getClass());
-        Class<ATTR> clazz = (Class<ATTR>) type;
-        if (!clazz.isEnum()) {
-            throw new UnsupportedOperationException(clazz.getName() + "不是枚举, 请检查");
+        ATTR anEnum = getCodeMap().get(dbData);
+        if (anEnum == null) {
+            throw new UnsupportedOperationException("枚举转化异常。枚举【" + getEnumClass().getName() + "】,数据库库中的值为：【" + dbData + "】");
         }
-        ATTR[] enums = clazz.getEnumConstants();
-        for (ATTR anEnum : enums) {
-            if (anEnum.getCode().equals(dbData)) {
-                return anEnum;
+        return anEnum;
+    }
+
+    /**
+     * 得到数据库存储的值与枚举的对应关系, 只创建一次
+     * @return 数据库存储的值 与 枚举
+     */
+    private Map<DB, ATTR> getCodeMap() {
+        if (codeMap == null) {
+            Class<ATTR> clazz = getEnumClass();
+            Map<DB, ATTR> map = new HashMap<>();
+            for (ATTR anEnum : clazz.getEnumConstants()) {
+                map.put(anEnum.getCode(), anEnum);
             }
+            codeMap = map;
+        }
+        return codeMap;
+    }
+
+    /**
+     * 得到真实枚举类型
+     * @return 枚举类型
+     */
+    private Class<ATTR> getEnumClass() {
+        Class<ATTR> clazz = TypeArgumentRegistry.getTypeArgument(getClass());
+        if (clazz == null || !clazz.isEnum()) {
+            throw new UnsupportedOperationException(clazz + "不是枚举, 请检查");
         }
-        throw new UnsupportedOperationException("枚举转化异常。枚举【" + clazz.getName() + "】,数据库库中的值为：【" + dbData + "】");
+        return clazz;
     }
 
 }
@@ -0,0 +1,51 @@
+package com.lzpeng.minimal.common.jpa.domain.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+
+/**
+ * @author: Lzpeng
+ * 批量操作实体的结果, 各部分的行数及耗时
+ */
+@Data
+@ApiModel("批量操作结果")
+public class BatchResult {
+
+    /**
+     * 删除的行数
+     */
+    @ApiModelProperty("删除的行数")
+    private int deleted;
+
+    /**
+     * 删除耗时(毫秒)
+     */
+    @ApiModelProperty("删除耗时(毫秒)")
+    private long deleteMillis;
+
+    /**
+     * 更新的行数
+     */
+    @ApiModelProperty("更新的行数")
+    private int updated;
+
+    /**
+     * 更新耗时(毫秒)
+     */
+    @ApiModelProperty("更新耗时(毫秒)")
+    private long updateMillis;
+
+    /**
+     * 新增的行数
+     */
+    @ApiModelProperty("新增的行数")
+    private int created;
+
+    /**
+     * 新增耗时(毫秒)
+     */
+    @ApiModelProperty("新增耗时(毫秒)")
+    private long createMillis;
+
+}
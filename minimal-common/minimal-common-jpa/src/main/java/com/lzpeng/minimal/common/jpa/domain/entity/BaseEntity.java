@@ -4,11 +4,13 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.lzpeng.minimal.common.core.annotation.Excel;
 import com.lzpeng.minimal.common.jpa.annotation.BooleanValue;
+import com.lzpeng.minimal.common.jpa.hibernate.EncodedIdType;
 import com.lzpeng.minimal.common.jpa.support.GenerateEntityIdListener;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.Data;
 import org.hibernate.annotations.DynamicInsert;
 import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Type;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedBy;
@@ -48,7 +50,11 @@ public class BaseEntity implements Serializable {
     @Transient
     protected static final long serialVersionUID = 1L;
 
+    /**
+     * 编码后的 id, 存储方式见 {@link EncodedIdType}
+     */
     @Id
+    @Type(type = "com.lzpeng.minimal.common.jpa.hibernate.EncodedIdType")
     @ApiModelProperty(value = "主键ID", hidden = true)
     @Column(columnDefinition = "varchar(255) COMMENT 'id 主键'", updatable = false)
     private String id;
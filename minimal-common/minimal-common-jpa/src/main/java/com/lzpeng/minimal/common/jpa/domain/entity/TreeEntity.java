@@ -2,6 +2,7 @@ package com.lzpeng.minimal.common.jpa.domain.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -15,6 +16,8 @@ import java.util.List;
 
 /**
  * 抽象树形结构
+ * equals/hashCode 不包含父子节点, 以及由 TreeService 维护或按需计算的祖先路径, 子节点数量,
+ * 避免比较时加载懒加载的关联, 也避免节点保存或按层查询后放入 Set/Map 的位置失效
  *
  * @date: 2020/3/14
  * @time: 23:45
@@ -24,11 +27,16 @@ import java.util.List;
 @DynamicInsert
 @DynamicUpdate
 @MappedSuperclass
-@EqualsAndHashCode(callSuper = true, exclude = {"parent"})
+@EqualsAndHashCode(callSuper = true, exclude = {"parent", "children", "treePath", "hasChildren", "childCount"})
 @ToString(callSuper = true, exclude = {"parent"})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class TreeEntity<T extends TreeEntity<T>> extends BaseEntity {
 
+    /**
+     * 祖先路径分隔符
+     */
+    public static final String PATH_SEPARATOR = "/";
+
     @ApiModelProperty("顺序号")
     @Column(columnDefinition = "int(11) COMMENT '顺序号'", nullable = false)
     private Integer orderNum;
@@ -54,6 +62,16 @@ public class TreeEntity<T extends TreeEntity<T>> extends BaseEntity {
     private List<T> children = new ArrayList<>();
 
 
+    /**
+     * 祖先路径 /根节点id/.../父节点id/本节点id/
+     * 由 TreeService 保存时维护, 子树查询使用 tree_path like '本节点路径%'
+     * 需在实体的 @Table 中为此列建立索引
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @ApiModelProperty(value = "祖先路径", hidden = true)
+    @Column(columnDefinition = "varchar(760) COMMENT '祖先路径'")
+    private String treePath;
+
     /**
      * 父节点 Id 不存数据库,接收前台参数使用
      */
@@ -61,5 +79,19 @@ public class TreeEntity<T extends TreeEntity<T>> extends BaseEntity {
     @ApiModelProperty("父节点id")
     private String parentId;
 
+    /**
+     * 是否有子节点 不存数据库, 按层懒加载时使用
+     */
+    @Transient
+    @ApiModelProperty(value = "是否有子节点", hidden = true)
+    private Boolean hasChildren;
+
+    /**
+     * 子节点数量 不存数据库, 按层懒加载时使用
+     */
+    @Transient
+    @ApiModelProperty(value = "子节点数量", hidden = true)
+    private Long childCount;
+
 
 }
@@ -0,0 +1,51 @@
+package com.lzpeng.minimal.common.jpa.domain.enums;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 分页查询时总数的统计方式
+ * @author: Lzpeng
+ */
+@Getter
+@AllArgsConstructor
+public enum CountMode {
+
+    /**
+     * 精确统计, 执行 count 查询
+     */
+    EXACT("精确统计"),
+    /**
+     * 不统计总数, 多查询一条判断是否有下一页
+     */
+    NONE("不统计"),
+    /**
+     * 使用短时缓存的总数, 缓存按查询条件区分
+     */
+    CACHED("缓存统计"),
+    /**
+     * 无查询条件时使用数据库表统计信息估算, 有查询条件时同 CACHED
+     */
+    ESTIMATED("估算");
+
+    private String message;
+
+    /**
+     * 解析前端传入的统计方式, 忽略大小写, 为空时精确统计
+     * 不使用 MVC 枚举转换, 以免受 {@link com.lzpeng.minimal.common.core.converter.StringToIntEnumConverterFactory} 影响
+     * @param value 统计方式
+     * @return 统计方式
+     */
+    public static CountMode parse(String value) {
+        if (StrUtil.isBlank(value)) {
+            return EXACT;
+        }
+        for (CountMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("不支持的总数统计方式: " + value);
+    }
+}
@@ -0,0 +1,26 @@
+package com.lzpeng.minimal.common.jpa.domain.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 实体 id 格式
+ * @author: Lzpeng
+ */
+@Getter
+@AllArgsConstructor
+public enum EntityIdFormat {
+
+    /**
+     * 编码后的包名_编码后的类名_62进制的雪花id, 雪花id 不定长, 字符串顺序与生成顺序无关
+     */
+    DEFAULT("默认"),
+    /**
+     * 编码后的包名_类名的 CRC32 36进制_36进制补 0 至 13 位的雪花id
+     * 同一实体的 id 字符串顺序与生成顺序一致(大小写不敏感的排序规则下同样成立), 插入时落在聚簇索引末尾
+     * 类名部分不可逆, 解码前须通过 {@link com.lzpeng.minimal.common.jpa.util.JpaIdUtil#registerEntityClass(Class)} 注册实体类
+     */
+    SORTABLE("可排序");
+
+    private String message;
+}
@@ -0,0 +1,25 @@
+package com.lzpeng.minimal.common.jpa.domain.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 实体 id 存储方式
+ * @author: Lzpeng
+ */
+@Getter
+@AllArgsConstructor
+public enum EntityIdStorage {
+
+    /**
+     * 主键和外键列存储编码后的 id 字符串
+     */
+    STRING("字符串"),
+    /**
+     * 主键和外键列只存储雪花id, 读取时按实体类编码, 写入时解码
+     * 实体和接口中的 id 仍然是编码后的字符串
+     */
+    BIGINT("数字");
+
+    private String message;
+}
@@ -0,0 +1,91 @@
+package com.lzpeng.minimal.common.jpa.hibernate;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.ForeignKey;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Table;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.type.CustomType;
+import org.hibernate.type.Type;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BIGINT 存储方式下修正 id 列的建表类型
+ * 实体的 id 列和外键列通过 columnDefinition 写死了 varchar(255), 在生成表结构前将其替换为 bigint, 保留列注释
+ * 只影响新建的表和列, ddl-auto: update 不会修改已有列的类型
+ * @author: Lzpeng
+ */
+public class EncodedIdColumnIntegrator implements Integrator {
+
+    /**
+     * columnDefinition 开头的 varchar 类型
+     */
+    private static final Pattern VARCHAR_TYPE = Pattern.compile("^\\s*varchar\\s*\\(\\s*\\d+\\s*\\)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 替换后的类型
+     */
+    private static final String BIGINT_TYPE = "bigint";
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        Set<Table> encodedTables = new HashSet<>();
+        for (PersistentClass persistentClass : metadata.getEntityBindings()) {
+            if (persistentClass.getIdentifier() == null || !isEncodedIdType(persistentClass.getIdentifier().getType())) {
+                continue;
+            }
+            encodedTables.add(persistentClass.getTable());
+            rewriteColumns(persistentClass.getIdentifier().getColumnIterator());
+        }
+        for (Table table : metadata.collectTableMappings()) {
+            Iterator<ForeignKey> foreignKeys = table.getForeignKeyIterator();
+            while (foreignKeys.hasNext()) {
+                ForeignKey foreignKey = foreignKeys.next();
+                if (encodedTables.contains(foreignKey.getReferencedTable())) {
+                    rewriteColumns(foreignKey.getColumnIterator());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    /**
+     * @param type Hibernate 类型
+     * @return 是否为实体 id 类型
+     */
+    private boolean isEncodedIdType(Type type) {
+        return type instanceof CustomType && ((CustomType) type).getUserType() instanceof EncodedIdType;
+    }
+
+    /**
+     * 将列的 varchar 类型替换为 bigint, 没有 columnDefinition 的列由 {@link EncodedIdType#sqlTypes()} 决定类型
+     * @param columns 列
+     */
+    private void rewriteColumns(Iterator<?> columns) {
+        while (columns.hasNext()) {
+            Object selectable = columns.next();
+            if (!(selectable instanceof Column)) {
+                continue;
+            }
+            Column column = (Column) selectable;
+            if (column.getSqlType() == null) {
+                continue;
+            }
+            Matcher matcher = VARCHAR_TYPE.matcher(column.getSqlType());
+            if (matcher.find()) {
+                column.setSqlType(matcher.replaceFirst(BIGINT_TYPE));
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.lzpeng.minimal.common.jpa.hibernate;
+
+import com.lzpeng.minimal.common.jpa.domain.enums.EntityIdFormat;
+import com.lzpeng.minimal.common.jpa.domain.enums.EntityIdStorage;
+import com.lzpeng.minimal.common.jpa.util.JpaIdUtil;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.usertype.DynamicParameterizedType;
+import org.hibernate.usertype.UserType;
+import org.springframework.util.ClassUtils;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * 实体 id 的 Hibernate 类型
+ * STRING 存储方式下原样读写编码后的 id 字符串
+ * BIGINT 存储方式下主键和外键列只存储雪花id, 写入时从 id 字符串中解码, 读取时按所属实体类和 minimal.jpa.id.format 重新编码
+ * 实体, 查询参数, 缓存和接口中的 id 始终是编码后的字符串, 只有 JDBC 读写时才转换
+ * 存储方式在 EntityManagerFactory 创建前由 {@link #configure(EntityIdStorage, EntityIdFormat)} 设置, 运行中不能切换
+ * @author: Lzpeng
+ */
+public class EncodedIdType implements UserType, DynamicParameterizedType {
+
+    /**
+     * 存储方式
+     */
+    private static volatile EntityIdStorage storage = EntityIdStorage.STRING;
+
+    /**
+     * 读取时编码的 id 格式
+     */
+    private static volatile EntityIdFormat format = EntityIdFormat.DEFAULT;
+
+    /**
+     * id 所属的实体类
+     */
+    private Class<?> entityClass;
+
+    /**
+     * 设置存储方式 和 读取时编码的 id 格式
+     * @param storage 存储方式
+     * @param format id 格式
+     */
+    public static void configure(EntityIdStorage storage, EntityIdFormat format) {
+        EncodedIdType.storage = storage;
+        EncodedIdType.format = format;
+    }
+
+    /**
+     * @return 是否只存储雪花id
+     */
+    public static boolean isNumeric() {
+        return storage == EntityIdStorage.BIGINT;
+    }
+
+    /**
+     * 将 id 转为原生 SQL 的参数值, 原生 SQL 不经过本类型转换
+     * @param id 编码后的 id
+     * @return BIGINT 存储方式下为雪花id, 否则为原 id
+     */
+    public static Object toJdbcValue(String id) {
+        return id != null && isNumeric() ? JpaIdUtil.getSnowflakeId(id) : id;
+    }
+
+    @Override
+    public void setParameterValues(Properties parameters) {
+        String entityName = parameters.getProperty(ENTITY);
+        if (entityName == null) {
+            return;
+        }
+        try {
+            entityClass = ClassUtils.forName(entityName, null);
+        } catch (ClassNotFoundException e) {
+            throw new HibernateException("找不到实体类 " + entityName, e);
+        }
+    }
+
+    @Override
+    public int[] sqlTypes() {
+        return new int[]{isNumeric() ? Types.BIGINT : Types.VARCHAR};
+    }
+
+    @Override
+    public Class<?> returnedClass() {
+        return String.class;
+    }
+
+    @Override
+    public boolean equals(Object x, Object y) {
+        return Objects.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(Object x) {
+        return Objects.hashCode(x);
+    }
+
+    @Override
+    public Object nullSafeGet(ResultSet rs, String[] names, SharedSessionContractImplementor session, Object owner) throws SQLException {
+        if (!isNumeric()) {
+            return rs.getString(names[0]);
+        }
+        long snowflakeId = rs.getLong(names[0]);
+        if (rs.wasNull()) {
+            return null;
+        }
+        if (entityClass == null) {
+            throw new HibernateException("BIGINT 存储方式下 id 类型缺少实体类参数");
+        }
+        return JpaIdUtil.encodeEntityId(entityClass, snowflakeId, format);
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement st, Object value, int index, SharedSessionContractImplementor session) throws SQLException {
+        if (value == null) {
+            st.setNull(index, sqlTypes()[0]);
+        } else if (!isNumeric()) {
+            st.setString(index, (String) value);
+        } else {
+            // 雪花id 全局唯一, 不再校验 id 前缀是否属于本实体类
+            st.setLong(index, JpaIdUtil.getSnowflakeId((String) value));
+        }
+    }
+
+    @Override
+    public Object deepCopy(Object value) {
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(Object value) {
+        return (Serializable) value;
+    }
+
+    @Override
+    public Object assemble(Serializable cached, Object owner) {
+        return cached;
+    }
+
+    @Override
+    public Object replace(Object original, Object target, Object owner) {
+        return original;
+    }
+}
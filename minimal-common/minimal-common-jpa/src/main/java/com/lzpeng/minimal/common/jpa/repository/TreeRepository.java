@@ -1,9 +1,13 @@
 package com.lzpeng.minimal.common.jpa.repository;
 
 import com.lzpeng.minimal.common.jpa.domain.entity.TreeEntity;
+import com.lzpeng.minimal.common.jpa.util.TreeEntityUtil;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
 
-import java.util.List;
+import java.util.*;
 
 /**
  * @author: Lzpeng
@@ -16,4 +20,109 @@ public interface TreeRepository<T extends TreeEntity<T>> extends BaseRepository<
      * @return 以树状结构展示数据
      */
     List<T> findByParentNullOrderByOrderNum();
+
+    /**
+     * 查询父节点的直接子节点
+     * @param parentId 父节点 id
+     * @return 按顺序号排列的子节点
+     */
+    @Query("SELECT t FROM #{#entityName} t WHERE t.parent.id = :parentId ORDER BY t.orderNum")
+    List<T> findChildren(@Param("parentId") String parentId);
+
+    /**
+     * 分组统计每个父节点的直接子节点数量
+     * @param parentIds 父节点 id
+     * @return [父节点 id, 子节点数量] 列表, 没有子节点的父节点不在结果中
+     */
+    @Query("SELECT t.parent.id, COUNT(t) FROM #{#entityName} t WHERE t.parent.id IN :parentIds GROUP BY t.parent.id")
+    List<Object[]> countChildren(@Param("parentIds") Collection<String> parentIds);
+
+    /**
+     * 查询多个父节点的直接子节点
+     * @param parentIds 父节点 id
+     * @return 子节点
+     */
+    @Query("SELECT t FROM #{#entityName} t WHERE t.parent.id IN :parentIds")
+    List<T> findChildrenByParentIds(@Param("parentIds") Collection<String> parentIds);
+
+    /**
+     * 根据祖先路径前缀查询节点, 使用 tree_path 索引
+     * select * from table_name where tree_path like 'treePath%' order by order_num
+     * @param treePath 祖先路径前缀
+     * @return 路径以 treePath 开头的节点
+     */
+    List<T> findByTreePathStartingWithOrderByOrderNum(String treePath);
+
+    /**
+     * 统计没有祖先路径的节点数量
+     * @return 没有祖先路径的节点数量
+     */
+    long countByTreePathNull();
+
+    /**
+     * 节点移动后, 将所有子孙节点的祖先路径前缀由 oldPath 替换为 newPath
+     * @param oldPath 移动前的祖先路径
+     * @param newPath 移动后的祖先路径
+     * @return 更新的行数
+     */
+    default int replaceTreePathPrefix(String oldPath, String newPath) {
+        return replaceTreePathPrefix(oldPath, newPath, TreeEntityUtil.escapeLike(oldPath) + "%");
+    }
+
+    /**
+     * 将祖先路径匹配 pattern 的节点的路径前缀由 oldPath 替换为 newPath, 同时增加版本号
+     * 执行前写入未提交的修改, 执行后清空持久化上下文, 避免之后读到或写回旧的祖先路径
+     * @param oldPath 移动前的祖先路径
+     * @param newPath 移动后的祖先路径
+     * @param pattern 转义后的 like 条件, 转义符为 !
+     * @return 更新的行数
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE #{#entityName} t SET t.treePath = CONCAT(:newPath, SUBSTRING(t.treePath, LENGTH(:oldPath) + 1)), t.version = t.version + 1 WHERE t.treePath LIKE :pattern ESCAPE '!'")
+    int replaceTreePathPrefix(@Param("oldPath") String oldPath, @Param("newPath") String newPath, @Param("pattern") String pattern);
+
+    /**
+     * 查询节点及其所有子孙节点
+     * 历史数据没有祖先路径时, 按 parent_id 逐层查询
+     * @param id 节点 id
+     * @return 按顺序号排列的节点及其所有子孙节点, 节点不存在时返回空集合
+     */
+    default List<T> findSubtree(String id) {
+        Optional<T> root = findById(id);
+        if (!root.isPresent()) {
+            return Collections.emptyList();
+        }
+        if (root.get().getTreePath() != null) {
+            return findByTreePathStartingWithOrderByOrderNum(root.get().getTreePath());
+        }
+        List<T> subtree = new ArrayList<>();
+        subtree.add(root.get());
+        Set<String> visited = new HashSet<>();
+        visited.add(id);
+        List<String> parentIds = Collections.singletonList(id);
+        while (!parentIds.isEmpty()) {
+            List<String> childIds = new ArrayList<>();
+            for (T child : findChildrenByParentIds(parentIds)) {
+                // 数据有环时不重复查询
+                if (visited.add(child.getId())) {
+                    subtree.add(child);
+                    childIds.add(child.getId());
+                }
+            }
+            parentIds = childIds;
+        }
+        subtree.sort(Comparator.comparing(T::getOrderNum));
+        return subtree;
+    }
+
+    /**
+     * 查询节点的所有祖先节点, 按祖先路径中的 id 一次 in 查询
+     * @param id 节点 id
+     * @return 所有祖先节点, 不包含节点本身
+     */
+    default List<T> findAncestors(String id) {
+        return findById(id)
+                .map(node -> findAllById(TreeEntityUtil.getAncestorIds(node.getTreePath())))
+                .orElse(Collections.emptyList());
+    }
 }
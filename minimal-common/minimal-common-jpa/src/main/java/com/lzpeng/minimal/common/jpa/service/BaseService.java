@@ -1,43 +1,93 @@
 package com.lzpeng.minimal.common.jpa.service;
 
-import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.core.bean.copier.CopyOptions;
 import cn.hutool.core.collection.ListUtil;
 import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.io.IoUtil;
-import cn.hutool.core.util.TypeUtil;
+import cn.hutool.core.util.ClassUtil;
+import cn.hutool.core.util.StrUtil;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.lzpeng.minimal.common.core.response.QueryResult;
+import com.lzpeng.minimal.common.core.util.BeanAccessor;
 import com.lzpeng.minimal.common.core.util.BeanUtils;
+import com.lzpeng.minimal.common.core.util.ExcelStreamWriter;
 import com.lzpeng.minimal.common.core.util.ExcelUtils;
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
 import com.lzpeng.minimal.common.jpa.domain.dto.BatchModel;
+import com.lzpeng.minimal.common.jpa.domain.dto.BatchResult;
+import com.lzpeng.minimal.common.jpa.domain.enums.CountMode;
 import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
 import com.lzpeng.minimal.common.jpa.repository.BaseRepository;
+import com.lzpeng.minimal.common.jpa.support.CountCache;
+import com.lzpeng.minimal.common.jpa.support.GenerateEntityIdListener;
+import com.lzpeng.minimal.common.jpa.support.KeysetCursor;
+import com.lzpeng.minimal.common.jpa.support.TypeArgumentRegistry;
+import com.lzpeng.minimal.common.jpa.util.JpaIdUtil;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.DateTimePath;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.*;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.querydsl.SimpleEntityPathResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
 import javax.servlet.http.HttpServletResponse;
 import javax.transaction.Transactional;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Type;
-import java.nio.charset.Charset;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
 
 /**
  * 单表Service
  * @author: Lzpeng
  */
+@Slf4j
 @Transactional(rollbackOn = Exception.class)
 public abstract class BaseService<Entity extends BaseEntity> {
 
@@ -51,8 +101,67 @@ public abstract class BaseService<Entity extends BaseEntity> {
      */
     private static final String TEMP_DIR = System.getProperty("java.io.tmpdir");
 
+    /**
+     * Excel 2007 文件类型
+     */
+    private static final String EXCEL_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
     @Autowired
     protected ObjectMapper objectMapper;
+
+    /**
+     * 实体管理器, 批量保存时 flush 和 clear 使用
+     */
+    @PersistenceContext
+    protected EntityManager entityManager;
+
+    /**
+     * JPA 模块属性配置
+     */
+    @Autowired
+    protected MinimalJpaProperties jpaProperties;
+
+    /**
+     * 实体 id 生成器
+     */
+    @Autowired
+    protected GenerateEntityIdListener generateEntityIdListener;
+
+    /**
+     * 实体类型的 JSON 读取器
+     */
+    private volatile ObjectReader entityReader;
+
+    /**
+     * 分页总数缓存
+     */
+    @Autowired
+    protected CountCache countCache;
+
+    /**
+     * QueryDsl 查询器
+     */
+    @Autowired
+    protected JPAQueryFactory jpaQueryFactory;
+
+    /**
+     * 事务管理器, 分批导入时每批次开启新事务
+     */
+    @Autowired
+    protected PlatformTransactionManager transactionManager;
+
+    /**
+     * 指标注册器, 记录每批次耗时, 未引入 actuator 时为空
+     */
+    @Autowired(required = false)
+    protected MeterRegistry meterRegistry;
+
+    /**
+     * 缓存管理器, 批量删除和更新绕过了带缓存注解的方法, 需手动移除实体缓存
+     */
+    @Autowired(required = false)
+    protected CacheManager cacheManager;
+
     /**
      * 不能使用@Autowired 有 bug 不能泛型注入
      */
@@ -87,18 +196,49 @@ public abstract class BaseService<Entity extends BaseEntity> {
 
     /**
      * 保存实体列表
+     * 逐个调用 {@link #save}, 不 flush 也不 clear EntityManager, 当前事务中已加载的实体保持托管状态
+     * 导入等大批量保存使用 {@link #saveAllInBatch(Iterable, int)}
      * @param entities 实体列表
      * @return 保存成功的实体列表
      */
     public List<Entity> saveAll(Iterable<Entity> entities) {
         Assert.notNull(entities, "Entities must not be null!");
-        List<Entity> result = new ArrayList<Entity>();
+        List<Entity> result = new ArrayList<>();
         for (Entity entity : entities) {
             result.add(save(entity));
         }
         return result;
     }
 
+    /**
+     * 分批保存实体列表
+     * 新实体提前分配 id 后 persist, 已存在的实体 merge
+     * 每批次结束后 flush 并 clear EntityManager, 配合 hibernate.jdbc.batch_size 以 JDBC 批量语句写入
+     * 注意: clear 之后, 当前事务中此前加载的实体均变为游离状态
+     * @param entities 实体列表
+     * @param chunkSize 每批次的实体数量
+     * @return 保存成功的实体列表(游离状态)
+     */
+    public List<Entity> saveAllInBatch(Iterable<Entity> entities, int chunkSize) {
+        Assert.notNull(entities, "Entities must not be null!");
+        if (chunkSize <= 0) {
+            chunkSize = jpaProperties.getBatch().getChunkSize();
+        }
+        List<Entity> result = new ArrayList<>();
+        List<Entity> chunk = new ArrayList<>(chunkSize);
+        for (Entity entity : entities) {
+            chunk.add(entity);
+            if (chunk.size() >= chunkSize) {
+                result.addAll(saveChunk(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            result.addAll(saveChunk(chunk));
+        }
+        return result;
+    }
+
 
     /**
      * 根据 id 删除实体
@@ -124,9 +264,8 @@ public abstract class BaseService<Entity extends BaseEntity> {
     public Entity update(String id, Entity model) {
         Optional<Entity> optional = baseRepository.findById(id);
         if (optional.isPresent()) {
-            Entity entity = optional.get();
-            BeanUtils.convertEmptyCollectionToNull(model);
-            BeanUtil.copyProperties(model, entity, CopyOptions.create().setIgnoreNullValue(true));
+            Entity entity = unproxy(optional.get());
+            BeanUtils.copyNonEmptyProperties(model, entity);
             return save(entity);
         }
         return null;
@@ -150,23 +289,54 @@ public abstract class BaseService<Entity extends BaseEntity> {
      * @return 符合条件的实体列表
      */
     public QueryResult<Entity> query(int page, int size, Entity model) {
+        return query(page, size, model, CountMode.EXACT);
+    }
+
+    /**
+     * 根据查询条件和分页条件查询实体
+     * @param page 页码
+     * @param size 每页行数
+     * @param model JPA Example 查询条件
+     * @param countMode 总数统计方式
+     * @return 符合条件的实体列表
+     */
+    public QueryResult<Entity> query(int page, int size, Entity model, CountMode countMode) {
         // 处理不正确的页码
         page = optimizePage(page);
         // 处理不正确的每页数据量
         size = optimizeSize(size);
-        // 得到分页对象
-        Pageable pageable = getPageable(page, size);
-        Page<Entity> pageResult;
-        if (model == null) {
-            // 没有传查询条件
-            pageResult = baseRepository.findAll(pageable);
-        } else {
+        if (model != null) {
             // 将空白字符 或 undefined 设置为 null
             BeanUtils.convertBlankToNull(model);
-            pageResult = baseRepository.findAll(Example.of(model, matcher), pageable);
         }
-        // 执行查询后操作
-        return new QueryResult(pageResult.getContent(), pageResult.getTotalElements(), pageResult.getNumber() + 1, pageResult.getTotalPages());
+        Example<Entity> example = model == null ? null : Example.of(model, matcher);
+        if (countMode == null || countMode == CountMode.EXACT) {
+            // 得到分页对象
+            Pageable pageable = getPageable(page, size);
+            // 没有传查询条件时查询所有
+            Page<Entity> pageResult = example == null ? baseRepository.findAll(pageable) : baseRepository.findAll(example, pageable);
+            // 执行查询后操作
+            return new QueryResult(pageResult.getContent(), pageResult.getTotalElements(), pageResult.getNumber() + 1, pageResult.getTotalPages());
+        }
+        // 多查一条判断是否有下一页
+        Class<Entity> clazz = getEntityClass();
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Entity> criteriaQuery = builder.createQuery(clazz);
+        Root<Entity> root = criteriaQuery.from(clazz);
+        criteriaQuery.select(root).orderBy(builder.desc(root.get("createTime")));
+        if (example != null) {
+            javax.persistence.criteria.Predicate where = QueryByExamplePredicateBuilder.getPredicate(root, builder, example);
+            if (where != null) {
+                criteriaQuery.where(where);
+            }
+        }
+        List<Entity> list = entityManager.createQuery(criteriaQuery)
+                .setFirstResult(page * size)
+                .setMaxResults(size + 1)
+                .getResultList();
+        Map<String, Object> probe = getNormalizedProbe(model);
+        String countKey = clazz.getName() + ":" + probe;
+        return getQueryResult(list, page, size, countMode, !probe.isEmpty(), countKey, () -> count(model));
     }
 
     /**
@@ -177,21 +347,173 @@ public abstract class BaseService<Entity extends BaseEntity> {
      * @return 符合条件的实体列表
      */
     public QueryResult<Entity> query(int page, int size, Predicate predicate) {
+        return query(page, size, predicate, CountMode.EXACT);
+    }
+
+    /**
+     * 根据查询条件和分页条件查询实体
+     * @param page 页码
+     * @param size 每页行数
+     * @param predicate Query DSL查询条件
+     * @param countMode 总数统计方式
+     * @return 符合条件的实体列表
+     */
+    public QueryResult<Entity> query(int page, int size, Predicate predicate, CountMode countMode) {
         // 处理不正确的页码
         page = optimizePage(page);
         // 处理不正确的每页数据量
         size = optimizeSize(size);
-        // 得到分页对象
-        Pageable pageable = getPageable(page, size);
-        Page<Entity> pageResult;
-        if (predicate == null) {
-            // 没有传查询条件
-            pageResult = baseRepository.findAll(pageable);
-        } else {
-            pageResult = baseRepository.findAll(predicate, pageable);
+        if (countMode == null || countMode == CountMode.EXACT) {
+            // 得到分页对象
+            Pageable pageable = getPageable(page, size);
+            // 没有传查询条件时查询所有
+            Page<Entity> pageResult = predicate == null ? baseRepository.findAll(pageable) : baseRepository.findAll(predicate, pageable);
+            // 执行查询后操作
+            return new QueryResult(pageResult.getContent(), pageResult.getTotalElements(), pageResult.getNumber() + 1, pageResult.getTotalPages());
+        }
+        // 多查一条判断是否有下一页
+        EntityPath<Entity> path = SimpleEntityPathResolver.INSTANCE.createPath(getEntityClass());
+        PathBuilder<Entity> pathBuilder = new PathBuilder<>(path.getType(), path.getMetadata());
+        List<Entity> list = jpaQueryFactory.selectFrom(path)
+                .where(new BooleanBuilder(predicate))
+                .orderBy(pathBuilder.getDateTime("createTime", Date.class).desc())
+                .offset((long) page * size)
+                .limit(size + 1)
+                .fetch();
+        // Query DSL 条件的字符串形式中包含了常量值
+        String countKey = getEntityClass().getName() + ":" + predicate;
+        return getQueryResult(list, page, size, countMode, predicate != null, countKey, () -> predicate == null ? count() : count(predicate));
+    }
+
+    /**
+     * 根据查询条件和分页条件查询实体的部分字段
+     * 只查询 fields 对应的列, 结果不进入持久化上下文, 适合列表页
+     * @param page 页码
+     * @param size 每页行数
+     * @param model JPA Example 查询条件
+     * @param countMode 总数统计方式
+     * @param fields 要查询的字段, 只支持基本类型字段, 总是包含 id
+     * @return 字段名与值的 Map 列表
+     */
+    public QueryResult<Map<String, Object>> queryFields(int page, int size, Entity model, CountMode countMode, String... fields) {
+        // 处理不正确的页码
+        page = optimizePage(page);
+        // 处理不正确的每页数据量
+        size = optimizeSize(size);
+        if (countMode == null) {
+            countMode = CountMode.EXACT;
+        }
+        if (model != null) {
+            // 将空白字符 或 undefined 设置为 null
+            BeanUtils.convertBlankToNull(model);
+        }
+        List<String> selections = getProjectionFields(fields);
+        Class<Entity> clazz = getEntityClass();
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> criteriaQuery = builder.createTupleQuery();
+        Root<Entity> root = criteriaQuery.from(clazz);
+        List<Selection<?>> columns = selections.stream().map(field -> (Selection<?>) root.get(field).alias(field)).collect(Collectors.toList());
+        criteriaQuery.multiselect(columns)
+                .orderBy(builder.desc(root.get("createTime")));
+        if (model != null) {
+            javax.persistence.criteria.Predicate where = QueryByExamplePredicateBuilder.getPredicate(root, builder, Example.of(model, matcher));
+            if (where != null) {
+                criteriaQuery.where(where);
+            }
+        }
+        // 多查一条判断是否有下一页
+        List<Tuple> tuples = entityManager.createQuery(criteriaQuery)
+                .setFirstResult(page * size)
+                .setMaxResults(size + 1)
+                .getResultList();
+        List<Map<String, Object>> list = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>(selections.size());
+            for (String field : selections) {
+                row.put(field, tuple.get(field));
+            }
+            list.add(row);
+        }
+        Map<String, Object> probe = getNormalizedProbe(model);
+        String countKey = clazz.getName() + ":" + probe;
+        if (countMode == CountMode.EXACT) {
+            // 精确统计时不使用缓存
+            long total = count(model);
+            boolean hasNext = list.size() > size;
+            if (hasNext) {
+                list = new ArrayList<>(list.subList(0, size));
+            }
+            return new QueryResult<>(list, total, page + 1, (total + size - 1) / size, hasNext, null);
+        }
+        return getQueryResult(list, page, size, countMode, !probe.isEmpty(), countKey, () -> count(model));
+    }
+
+    /**
+     * 游标分页查询, 按 (createTime, id) 倒序
+     * 使用 where (createTime, id) < (游标) 代替 offset, 翻页耗时与页码无关
+     * createTime 为空的历史数据在倒序中排在最后(MySQL 规则), 翻到这些数据后只按 id 翻页
+     * @param cursor 上一页返回的游标, 为空时查询第一页
+     * @param size 每页行数
+     * @param model JPA Example 查询条件
+     * @return 符合条件的实体列表及下一页游标
+     */
+    public QueryResult<Entity> seek(String cursor, int size, Entity model) {
+        size = optimizeSize(size);
+        KeysetCursor keyset = KeysetCursor.decode(cursor);
+        Class<Entity> clazz = getEntityClass();
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Entity> criteriaQuery = builder.createQuery(clazz);
+        Root<Entity> root = criteriaQuery.from(clazz);
+        List<javax.persistence.criteria.Predicate> predicates = new ArrayList<>();
+        if (model != null) {
+            // 将空白字符 或 undefined 设置为 null
+            BeanUtils.convertBlankToNull(model);
+            predicates.add(QueryByExamplePredicateBuilder.getPredicate(root, builder, Example.of(model, matcher)));
         }
-        // 执行查询后操作
-        return new QueryResult(pageResult.getContent(), pageResult.getTotalElements(), pageResult.getNumber() + 1, pageResult.getTotalPages());
+        if (keyset != null) {
+            predicates.add(getKeysetPredicate(builder, root, keyset));
+        }
+        predicates.removeIf(Objects::isNull);
+        criteriaQuery.select(root)
+                .where(predicates.toArray(new javax.persistence.criteria.Predicate[0]))
+                .orderBy(builder.desc(root.get("createTime")), builder.desc(root.get("id")));
+        // 多查一条判断是否有下一页
+        List<Entity> list = entityManager.createQuery(criteriaQuery).setMaxResults(size + 1).getResultList();
+        return getSeekResult(list, size);
+    }
+
+    /**
+     * 游标分页查询, 按 (createTime, id) 倒序
+     * @param cursor 上一页返回的游标, 为空时查询第一页
+     * @param size 每页行数
+     * @param predicate Query DSL查询条件
+     * @return 符合条件的实体列表及下一页游标
+     */
+    public QueryResult<Entity> seek(String cursor, int size, Predicate predicate) {
+        size = optimizeSize(size);
+        KeysetCursor keyset = KeysetCursor.decode(cursor);
+        EntityPath<Entity> path = SimpleEntityPathResolver.INSTANCE.createPath(getEntityClass());
+        PathBuilder<Entity> pathBuilder = new PathBuilder<>(path.getType(), path.getMetadata());
+        DateTimePath<Date> createTime = pathBuilder.getDateTime("createTime", Date.class);
+        StringPath id = pathBuilder.getString("id");
+        BooleanBuilder where = new BooleanBuilder(predicate);
+        if (keyset != null) {
+            if (keyset.getCreateTime() == null) {
+                // 已翻到 createTime 为空的历史数据
+                where.and(createTime.isNull().and(id.lt(keyset.getId())));
+            } else {
+                where.and(createTime.lt(keyset.getCreateTime())
+                        .or(createTime.eq(keyset.getCreateTime()).and(id.lt(keyset.getId())))
+                        .or(createTime.isNull()));
+            }
+        }
+        // 多查一条判断是否有下一页
+        List<Entity> list = jpaQueryFactory.selectFrom(path)
+                .where(where)
+                .orderBy(createTime.desc(), id.desc())
+                .limit(size + 1)
+                .fetch();
+        return getSeekResult(list, size);
     }
 
     /**
@@ -311,9 +633,8 @@ public abstract class BaseService<Entity extends BaseEntity> {
      * @throws JsonProcessingException JSON异常
      */
     public List<Entity> readDataFromJson(String json) throws JsonProcessingException {
-        List<Entity> list = objectMapper.readValue(json, new TypeReference<List<Entity>>() {
-        });
-        return list;
+        JavaType type = objectMapper.getTypeFactory().constructCollectionType(List.class, getEntityClass());
+        return objectMapper.readValue(json, type);
     }
 
     /**
@@ -335,10 +656,44 @@ public abstract class BaseService<Entity extends BaseEntity> {
      */
     public List<Entity> importDataFromJson(String json) throws JsonProcessingException {
         List<Entity> collection = readDataFromJson(json);
-        return saveAll(collection);
+        return saveAllInBatch(collection, jpaProperties.getBatch().getChunkSize());
     }
 
 
+    /**
+     * 从 json 输入流分批导入到数据库
+     * json 须为数组, 逐个元素绑定为实体, 每批次在独立事务中提交, 内存中最多只保留一个批次
+     * @param inputStream json 输入流
+     * @param chunkSize 每批次的实体数量
+     * @return 导入成功的实体数量
+     * @throws IOException JSON 解析异常
+     */
+    public long importDataFromJson(InputStream inputStream, int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            chunkSize = jpaProperties.getBatch().getChunkSize();
+        }
+        long count = 0;
+        ObjectReader reader = getEntityReader();
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "导入的 json 必须为数组");
+            }
+            List<Entity> chunk = new ArrayList<>(chunkSize);
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                chunk.add(reader.readValue(parser));
+                if (chunk.size() >= chunkSize) {
+                    count += saveAllInNewTransaction(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                count += saveAllInNewTransaction(chunk);
+            }
+        }
+        return count;
+    }
+
     /**
      * 从 Excel文件输入流导入到数据库
      * @param inputStream Excel文件
@@ -346,24 +701,39 @@ public abstract class BaseService<Entity extends BaseEntity> {
      */
     public List<Entity> importDataFromExcel(InputStream inputStream) {
         List<Entity> collection = readDataFromExcel(inputStream);
-        return saveAll(collection);
+        return saveAllInBatch(collection, jpaProperties.getBatch().getChunkSize());
+    }
+    /**
+     * 从 Excel文件输入流分批导入到数据库
+     * 边解析边保存, 每批次在独立事务中提交, 内存中最多只保留一个批次
+     * @param inputStream Excel文件
+     * @param chunkSize 每批次的实体数量
+     * @return 导入成功的实体数量
+     * @throws IOException 文件读取异常
+     */
+    public long importDataFromExcel(InputStream inputStream, int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            chunkSize = jpaProperties.getBatch().getChunkSize();
+        }
+        return ExcelUtils.readDataFromStream(inputStream, getEntityClass(), chunkSize, this::saveAllInNewTransaction);
     }
+
     /**
      * 从文件导入实体
      * @param file 上传的文件
-     * @return 导入成功的实体列表
+     * @return 导入成功的实体数量
      */
-    public List<Entity> importData(MultipartFile file) throws IOException {
-        List<Entity> list = null;
+    public long importData(MultipartFile file) throws IOException {
+        long count = 0;
         String originalFilename = file.getOriginalFilename();
         String extName = FileUtil.extName(originalFilename.toLowerCase());
         switch (extName) {
             case "json":
-                list = importDataFromJson(IoUtil.read(file.getInputStream(), Charset.defaultCharset()));
+                count = importDataFromJson(file.getInputStream(), jpaProperties.getBatch().getChunkSize());
                 break;
             case "xls":
             case "xlsx":
-                list = importDataFromExcel(file.getInputStream());
+                count = importDataFromExcel(file.getInputStream(), jpaProperties.getBatch().getChunkSize());
                 break;
             case "xml":
                 // TODO 导入xml
@@ -371,18 +741,24 @@ public abstract class BaseService<Entity extends BaseEntity> {
             default:
                 throw new RuntimeException("不支持的文件类型: " + extName);
         }
-        return list;
+        return count;
     }
 
     /**
      * 将在 ids 列表中的实体导出到 Excel 并写到HTTP响应
+     * ids 为空时导出所有实体, 分页读取并流式写入, 内存占用与数据量无关
      * @param ids 单据 Id 列表
      * @param response 响应
      */
     public void exportData(List<String> ids, HttpServletResponse response) throws IOException {
-        InputStream inputStream = exportDataToExcel(ids);
         String fileName = getEntityClass().getSimpleName() + System.currentTimeMillis() + ".xlsx";
-        //fileInfoService.downloadFile(fileName, inputStream, response);
+        response.setContentType(EXCEL_CONTENT_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + URLEncoder.encode(fileName, StandardCharsets.UTF_8.name()));
+        int rowAccessWindowSize = jpaProperties.getExport().getRowAccessWindowSize();
+        try (ExcelStreamWriter<Entity> writer = new ExcelStreamWriter<>(getEntityClass(), response.getOutputStream(), rowAccessWindowSize)) {
+            exportData(ids, writer);
+        }
     }
 
     /**
@@ -391,39 +767,168 @@ public abstract class BaseService<Entity extends BaseEntity> {
      * @return excel 文件输入流
      */
     public InputStream exportDataToExcel(List<String> ids) throws IOException {
-        List<Entity> list = CollectionUtils.isEmpty(ids) ? findAll() : findAllById(ids);
         Class<Entity> clazz = getEntityClass();
         String tempDir = getTempDir();
         Path path = Paths.get(tempDir, clazz.getSimpleName() + ".xlsx");
-        ExcelUtils.writeDataToFile(list, path.toFile());
+        Files.createDirectories(path.getParent());
+        int rowAccessWindowSize = jpaProperties.getExport().getRowAccessWindowSize();
+        try (OutputStream outputStream = Files.newOutputStream(path);
+             ExcelStreamWriter<Entity> writer = new ExcelStreamWriter<>(clazz, outputStream, rowAccessWindowSize)) {
+            exportData(ids, writer);
+        }
         InputStream inputStream = Files.newInputStream(path);
         FileUtil.del(tempDir);
         return inputStream;
     }
 
+    /**
+     * 分页读取在 ids 列表中的实体并写入 Excel, 每页读取后 clear EntityManager
+     * ids 为空时按 (createTime, id) 倒序读取所有实体, 以上一页最后一条数据为游标翻页, 每页耗时与已导出的行数无关
+     * @param ids 单据 Id 列表
+     * @param writer Excel 写入器
+     */
+    protected void exportData(List<String> ids, ExcelStreamWriter<Entity> writer) {
+        int pageSize = jpaProperties.getExport().getPageSize();
+        if (CollectionUtils.isEmpty(ids)) {
+            Class<Entity> clazz = getEntityClass();
+            CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Entity> criteriaQuery = builder.createQuery(clazz);
+            Root<Entity> root = criteriaQuery.from(clazz);
+            criteriaQuery.select(root).orderBy(builder.desc(root.get("createTime")), builder.desc(root.get("id")));
+            KeysetCursor keyset = null;
+            List<Entity> list;
+            do {
+                if (keyset != null) {
+                    criteriaQuery.where(getKeysetPredicate(builder, root, keyset));
+                }
+                list = entityManager.createQuery(criteriaQuery)
+                        .setHint(QueryHints.HINT_READONLY, true)
+                        .setMaxResults(pageSize)
+                        .getResultList();
+                writer.write(list);
+                if (!list.isEmpty()) {
+                    keyset = KeysetCursor.of(list.get(list.size() - 1));
+                }
+                entityManager.clear();
+            } while (list.size() == pageSize);
+        } else {
+            for (int from = 0; from < ids.size(); from += pageSize) {
+                List<String> subIds = ids.subList(from, Math.min(from + pageSize, ids.size()));
+                writer.write(baseRepository.findAllById(subIds));
+                entityManager.clear();
+            }
+        }
+    }
+
 
     /**
-     * 批量增删改查
+     * 批量增删改
+     * 在同一事务中依次执行删除、更新、新增, 每部分按 minimal.jpa.batch.chunk-size 分批
      * @param batch 批量操作的数据
-     * @return 操作结果
+     * @return 各部分的行数及耗时
      */
-    public Object batch(BatchModel<Entity> batch) {
-        if (batch.getDelete() != null) {
-            List<Entity> entities = baseRepository.findAllById(Arrays.asList(batch.getDelete()));
-            baseRepository.deleteInBatch(entities);
-            return "批量删除成功";
+    public BatchResult batch(BatchModel<Entity> batch) {
+        BatchResult result = new BatchResult();
+        int chunkSize = jpaProperties.getBatch().getChunkSize();
+        if (batch.getDelete() != null && batch.getDelete().length > 0) {
+            long start = System.nanoTime();
+            result.setDeleted(deleteAllByIdInBatch(Arrays.asList(batch.getDelete()), chunkSize));
+            result.setDeleteMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         }
-        if (batch.getUpdate() != null) {
-            for (Map.Entry<String, Entity> entry : batch.getUpdate().entrySet()) {
-                update(entry.getKey(), entry.getValue());
-            }
-            return "批量修改成功";
+        if (!CollectionUtils.isEmpty(batch.getUpdate())) {
+            long start = System.nanoTime();
+            result.setUpdated(updateAllInBatch(batch.getUpdate(), chunkSize));
+            result.setUpdateMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         }
-        if (batch.getCreate() != null) {
-            saveAll(Arrays.asList(batch.getCreate()));
-            return "批量修改成功";
+        if (batch.getCreate() != null && batch.getCreate().length > 0) {
+            long start = System.nanoTime();
+            result.setCreated(saveAll(Arrays.asList(batch.getCreate())).size());
+            result.setCreateMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         }
-        return null;
+        countCache.evict(getEntityClass());
+        log.debug("批量操作 {}: {}", getEntityClass().getSimpleName(), result);
+        return result;
+    }
+
+    /**
+     * 根据 id 分批删除实体
+     * 每批次执行一条 delete from table_name where id in (ids), 不加载实体
+     * 注意: 不会级联删除, 也不会触发实体回调
+     * @param ids id 列表
+     * @param chunkSize 每批次的 id 数量
+     * @return 删除的行数
+     */
+    public int deleteAllByIdInBatch(Collection<String> ids, int chunkSize) {
+        if (CollectionUtils.isEmpty(ids)) {
+            return 0;
+        }
+        if (chunkSize <= 0) {
+            chunkSize = jpaProperties.getBatch().getChunkSize();
+        }
+        // 先写入未提交的修改, 批量删除不经过持久化上下文
+        entityManager.flush();
+        String jpql = String.format("delete from %s e where e.id in :ids", getEntityName());
+        List<String> idList = new ArrayList<>(new LinkedHashSet<>(ids));
+        int count = 0;
+        for (int from = 0; from < idList.size(); from += chunkSize) {
+            List<String> subIds = idList.subList(from, Math.min(from + chunkSize, idList.size()));
+            count += entityManager.createQuery(jpql).setParameter("ids", subIds).executeUpdate();
+        }
+        // 持久化上下文中可能还有已删除的实体
+        entityManager.clear();
+        evictCache(idList);
+        return count;
+    }
+
+    /**
+     * 根据 id 分批更新实体
+     * 每批次用一条 in 查询加载实体, 复制非空属性后 flush, 配合 hibernate.jdbc.batch_size 以 JDBC 批量语句写入
+     * 切换 id 格式后读出的 id 与传入的 id 不同, 按雪花id 匹配更新的实体, 没有匹配的行跳过
+     * @param models id:更新的实体 Map
+     * @param chunkSize 每批次的实体数量
+     * @return 更新的行数
+     */
+    public int updateAllInBatch(Map<String, Entity> models, int chunkSize) {
+        if (CollectionUtils.isEmpty(models)) {
+            return 0;
+        }
+        if (chunkSize <= 0) {
+            chunkSize = jpaProperties.getBatch().getChunkSize();
+        }
+        List<String> ids = new ArrayList<>(models.keySet());
+        // 雪花id 与 更新的实体
+        Map<Long, Entity> snowflakeModels = new HashMap<>(models.size() * 2);
+        models.forEach((id, model) -> {
+            Long snowflakeId = getSnowflakeId(id);
+            if (snowflakeId != null) {
+                snowflakeModels.put(snowflakeId, model);
+            }
+        });
+        int count = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<String> subIds = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            for (Entity found : baseRepository.findAllById(subIds)) {
+                // 同一持久化上下文中已作为关联加载的实体是代理对象
+                Entity entity = unproxy(found);
+                Entity model = models.get(entity.getId());
+                if (model == null) {
+                    model = snowflakeModels.get(getSnowflakeId(entity.getId()));
+                }
+                if (model == null) {
+                    log.warn("{} {} 没有对应的更新数据, 跳过", getEntityClass().getSimpleName(), entity.getId());
+                    continue;
+                }
+                BeanUtils.copyNonEmptyProperties(model, entity);
+                if (!beforeSave(entity)) {
+                    throw new RuntimeException("保存失败");
+                }
+                count++;
+            }
+            entityManager.flush();
+            entityManager.clear();
+            evictCache(subIds);
+        }
+        return count;
     }
 
     /**
@@ -504,11 +1009,105 @@ public abstract class BaseService<Entity extends BaseEntity> {
      * @return 实体类型
      */
     protected Class<Entity> getEntityClass() {
-        Type type = TypeUtil.getTypeArgument(getClass());
-        if (type != null && type instanceof Class) {
-            return (Class<Entity>) type;
+        return TypeArgumentRegistry.getTypeArgument(getClass());
+    }
+
+    /**
+     * 在新事务中保存实体列表, 提交后即写入数据库, 不受外层事务影响
+     * @param entities 实体列表
+     * @return 保存成功的实体数量
+     */
+    protected int saveAllInNewTransaction(List<Entity> entities) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Integer count = transactionTemplate.execute(status -> saveAllInBatch(entities, jpaProperties.getBatch().getChunkSize()).size());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 保存一个批次的实体, 并 flush 和 clear EntityManager
+     * @param chunk 一个批次的实体
+     * @return 保存成功的实体
+     */
+    protected List<Entity> saveChunk(List<Entity> chunk) {
+        long start = System.nanoTime();
+        List<Entity> result = new ArrayList<>(chunk.size());
+        try {
+            for (Entity entity : chunk) {
+                if (!beforeSave(entity)) {
+                    throw new RuntimeException("保存失败");
+                }
+                if (entity.getVersion() == null) {
+                    // 新实体, 提前分配 id
+                    generateEntityIdListener.assignId(entity);
+                    entityManager.persist(entity);
+                    result.add(entity);
+                } else {
+                    result.add(entityManager.merge(entity));
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+        } finally {
+            generateEntityIdListener.clearAssigned(chunk);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (meterRegistry != null) {
+            Timer.builder("minimal.jpa.batch.chunk")
+                    .description("批量保存每批次耗时")
+                    .tag("entity", getEntityClass().getSimpleName())
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+        }
+        log.debug("批量保存 {} 条 {} 耗时 {} ms", chunk.size(), getEntityClass().getSimpleName(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return result;
+    }
+
+    /**
+     * 得到实体名称, 用于拼接 JPQL
+     * @return 实体名称
+     */
+    protected String getEntityName() {
+        return entityManager.getMetamodel().entity(getEntityClass()).getName();
+    }
+
+    /**
+     * 从实体缓存中移除指定 id 的实体
+     * 缓存名称与生成的 Service 中的 ENTITY_NAME 一致, 为实体类全路径
+     * @param ids id 列表
+     */
+    protected void evictCache(Collection<String> ids) {
+        if (cacheManager == null) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(getEntityClass().getName());
+        if (cache != null) {
+            ids.forEach(cache::evict);
+        }
+    }
+
+    /**
+     * 清空实体缓存, 批量更新影响的行无法逐个确定时使用
+     */
+    protected void clearCache() {
+        if (cacheManager == null) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(getEntityClass().getName());
+        if (cache != null) {
+            cache.clear();
         }
-        return null;
+    }
+
+    /**
+     * 得到实体类型的 JSON 读取器, 只创建一次
+     * @return 实体类型的 JSON 读取器
+     */
+    protected ObjectReader getEntityReader() {
+        if (entityReader == null) {
+            entityReader = objectMapper.readerFor(getEntityClass());
+        }
+        return entityReader;
     }
 
     /**
@@ -543,6 +1142,181 @@ public abstract class BaseService<Entity extends BaseEntity> {
         return true;
     }
 
+    /**
+     * 得到代理对象背后的实体, 字段复制须写入实体本身而不是代理对象
+     * @param entity 实体或 Hibernate 代理对象
+     * @return 实体
+     */
+    @SuppressWarnings("unchecked")
+    protected Entity unproxy(Entity entity) {
+        return (Entity) Hibernate.unproxy(entity);
+    }
+
+    /**
+     * 得到不精确统计总数的分页结果
+     * @param list 多查询一条的实体列表
+     * @param page 从 0 开始的页码
+     * @param size 每页行数
+     * @param countMode 总数统计方式
+     * @param filtered 是否有查询条件
+     * @param countKey 总数缓存的 key
+     * @param counter 精确统计总数
+     * @return 分页结果
+     */
+    <T> QueryResult<T> getQueryResult(List<T> list, int page, int size, CountMode countMode, boolean filtered, String countKey, LongSupplier counter) {
+        boolean hasNext = list.size() > size;
+        if (hasNext) {
+            list = new ArrayList<>(list.subList(0, size));
+        }
+        long total = QueryResult.UNKNOWN;
+        if (countMode == CountMode.ESTIMATED && !filtered) {
+            Long estimate = estimateCount();
+            if (estimate != null) {
+                // 统计信息可能小于已查到的行数
+                total = Math.max(estimate, (long) page * size + list.size() + (hasNext ? 1 : 0));
+            }
+        }
+        if (total == QueryResult.UNKNOWN && countMode != CountMode.NONE) {
+            total = countCache.get(countKey, counter);
+        }
+        long totalPage = total == QueryResult.UNKNOWN ? QueryResult.UNKNOWN : (total + size - 1) / size;
+        return new QueryResult<>(list, total, page + 1, totalPage, hasNext, null);
+    }
+
+    /**
+     * 校验并得到要查询的字段
+     * 只允许实体中映射为基本类型的单值字段
+     * @param fields 要查询的字段
+     * @return 去重后的字段, 第一个为 id
+     */
+    private List<String> getProjectionFields(String... fields) {
+        EntityType<Entity> entityType = entityManager.getMetamodel().entity(getEntityClass());
+        Set<String> selections = new LinkedHashSet<>();
+        selections.add("id");
+        if (fields != null) {
+            for (String field : fields) {
+                if (StrUtil.isBlank(field)) {
+                    continue;
+                }
+                field = field.trim();
+                SingularAttribute<? super Entity, ?> attribute;
+                try {
+                    attribute = entityType.getSingularAttribute(field);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("不支持查询的字段: " + field, e);
+                }
+                if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+                    throw new IllegalArgumentException("不支持查询的字段: " + field);
+                }
+                selections.add(field);
+            }
+        }
+        return new ArrayList<>(selections);
+    }
+
+    /**
+     * 使用数据库表统计信息估算总行数, 仅支持 MySQL
+     * @return 估算的总行数, 无法估算时返回 null
+     */
+    protected Long estimateCount() {
+        SessionFactoryImplementor sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        if (!(sessionFactory.getJdbcServices().getDialect() instanceof MySQLDialect)) {
+            return null;
+        }
+        EntityPersister persister = sessionFactory.getMetamodel().entityPersister(getEntityClass());
+        if (!(persister instanceof AbstractEntityPersister)) {
+            return null;
+        }
+        String tableName = ((AbstractEntityPersister) persister).getTableName().replace("`", "");
+        List<?> result = entityManager.createNativeQuery("SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?1")
+                .setParameter(1, tableName.substring(tableName.lastIndexOf('.') + 1))
+                .getResultList();
+        if (result.isEmpty() || result.get(0) == null) {
+            return null;
+        }
+        return ((Number) result.get(0)).longValue();
+    }
+
+    /**
+     * 判断 Example 查询条件是否为空, 空白字符串会先被设置为 null
+     * Spring MVC 绑定的查询条件不会为 null, 没有传任何参数时等同于查询所有
+     * @param model JPA Example 查询条件
+     * @return 是否没有查询条件
+     */
+    protected boolean isEmptyProbe(Entity model) {
+        if (model != null) {
+            BeanUtils.convertBlankToNull(model);
+        }
+        return getNormalizedProbe(model).isEmpty();
+    }
+
+    /**
+     * 得到规范化的 Example 查询条件, 作为总数缓存的 key
+     * 只包含参与查询的非空字段, 关联实体取 id, 字符串忽略大小写
+     * @param model JPA Example 查询条件
+     * @return 字段名排序的查询条件
+     */
+    private Map<String, Object> getNormalizedProbe(Entity model) {
+        Map<String, Object> probe = new TreeMap<>();
+        if (model == null) {
+            return probe;
+        }
+        for (BeanAccessor.Property property : BeanAccessor.of(model.getClass()).getProperties()) {
+            if (matcher.isIgnoredPath(property.getName())) {
+                continue;
+            }
+            Object value = property.get(model);
+            if (value instanceof BaseEntity) {
+                value = ((BaseEntity) value).getId();
+            } else if (value instanceof CharSequence) {
+                value = value.toString().toLowerCase();
+            } else if (value != null && !ClassUtil.isSimpleValueType(value.getClass())) {
+                // 集合等不参与 Example 查询
+                value = null;
+            }
+            if (value != null) {
+                probe.put(property.getName(), value);
+            }
+        }
+        return probe;
+    }
+
+    /**
+     * 得到游标之后的查询条件, 按 (createTime, id) 倒序
+     * createTime 为空的历史数据在倒序中排在最后(MySQL 规则), 游标没有 createTime 时只按 id 翻页
+     * @param builder CriteriaBuilder
+     * @param root 查询的实体
+     * @param keyset 游标
+     * @return 游标之后的数据的查询条件
+     */
+    private javax.persistence.criteria.Predicate getKeysetPredicate(CriteriaBuilder builder, Root<Entity> root, KeysetCursor keyset) {
+        javax.persistence.criteria.Path<Date> createTime = root.get("createTime");
+        javax.persistence.criteria.Path<String> id = root.get("id");
+        if (keyset.getCreateTime() == null) {
+            // 已翻到 createTime 为空的历史数据
+            return builder.and(builder.isNull(createTime), builder.lessThan(id, keyset.getId()));
+        }
+        return builder.or(
+                builder.lessThan(createTime, keyset.getCreateTime()),
+                builder.and(builder.equal(createTime, keyset.getCreateTime()), builder.lessThan(id, keyset.getId())),
+                builder.isNull(createTime));
+    }
+
+    /**
+     * 得到游标分页结果
+     * @param list 多查询一条的实体列表
+     * @param size 每页行数
+     * @return 游标分页结果
+     */
+    private QueryResult<Entity> getSeekResult(List<Entity> list, int size) {
+        if (list.size() <= size) {
+            return QueryResult.ofCursor(list, null);
+        }
+        list = new ArrayList<>(list.subList(0, size));
+        String next = KeysetCursor.of(list.get(size - 1)).encode();
+        return QueryResult.ofCursor(list, next);
+    }
+
     /**
      * 得到JPA分页对象
      * @param page 第几页
@@ -583,6 +1357,19 @@ public abstract class BaseService<Entity extends BaseEntity> {
         return page;
     }
 
+    /**
+     * 解码 id 中的雪花id
+     * @param id 实体 id
+     * @return 雪花id, 不合法时返回 null
+     */
+    private static Long getSnowflakeId(String id) {
+        try {
+            return JpaIdUtil.getSnowflakeId(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     /**
      * 排序条件增加按时间降序
      * @param sort 原排序条件
@@ -1,16 +1,19 @@
 package com.lzpeng.minimal.common.jpa.service;
 
+import cn.hutool.core.collection.ListUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.core.util.TypeUtil;
 import com.lzpeng.minimal.common.core.response.QueryResult;
 import com.lzpeng.minimal.common.jpa.domain.entity.LeftTreeRightTableEntity;
 import com.lzpeng.minimal.common.jpa.domain.entity.TreeEntity;
+import com.lzpeng.minimal.common.jpa.domain.enums.CountMode;
 import com.lzpeng.minimal.common.jpa.repository.LeftTreeRightTableRepository;
-import lombok.SneakyThrows;
+import com.lzpeng.minimal.common.jpa.support.TypeArgumentRegistry;
+import org.springframework.util.Assert;
 
 import javax.transaction.Transactional;
-import java.lang.reflect.Type;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 左树右表Service
@@ -43,6 +46,54 @@ public class LeftTreeRightTableService<Tree extends TreeEntity<Tree>, Entity ext
         return super.save(entity);
     }
 
+    /**
+     * 分批保存实体列表
+     * 一次查询出所有左树节点, 避免逐条查询
+     * @param entities 实体列表
+     * @param chunkSize 每批次的实体数量
+     * @return 保存成功的实体列表
+     */
+    @Override
+    public List<Entity> saveAllInBatch(Iterable<Entity> entities, int chunkSize) {
+        Assert.notNull(entities, "Entities must not be null!");
+        List<Entity> list = ListUtil.toList(entities);
+        setTrees(list);
+        return super.saveAllInBatch(list, chunkSize);
+    }
+
+    /**
+     * 根据 id 分批更新实体
+     * 一次查询出所有左树节点, 与 {@link #save(LeftTreeRightTableEntity)} 一样由 treeId 设置左树节点
+     * @param models id:更新的实体 Map
+     * @param chunkSize 每批次的实体数量
+     * @return 更新的行数
+     */
+    @Override
+    public int updateAllInBatch(Map<String, Entity> models, int chunkSize) {
+        if (models != null) {
+            setTrees(models.values());
+        }
+        return super.updateAllInBatch(models, chunkSize);
+    }
+
+    /**
+     * 一次查询出实体 treeId 对应的左树节点并设置, 避免逐条查询
+     * @param entities 实体列表
+     */
+    protected void setTrees(Collection<Entity> entities) {
+        Set<String> treeIds = entities.stream().map(Entity::getTreeId).filter(Objects::nonNull).collect(Collectors.toSet());
+        if (treeIds.isEmpty()) {
+            return;
+        }
+        Map<String, Tree> trees = treeService.findAllById(treeIds).stream()
+                .collect(Collectors.toMap(Tree::getId, Function.identity()));
+        for (Entity entity : entities) {
+            if (entity.getTreeId() != null) {
+                entity.setTree(trees.get(entity.getTreeId()));
+            }
+        }
+    }
+
     /**
      * 获得左树数据
      * @return 左树数据
@@ -51,22 +102,67 @@ public class LeftTreeRightTableService<Tree extends TreeEntity<Tree>, Entity ext
         return treeService.treeData();
     }
 
+    /**
+     * 按层懒加载左树, 查询父节点的直接子节点
+     * @param parentId 父节点 id, 为空时查询根节点
+     * @return 子节点, 带 hasChildren 和 childCount
+     */
+    public List<Tree> leftTreeChildren(String parentId){
+        return treeService.children(parentId);
+    }
+
     /**
      * 根据查询条件和分页条件查询实体
      * @param page 页码
      * @param size 每页行数
      * @param model JPA Example 查询条件
+     * @param countMode 总数统计方式
      * @return 符合条件的实体列表
      */
     @Override
-    @SneakyThrows
-    public QueryResult<Entity> query(int page, int size, Entity model) {
+    public QueryResult<Entity> query(int page, int size, Entity model, CountMode countMode) {
+        setTreeOfModel(model);
+        return super.query(page, size, model, countMode);
+    }
+
+    /**
+     * 根据查询条件和分页条件查询实体的部分字段
+     * @param page 页码
+     * @param size 每页行数
+     * @param model JPA Example 查询条件
+     * @param countMode 总数统计方式
+     * @param fields 要查询的字段
+     * @return 字段名与值的 Map 列表
+     */
+    @Override
+    public QueryResult<Map<String, Object>> queryFields(int page, int size, Entity model, CountMode countMode, String... fields) {
+        setTreeOfModel(model);
+        return super.queryFields(page, size, model, countMode, fields);
+    }
+
+    /**
+     * 游标分页查询
+     * @param cursor 上一页返回的游标, 为空时查询第一页
+     * @param size 每页行数
+     * @param model JPA Example 查询条件
+     * @return 符合条件的实体列表及下一页游标
+     */
+    @Override
+    public QueryResult<Entity> seek(String cursor, int size, Entity model) {
+        setTreeOfModel(model);
+        return super.seek(cursor, size, model);
+    }
+
+    /**
+     * 根据查询条件中的 treeId 设置左树节点, 使其作为查询条件
+     * @param model JPA Example 查询条件
+     */
+    protected void setTreeOfModel(Entity model) {
         if (model != null && StrUtil.isNotEmpty(model.getTreeId())){
-            Tree tree = getLeftTreeClass().getDeclaredConstructor().newInstance();
+            Tree tree = TypeArgumentRegistry.newInstance(getLeftTreeClass());
             tree.setId(model.getTreeId());
             model.setTree(tree);
         }
-        return super.query(page, size, model);
     }
 
 
@@ -75,11 +171,7 @@ public class LeftTreeRightTableService<Tree extends TreeEntity<Tree>, Entity ext
      * @return 左树实体类型
      */
     protected Class<Tree> getLeftTreeClass(){
-        Type type = TypeUtil.getTypeArgument(getClass());
-        if (type != null && type instanceof Class) {
-            return (Class<Tree>) type;
-        }
-        return null;
+        return TypeArgumentRegistry.getTypeArgument(getClass());
     }
 
     /**
@@ -87,11 +179,7 @@ public class LeftTreeRightTableService<Tree extends TreeEntity<Tree>, Entity ext
      * @return 右表实体类型
      */
     protected Class<Entity> getRightTableClass(){
-        Type type = TypeUtil.getTypeArgument(getClass(), 1);
-        if (type != null && type instanceof Class) {
-            return (Class<Entity>) type;
-        }
-        return null;
+        return TypeArgumentRegistry.getTypeArgument(getClass(), 1);
     }
 
     @Override
@@ -3,20 +3,42 @@ package com.lzpeng.minimal.common.jpa.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lzpeng.minimal.common.core.response.QueryResult;
 import com.lzpeng.minimal.common.jpa.domain.entity.TreeEntity;
+import com.lzpeng.minimal.common.jpa.domain.enums.CountMode;
+import com.lzpeng.minimal.common.jpa.hibernate.EncodedIdType;
 import com.lzpeng.minimal.common.jpa.repository.TreeRepository;
+import com.lzpeng.minimal.common.jpa.support.GenerateEntityIdListener;
 import com.lzpeng.minimal.common.jpa.util.TreeEntityUtil;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.PluralAttribute;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 /**
  * 树形结构Service
  * @author: Lzpeng
  */
+@Slf4j
 public class TreeService<Entity extends TreeEntity<Entity>> extends BaseService<Entity> {
 
 
@@ -28,22 +50,45 @@ public class TreeService<Entity extends TreeEntity<Entity>> extends BaseService<
      */
     protected TreeRepository<Entity> treeRepository;
 
+    /**
+     * 树形结构版本号, 每次修改树时递增
+     */
+    private final AtomicLong treeVersion = new AtomicLong();
+
+    /**
+     * 构建快照时的锁
+     */
+    private final Object snapshotMonitor = new Object();
+
+    /**
+     * 树形结构快照
+     */
+    private volatile TreeSnapshot<Entity> snapshot;
+
+    /**
+     * 清理引用本实体的多对多中间表的 SQL, 首次删除子树时解析
+     */
+    private volatile List<String> joinTableDeletes;
+
     /**
      * 保存 遍历子节点 保存所有
      * 如果有父节点 将此对象加入父节点的孩子节点，并保存父节点
+     * 同时维护每个节点的祖先路径, 节点移动时更新其子孙节点的祖先路径
+     * 节点数超过 minimal.jpa.batch.chunk-size 时分批写入, 之前批次的节点会变为游离状态
      * @param entity 要保存的实体
      * @return 保存后的结果
      */
     @Override
     public Entity save(Entity entity) {
+        invalidateTreeSnapshot();
         // 如果传了父节点id，则从数据库查询节点，级联保存
         if (entity.getParentId() != null) {
             Entity parent = findById(entity.getParentId());
             entity.setParent(parent);
         }
-        // 队列，先进先出保存子节点
-        Collection<Entity> entities = new HashSet<>();
-        Queue<Entity> queue = new ConcurrentLinkedQueue<>();
+        // 队列，先进先出保存子节点, 父节点总在子节点之前
+        List<Entity> entities = new ArrayList<>();
+        Queue<Entity> queue = new ArrayDeque<>();
         // 入队
         queue.offer(entity);
         while (!queue.isEmpty()) {
@@ -58,14 +103,111 @@ public class TreeService<Entity extends TreeEntity<Entity>> extends BaseService<
             parent.getChildren().clear();
             entities.add(parent);
         }
-        // 不能调 super.saveAll 会无限递归
-        if (beforeSaveAll(entities)) {
-            List<Entity> result = treeRepository.saveAll(entities);
-            return result.get(0);
+        try {
+            Map<String, String> movedPaths = assignTreePath(entities);
+            // 不能调 super.saveAll 会无限递归
+            if (beforeSaveAll(entities)) {
+                Entity result = saveLevelOrdered(entities, jpaProperties.getBatch().getChunkSize());
+                movedPaths.forEach(treeRepository::replaceTreePathPrefix);
+                return result;
+            }
+        } finally {
+            generateEntityIdListener.clearAssigned(entities);
         }
         return null;
     }
 
+    /**
+     * 分批保存树形结构实体
+     * 每棵子树由 {@link #save(TreeEntity)} 按层序展开, 父节点在子节点之前, 以 JDBC 批量语句写入,
+     * 子树内每 minimal.jpa.batch.chunk-size 个节点 flush 一次
+     * 每保存 chunkSize 棵子树(按传入的根节点计数, 不是节点数)后再 flush 并 clear EntityManager
+     * @param entities 实体列表
+     * @param chunkSize 每批次的实体数量
+     * @return 保存成功的实体列表
+     */
+    @Override
+    public List<Entity> saveAllInBatch(Iterable<Entity> entities, int chunkSize) {
+        Assert.notNull(entities, "Entities must not be null!");
+        if (chunkSize <= 0) {
+            chunkSize = jpaProperties.getBatch().getChunkSize();
+        }
+        List<Entity> result = new ArrayList<>();
+        for (Entity entity : entities) {
+            result.add(save(entity));
+            if (result.size() % chunkSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * 根据 id 删除节点及其所有子孙节点
+     * @param id 节点 id
+     * @see #deleteSubtree(String)
+     */
+    @Override
+    public void delete(String id) {
+        deleteSubtree(id);
+    }
+
+    /**
+     * 删除所有节点
+     */
+    @Override
+    public void deleteAll() {
+        invalidateTreeSnapshot();
+        super.deleteAll();
+    }
+
+    /**
+     * 根据 id 分批删除节点及其所有子孙节点
+     * 直接按 id 删除会留下孤儿子节点和中间表记录, 因此与 {@link #deleteSubtree(String)} 一样按子树删除
+     * @param ids id 列表
+     * @param chunkSize 每批次的 id 数量
+     * @return 删除的节点数量
+     */
+    @Override
+    public int deleteAllByIdInBatch(Collection<String> ids, int chunkSize) {
+        return deleteSubtrees(ids, chunkSize);
+    }
+
+    /**
+     * 根据 id 分批更新节点
+     * @param models id:更新的节点 Map
+     * @param chunkSize 每批次的节点数量
+     * @return 更新的行数
+     */
+    @Override
+    public int updateAllInBatch(Map<String, Entity> models, int chunkSize) {
+        invalidateTreeSnapshot();
+        return super.updateAllInBatch(models, chunkSize);
+    }
+
+    /**
+     * 根据 id 启用节点
+     * @param id 待启用的节点 id
+     * @return 启用成功的行数
+     */
+    @Override
+    public int enabled(String id) {
+        invalidateTreeSnapshot();
+        return super.enabled(id);
+    }
+
+    /**
+     * 根据 id 禁用节点
+     * @param id 待禁用的节点 id
+     * @return 禁用成功的行数
+     */
+    @Override
+    public int disabled(String id) {
+        invalidateTreeSnapshot();
+        return super.disabled(id);
+    }
 
     /**
      * 根据查询条件查询实体
@@ -75,6 +217,7 @@ public class TreeService<Entity extends TreeEntity<Entity>> extends BaseService<
     @Override
     public List<Entity> findAll(Entity model) {
         List<Entity> entities = super.findAll(model);
+        prefetchAncestors(entities);
         // 将其父节点以及祖先节点加入返回结果中
         return TreeEntityUtil.flatData(entities);
     }
@@ -85,43 +228,770 @@ public class TreeService<Entity extends TreeEntity<Entity>> extends BaseService<
      * @param page 页码
      * @param size 每页行数
      * @param model JPA Example 查询条件
+     * @param countMode 总数统计方式
      * @return 符合条件的实体列表
      */
     @Override
-    public QueryResult<Entity> query(int page, int size, Entity model) {
-        QueryResult<Entity> query = super.query(page, size, model);
+    public QueryResult<Entity> query(int page, int size, Entity model, CountMode countMode) {
+        QueryResult<Entity> query = super.query(page, size, model, countMode);
         List<Entity> entities = query.getList();
-        List<Entity> result = TreeEntityUtil.flatData(entities);
-        return new QueryResult<>(result, query.getTotal(), query.getPage(), query.getTotalPage());
+        prefetchAncestors(entities);
+        // 将其父节点以及祖先节点加入返回结果中
+        query.setList(TreeEntityUtil.flatData(entities));
+        return query;
     }
 
     /**
      * 根据查询条件查询树形结构实体
+     * 没有查询条件时使用快照, 见 {@link #treeData()}
      * @param model 查询条件
      * @return 符合条件的实体
      */
     public List<Entity> treeData(Entity model) {
-        if (model == null) {
+        if (isEmptyProbe(model)) {
             return treeData();
         }
         List<Entity> entities = super.findAll(model);
+        prefetchAncestors(entities);
         return TreeEntityUtil.treeData(entities);
     }
 
     /**
      * 查询所有树形结构实体
-     * @return 返回树形结构的实体
+     * 从内存中已排序的快照复制, 树被修改后的第一次调用重新构建快照
+     * 距上次校验超过 minimal.jpa.tree.snapshot-check-interval 时, 先查询表的指纹确认快照未过期, 其他实例的修改也能生效
+     * 当前事务修改过树时, 直接查询数据库, 不使用也不更新快照
+     * @return 返回树形结构的实体, 调用方可以修改
      */
     public List<Entity> treeData() {
-        List<Entity> entities = treeRepository.findByParentNullOrderByOrderNum();
-        // 排序 设置父id
-        TreeEntityUtil.sortTreeData(entities);
-        // 查询后操作
-        // afterFindAll(entities);
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return loadTreeData();
+        }
+        TreeSnapshot<Entity> current = snapshot;
+        if (current != null && current.version == treeVersion.get() && isSnapshotUnchanged(current)) {
+            recordSnapshot("hit");
+            return TreeEntityUtil.copyTree(current.roots);
+        }
+        synchronized (snapshotMonitor) {
+            long version = treeVersion.get();
+            TreeSnapshot<Entity> latest = snapshot;
+            if (latest != null && latest != current && latest.version == version) {
+                // 等待锁期间已由其他线程重建
+                recordSnapshot("hit");
+                return TreeEntityUtil.copyTree(latest.roots);
+            }
+            recordSnapshot("miss");
+            long start = System.nanoTime();
+            // 在新的只读事务中查询, 快照中的节点与当前持久化上下文无关
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            transactionTemplate.setReadOnly(true);
+            TreeSnapshot<Entity> rebuilt = transactionTemplate.execute(status -> {
+                // 先取指纹, 之后的修改会在下次校验时发现
+                List<Object> fingerprint = loadFingerprint();
+                return new TreeSnapshot<>(version, fingerprint, freeze(loadTreeData()));
+            });
+            snapshot = rebuilt;
+            long elapsed = System.nanoTime() - start;
+            if (meterRegistry != null) {
+                Timer.builder("minimal.jpa.tree.snapshot.rebuild")
+                        .description("树形结构快照构建耗时")
+                        .tag("entity", getEntityClass().getSimpleName())
+                        .register(meterRegistry)
+                        .record(elapsed, TimeUnit.NANOSECONDS);
+            }
+            log.debug("构建 {} 树形结构快照耗时 {} ms", getEntityClass().getSimpleName(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+            return TreeEntityUtil.copyTree(rebuilt.roots);
+        }
+    }
+
+    /**
+     * 使树形结构快照失效
+     * 在事务中调用时, 事务结束后再次使其失效, 避免事务提交前构建的快照读到旧数据
+     */
+    public void invalidateTreeSnapshot() {
+        treeVersion.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive() && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TreeService.this);
+                    treeVersion.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * 移动节点到新的父节点下
+     * 使用 update 语句更新节点的父节点和顺序号, 以及整棵子树的祖先路径, 不加载子树
+     * @param id 节点 id
+     * @param parentId 新的父节点 id, 为空时移动为根节点
+     * @param position 在新的同级节点中的位置, 从 0 开始, 为空或超出时放在最后
+     */
+    public void move(String id, String parentId, Integer position) {
+        invalidateTreeSnapshot();
+        Entity node = treeRepository.findById(id).orElseThrow(() -> new IllegalArgumentException("节点不存在: " + id));
+        String oldPath = getTreePath(node);
+        String parentPath = null;
+        if (parentId != null) {
+            Entity parent = treeRepository.findById(parentId).orElseThrow(() -> new IllegalArgumentException("父节点不存在: " + parentId));
+            parentPath = getTreePath(parent);
+            if (parentPath.startsWith(oldPath)) {
+                throw new IllegalArgumentException("不能将节点移动到其自身或子节点下");
+            }
+        }
+        String newPath = TreeEntityUtil.buildTreePath(parentPath, id);
+        String entityName = getEntityName();
+        String siblingCondition = parentId == null ? "t.parent is null" : "t.parent.id = :parentId";
+        // 计算目标位置的顺序号, 并将其后的同级节点后移
+        TypedQuery<Integer> siblingQuery = entityManager.createQuery(
+                String.format("select t.orderNum from %s t where %s and t.id <> :id order by t.orderNum", entityName, siblingCondition), Integer.class)
+                .setParameter("id", id);
+        List<Integer> siblingOrderNums = setParentId(siblingQuery, parentId).getResultList();
+        int orderNum;
+        if (position == null || position >= siblingOrderNums.size()) {
+            orderNum = siblingOrderNums.isEmpty() ? 0 : siblingOrderNums.get(siblingOrderNums.size() - 1) + 1;
+        } else {
+            orderNum = siblingOrderNums.get(Math.max(position, 0));
+            Query shift = entityManager.createQuery(
+                    String.format("update %s t set t.orderNum = t.orderNum + 1 where %s and t.id <> :id and t.orderNum >= :orderNum", entityName, siblingCondition))
+                    .setParameter("id", id)
+                    .setParameter("orderNum", orderNum);
+            setParentId(shift, parentId).executeUpdate();
+        }
+        // 更新节点的父节点和顺序号
+        String parentAssignment = parentId == null ? "t.parent = null" : "t.parent = :parent";
+        Query update = entityManager.createQuery(
+                String.format("update %s t set %s, t.orderNum = :orderNum, t.treePath = :treePath, t.version = t.version + 1 where t.id = :id", entityName, parentAssignment))
+                .setParameter("id", id)
+                .setParameter("orderNum", orderNum)
+                .setParameter("treePath", newPath);
+        if (parentId != null) {
+            update.setParameter("parent", entityManager.getReference(getEntityClass(), parentId));
+        }
+        update.executeUpdate();
+        // 更新子孙节点的祖先路径
+        treeRepository.replaceTreePathPrefix(oldPath, newPath);
+        entityManager.clear();
+        clearCache();
+    }
+
+    /**
+     * 按给定顺序重排同一父节点下的子节点
+     * 一条 update 语句设置所有子节点的顺序号
+     * @param parentId 父节点 id, 为空时重排根节点
+     * @param ids 排好序的子节点 id
+     * @return 更新的行数
+     */
+    public int reorder(String parentId, List<String> ids) {
+        if (CollectionUtils.isEmpty(ids)) {
+            return 0;
+        }
+        if (new HashSet<>(ids).size() != ids.size()) {
+            throw new IllegalArgumentException("子节点 id 不能重复");
+        }
+        invalidateTreeSnapshot();
+        StringBuilder jpql = new StringBuilder("update ").append(getEntityName()).append(" t set t.orderNum = case");
+        // 比较表达式中的参数按 t.id 的类型绑定
+        for (int i = 0; i < ids.size(); i++) {
+            jpql.append(" when t.id = :id").append(i).append(" then ").append(i);
+        }
+        jpql.append(" else t.orderNum end, t.version = t.version + 1 where t.id in :ids and ")
+                .append(parentId == null ? "t.parent is null" : "t.parent.id = :parentId");
+        Query query = entityManager.createQuery(jpql.toString()).setParameter("ids", ids);
+        for (int i = 0; i < ids.size(); i++) {
+            query.setParameter("id" + i, ids.get(i));
+        }
+        int count = setParentId(query, parentId).executeUpdate();
+        if (count != ids.size()) {
+            throw new IllegalArgumentException("存在不属于该父节点的子节点");
+        }
+        entityManager.clear();
+        evictCache(ids);
+        return count;
+    }
+
+    /**
+     * 根据 id 删除节点及其所有子孙节点, 不加载实体
+     * @param id 节点 id
+     * @return 删除的节点数量
+     * @see #deleteSubtrees(Collection, int)
+     */
+    public int deleteSubtree(String id) {
+        return deleteSubtrees(Collections.singletonList(id), jpaProperties.getBatch().getChunkSize());
+    }
+
+    /**
+     * 根据 id 删除多个节点及其所有子孙节点, 不加载实体
+     * 每个最外层节点一次 tree_path like 查询得到子树的 id, 先批量清理引用这些节点的多对多中间表(如 role_menu),
+     * 再按深度由深到浅逐层执行 delete from table_name where id in (ids)
+     * 注意: 不会触发实体回调, 也不会处理其他实体的多对一引用
+     * @param ids 节点 id, 可以互为祖先
+     * @param chunkSize 每批次的 id 数量
+     * @return 删除的节点数量
+     */
+    public int deleteSubtrees(Collection<String> ids, int chunkSize) {
+        if (CollectionUtils.isEmpty(ids)) {
+            return 0;
+        }
+        if (chunkSize <= 0) {
+            chunkSize = jpaProperties.getBatch().getChunkSize();
+        }
+        invalidateTreeSnapshot();
+        // 先写入未提交的修改, 批量删除不经过持久化上下文
+        entityManager.flush();
+        List<String> rootIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<String> rootPaths = findTreePaths(rootIds, chunkSize);
+        if (rootPaths.contains(null)) {
+            // 历史数据还没有祖先路径, 先补全
+            rebuildTreePath();
+            rootPaths = findTreePaths(rootIds, chunkSize);
+        }
+        String entityName = getEntityName();
+        TypedQuery<Object[]> subtreeQuery = entityManager.createQuery(
+                String.format("select t.id, t.treePath from %s t where t.treePath like :prefix escape '!'", entityName), Object[].class);
+        // 深度 与 该层节点 id, 由深到浅
+        Map<Integer, List<String>> levels = new TreeMap<>(Comparator.reverseOrder());
+        List<String> subtreeIds = new ArrayList<>();
+        for (String rootPath : getOutermostPaths(rootPaths)) {
+            for (Object[] row : subtreeQuery.setParameter("prefix", TreeEntityUtil.escapeLike(rootPath) + "%").getResultList()) {
+                String nodeId = (String) row[0];
+                int depth = StringUtils.countOccurrencesOf((String) row[1], TreeEntity.PATH_SEPARATOR);
+                levels.computeIfAbsent(depth, key -> new ArrayList<>()).add(nodeId);
+                subtreeIds.add(nodeId);
+            }
+        }
+        if (subtreeIds.isEmpty()) {
+            return 0;
+        }
+        // 原生 SQL 的参数不经过 id 类型转换
+        List<Object> jdbcIds = subtreeIds.stream().map(EncodedIdType::toJdbcValue).collect(Collectors.toList());
+        for (String sql : getJoinTableDeletes()) {
+            executeInChunks(entityManager.createNativeQuery(sql), jdbcIds, chunkSize);
+        }
+        Query delete = entityManager.createQuery(String.format("delete from %s t where t.id in :ids", entityName));
+        int count = 0;
+        for (List<String> level : levels.values()) {
+            count += executeInChunks(delete, level, chunkSize);
+        }
+        // 持久化上下文中可能还有已删除的实体
+        entityManager.clear();
+        evictCache(subtreeIds);
+        countCache.evict(getEntityClass());
+        log.debug("删除 {} 的 {} 棵子树: {} 个节点", getEntityClass().getSimpleName(), rootPaths.size(), count);
+        return count;
+    }
+
+    /**
+     * 按层懒加载, 查询父节点的直接子节点
+     * 每个节点的子节点数量由一条分组查询统计, 不初始化 children 集合
+     * @param parentId 父节点 id, 为空时查询根节点
+     * @return 按顺序号排列的子节点, 带 hasChildren 和 childCount
+     */
+    public List<Entity> children(String parentId) {
+        List<Entity> entities = parentId == null ? treeRepository.findByParentNullOrderByOrderNum() : treeRepository.findChildren(parentId);
+        if (entities.isEmpty()) {
+            return entities;
+        }
+        List<String> ids = entities.stream().map(Entity::getId).collect(Collectors.toList());
+        Map<String, Long> childCounts = new HashMap<>(ids.size() * 2);
+        int chunkSize = jpaProperties.getBatch().getChunkSize();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            for (Object[] row : treeRepository.countChildren(ids.subList(from, Math.min(from + chunkSize, ids.size())))) {
+                childCounts.put((String) row[0], (Long) row[1]);
+            }
+        }
+        for (Entity entity : entities) {
+            long childCount = childCounts.getOrDefault(entity.getId(), 0L);
+            // 替换而不是 clear, 避免初始化懒加载的子节点集合
+            entity.setChildren(new ArrayList<>());
+            entity.setParentId(parentId);
+            entity.setChildCount(childCount);
+            entity.setHasChildren(childCount > 0);
+        }
         return entities;
     }
 
+    /**
+     * 查询节点及其所有子孙节点, 一次 tree_path like 查询
+     * @param id 节点 id
+     * @return 节点及其所有子孙节点
+     */
+    public List<Entity> findSubtree(String id) {
+        return treeRepository.findSubtree(id);
+    }
+
+    /**
+     * 查询节点的所有祖先节点, 一次 in 查询
+     * @param id 节点 id
+     * @return 所有祖先节点, 不包含节点本身
+     */
+    public List<Entity> findAncestors(String id) {
+        return treeRepository.findAncestors(id);
+    }
+
+    /**
+     * 应用启动后补全没有祖先路径的历史数据
+     * BIGINT 存储方式下切换 minimal.jpa.id.format 后, 读出的 id 与祖先路径中的 id 格式不同, 同样重建祖先路径
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillTreePath() {
+        if (treeRepository.countByTreePathNull() > 0 || isTreePathStale()) {
+            int count = rebuildTreePath();
+            log.info("补全 {} 个 {} 节点的祖先路径", count, getEntityClass().getSimpleName());
+        }
+    }
+
+    /**
+     * 抽查一个节点, 判断祖先路径中的 id 是否与当前读出的 id 一致
+     * @return 祖先路径是否需要重建
+     */
+    public boolean isTreePathStale() {
+        List<Object[]> rows = entityManager.createQuery(
+                String.format("select t.id, t.treePath from %s t where t.treePath is not null", getEntityName()), Object[].class)
+                .setMaxResults(1)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return false;
+        }
+        String id = (String) rows.get(0)[0];
+        String treePath = (String) rows.get(0)[1];
+        return !treePath.endsWith(TreeEntity.PATH_SEPARATOR + id + TreeEntity.PATH_SEPARATOR);
+    }
+
+    /**
+     * 根据 parent_id 重新计算所有节点的祖先路径
+     * @return 祖先路径有变化的节点数量
+     */
+    public int rebuildTreePath() {
+        invalidateTreeSnapshot();
+        List<Entity> entities = treeRepository.findAll();
+        Map<String, String> parentIds = new HashMap<>(entities.size() * 2);
+        for (Entity entity : entities) {
+            parentIds.put(entity.getId(), getParentId(entity));
+        }
+        Map<String, String> treePaths = new HashMap<>(entities.size() * 2);
+        int count = 0;
+        for (Entity entity : entities) {
+            String treePath = resolveTreePath(entity.getId(), parentIds, treePaths);
+            if (!treePath.equals(entity.getTreePath())) {
+                entity.setTreePath(treePath);
+                count++;
+            }
+        }
+        entityManager.flush();
+        return count;
+    }
+
+    /**
+     * 预先加载节点的所有祖先节点, 之后沿 getParent() 向上查找时不再逐个懒加载
+     * 有祖先路径的节点, 所有祖先一次 in 查询; 没有祖先路径的历史数据, 每层一次 in 查询
+     * @param entities 查询到的节点
+     */
+    protected void prefetchAncestors(Collection<Entity> entities) {
+        if (CollectionUtils.isEmpty(entities)) {
+            return;
+        }
+        Set<String> loadedIds = new HashSet<>(entities.size() * 2);
+        for (Entity entity : entities) {
+            loadedIds.add(entity.getId());
+        }
+        Set<String> ancestorIds = new LinkedHashSet<>();
+        for (Entity entity : entities) {
+            for (String ancestorId : TreeEntityUtil.getAncestorIds(entity.getTreePath())) {
+                if (!loadedIds.contains(ancestorId)) {
+                    ancestorIds.add(ancestorId);
+                }
+            }
+        }
+        List<Entity> level = new ArrayList<>(entities);
+        level.addAll(loadByIds(ancestorIds, loadedIds));
+        while (!level.isEmpty()) {
+            Set<String> parentIds = new LinkedHashSet<>();
+            for (Entity entity : level) {
+                String parentId = getParentId(entity);
+                if (parentId != null && !loadedIds.contains(parentId)) {
+                    parentIds.add(parentId);
+                }
+            }
+            level = loadByIds(parentIds, loadedIds);
+        }
+    }
+
+    /**
+     * 分批 in 查询节点, 并记录为已加载
+     * @param ids 节点 id
+     * @param loadedIds 已加载的节点 id
+     * @return 查询到的节点
+     */
+    private List<Entity> loadByIds(Collection<String> ids, Set<String> loadedIds) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> idList = new ArrayList<>(ids);
+        int chunkSize = jpaProperties.getBatch().getChunkSize();
+        List<Entity> result = new ArrayList<>(idList.size());
+        for (int from = 0; from < idList.size(); from += chunkSize) {
+            result.addAll(treeRepository.findAllById(idList.subList(from, Math.min(from + chunkSize, idList.size()))));
+        }
+        loadedIds.addAll(idList);
+        return result;
+    }
+
+    /**
+     * 得到父节点 id, 父节点为代理对象时不会触发加载
+     * @param entity 节点
+     * @return 父节点 id
+     */
+    private String getParentId(Entity entity) {
+        Entity parent = entity.getParent();
+        if (parent == null) {
+            return null;
+        }
+        return (String) entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(parent);
+    }
+
+    /**
+     * 按层序保存节点, 父节点总在子节点之前
+     * id 已提前分配, 同一批次中的父子节点可以在同一条 JDBC 批量语句中插入
+     * 每批次结束后 flush 并 clear EntityManager
+     * @param entities 按层序排列的节点
+     * @param chunkSize 每批次的节点数量
+     * @return 第一个节点保存后的结果
+     */
+    protected Entity saveLevelOrdered(List<Entity> entities, int chunkSize) {
+        long start = System.nanoTime();
+        Entity first = null;
+        int count = 0;
+        for (Entity entity : entities) {
+            String parentId = getParentId(entity);
+            if (parentId != null && !entityManager.contains(entity.getParent())) {
+                // 父节点已在之前的批次中保存并游离, 使用引用避免级联 persist 游离对象
+                entity.setParent(entityManager.getReference(getEntityClass(), parentId));
+            }
+            Entity saved;
+            if (entity.getVersion() == null) {
+                entityManager.persist(entity);
+                saved = entity;
+            } else {
+                saved = entityManager.merge(entity);
+            }
+            if (first == null) {
+                first = saved;
+            }
+            if (++count % chunkSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        log.debug("按层序保存 {} 个 {} 节点耗时 {} ms", count, getEntityClass().getSimpleName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return first;
+    }
+
+    /**
+     * 父节点不为空时设置 parentId 参数
+     * @param query 查询
+     * @param parentId 父节点 id
+     * @param <Q> 查询类型
+     * @return 查询
+     */
+    private <Q extends Query> Q setParentId(Q query, String parentId) {
+        if (parentId != null) {
+            query.setParameter("parentId", parentId);
+        }
+        return query;
+    }
+
+    /**
+     * 一次查询所有节点并构建已排序的树形结构
+     * @return 树根集合
+     */
+    private List<Entity> loadTreeData() {
+        return TreeEntityUtil.treeData(treeRepository.findAll());
+    }
+
+    /**
+     * 距上次校验超过校验间隔时, 查询表的指纹与快照比较
+     * @param current 快照
+     * @return 表是否未被修改
+     */
+    private boolean isSnapshotUnchanged(TreeSnapshot<Entity> current) {
+        long now = System.nanoTime();
+        long interval = TimeUnit.MILLISECONDS.toNanos(jpaProperties.getTree().getSnapshotCheckInterval());
+        if (now - current.verifiedAt < interval) {
+            return true;
+        }
+        if (!current.fingerprint.equals(loadFingerprint())) {
+            recordSnapshot("stale");
+            return false;
+        }
+        current.verifiedAt = now;
+        return true;
+    }
+
+    /**
+     * 查询表的指纹: 行数, 最大 id, 最大更新时间, 版本号之和
+     * 增删改, 批量 update 语句(递增版本号) 和 id 迁移都会改变指纹
+     * @return 指纹
+     */
+    private List<Object> loadFingerprint() {
+        String jpql = String.format("select count(t), max(t.id), max(t.updateTime), sum(t.version) from %s t", getEntityName());
+        return Arrays.asList(entityManager.createQuery(jpql, Object[].class).getSingleResult());
+    }
+
+    /**
+     * 将树形结构的每层子节点集合设为只读
+     * @param roots 树根集合
+     * @return 只读的树根集合
+     */
+    private List<Entity> freeze(List<Entity> roots) {
+        Deque<Entity> queue = new ArrayDeque<>(roots);
+        while (!queue.isEmpty()) {
+            Entity parent = queue.poll();
+            queue.addAll(parent.getChildren());
+            parent.setChildren(Collections.unmodifiableList(parent.getChildren()));
+        }
+        return Collections.unmodifiableList(roots);
+    }
+
+    /**
+     * 记录快照命中情况
+     * @param result hit 或 miss
+     */
+    private void recordSnapshot(String result) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("minimal.jpa.tree.snapshot", "entity", getEntityClass().getSimpleName(), "result", result).increment();
+        }
+    }
+
+    /**
+     * 为待保存的节点计算祖先路径, entities 中父节点须在子节点之前
+     * 新节点(version 为空)提前分配 id, 调用方须调用 {@link GenerateEntityIdListener#clearAssigned(Collection)} 清理
+     * @param entities 待保存的节点
+     * @return 移动了的节点 移动前的祖先路径:移动后的祖先路径
+     */
+    protected Map<String, String> assignTreePath(List<Entity> entities) {
+        Map<String, String> storedPaths = findStoredTreePaths(entities);
+        Map<String, String> movedPaths = new LinkedHashMap<>();
+        for (Entity entity : entities) {
+            if (entity.getVersion() == null) {
+                // 新节点总是重新分配 id, 与 persist 时一致, 客户端传入的 id 不会写入祖先路径
+                generateEntityIdListener.assignId(entity);
+            }
+            Entity parent = entity.getParent();
+            String treePath = TreeEntityUtil.buildTreePath(parent == null ? null : getTreePath(parent), entity.getId());
+            String storedPath = storedPaths.get(entity.getId());
+            if (storedPath != null && !storedPath.equals(treePath)) {
+                if (treePath.startsWith(storedPath)) {
+                    throw new IllegalArgumentException("不能将节点移动到其自身或子节点下");
+                }
+                // 父节点已移动时, 其子孙节点会随父节点一起更新
+                if (movedPaths.keySet().stream().noneMatch(storedPath::startsWith)) {
+                    movedPaths.put(storedPath, treePath);
+                }
+            }
+            entity.setTreePath(treePath);
+        }
+        return movedPaths;
+    }
+
+    /**
+     * 得到清理引用本实体的多对多中间表的 SQL
+     * 从元模型中查找元素类型为本实体的多对多属性, 根据其 {@link JoinTable} 生成 delete from join_table where column in (:ids)
+     * @return 清理中间表的 SQL
+     */
+    private List<String> getJoinTableDeletes() {
+        List<String> deletes = joinTableDeletes;
+        if (deletes == null) {
+            deletes = new ArrayList<>();
+            Class<Entity> entityClass = getEntityClass();
+            for (EntityType<?> entityType : entityManager.getMetamodel().getEntities()) {
+                for (PluralAttribute<?, ?, ?> attribute : entityType.getPluralAttributes()) {
+                    if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.MANY_TO_MANY
+                            || !(attribute.getJavaMember() instanceof Field)) {
+                        continue;
+                    }
+                    JoinTable joinTable = ((Field) attribute.getJavaMember()).getAnnotation(JoinTable.class);
+                    if (joinTable == null) {
+                        // mappedBy 的一侧没有中间表, 由拥有方处理
+                        continue;
+                    }
+                    if (attribute.getElementType().getJavaType().isAssignableFrom(entityClass)) {
+                        addJoinTableDeletes(deletes, joinTable.name(), joinTable.inverseJoinColumns());
+                    }
+                    if (entityType.getJavaType().isAssignableFrom(entityClass)) {
+                        addJoinTableDeletes(deletes, joinTable.name(), joinTable.joinColumns());
+                    }
+                }
+            }
+            joinTableDeletes = deletes;
+        }
+        return deletes;
+    }
+
+    /**
+     * 生成清理中间表的 SQL
+     * @param deletes SQL 列表
+     * @param table 中间表名
+     * @param joinColumns 引用本实体的列
+     */
+    private void addJoinTableDeletes(List<String> deletes, String table, JoinColumn[] joinColumns) {
+        for (JoinColumn joinColumn : joinColumns) {
+            if (table.isEmpty() || joinColumn.name().isEmpty()) {
+                log.warn("{} 的中间表没有指定表名或列名, 删除子树时不会清理", getEntityClass().getSimpleName());
+                continue;
+            }
+            deletes.add(String.format("delete from %s where %s in (:ids)", table, joinColumn.name()));
+        }
+    }
+
+    /**
+     * 分批查询节点的祖先路径
+     * @param ids 节点 id
+     * @param chunkSize 每批次的 id 数量
+     * @return 存在的节点的祖先路径, 历史数据为 null
+     */
+    private List<String> findTreePaths(List<String> ids, int chunkSize) {
+        TypedQuery<String> query = entityManager.createQuery(
+                String.format("select t.treePath from %s t where t.id in :ids", getEntityName()), String.class);
+        List<String> treePaths = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            treePaths.addAll(query.setParameter("ids", ids.subList(from, Math.min(from + chunkSize, ids.size()))).getResultList());
+        }
+        return treePaths;
+    }
+
+    /**
+     * 去掉被其他路径包含的祖先路径, 嵌套的子树只查询一次
+     * @param treePaths 祖先路径
+     * @return 最外层节点的祖先路径
+     */
+    private List<String> getOutermostPaths(List<String> treePaths) {
+        // 排序后子孙路径紧跟在祖先路径之后
+        List<String> sorted = new ArrayList<>(new TreeSet<>(treePaths));
+        List<String> outermost = new ArrayList<>(sorted.size());
+        for (String treePath : sorted) {
+            if (outermost.isEmpty() || !treePath.startsWith(outermost.get(outermost.size() - 1))) {
+                outermost.add(treePath);
+            }
+        }
+        return outermost;
+    }
+
+    /**
+     * 按 chunkSize 分批设置 ids 参数并执行
+     * @param query 带 ids 参数的 update/delete 语句
+     * @param ids id 列表
+     * @param chunkSize 每批次的 id 数量
+     * @return 影响的行数
+     */
+    private int executeInChunks(Query query, List<?> ids, int chunkSize) {
+        int count = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            count += query.setParameter("ids", ids.subList(from, Math.min(from + chunkSize, ids.size()))).executeUpdate();
+        }
+        return count;
+    }
 
+    /**
+     * 得到节点的祖先路径, 历史数据没有祖先路径时沿父节点计算
+     * @param entity 节点
+     * @return 祖先路径
+     */
+    private String getTreePath(Entity entity) {
+        if (entity.getTreePath() != null) {
+            return entity.getTreePath();
+        }
+        Entity parent = entity.getParent();
+        return TreeEntityUtil.buildTreePath(parent == null ? null : getTreePath(parent), entity.getId());
+    }
 
+    /**
+     * 一次查询已存在节点在数据库中的祖先路径
+     * @param entities 待保存的节点
+     * @return id:祖先路径
+     */
+    private Map<String, String> findStoredTreePaths(List<Entity> entities) {
+        List<String> ids = entities.stream()
+                .filter(entity -> entity.getId() != null && entity.getVersion() != null)
+                .map(Entity::getId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String jpql = String.format("select t.id, t.treePath from %s t where t.id in :ids", getEntityName());
+        List<Object[]> rows = entityManager.createQuery(jpql, Object[].class).setParameter("ids", ids).getResultList();
+        Map<String, String> storedPaths = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                storedPaths.put((String) row[0], (String) row[1]);
+            }
+        }
+        return storedPaths;
+    }
 
+    /**
+     * 根据 parent_id 计算祖先路径, 已计算过的路径直接复用
+     * @param id 节点 id
+     * @param parentIds id:父节点 id
+     * @param treePaths id:已计算的祖先路径
+     * @return 祖先路径
+     */
+    private String resolveTreePath(String id, Map<String, String> parentIds, Map<String, String> treePaths) {
+        // 向上找到第一个已计算路径的祖先
+        Deque<String> chain = new ArrayDeque<>();
+        String current = id;
+        while (current != null && !treePaths.containsKey(current)) {
+            if (chain.contains(current)) {
+                throw new IllegalStateException("节点 " + current + " 的父节点存在循环引用");
+            }
+            chain.push(current);
+            current = parentIds.get(current);
+        }
+        String treePath = current == null ? null : treePaths.get(current);
+        // 自上而下拼接路径
+        while (!chain.isEmpty()) {
+            String nodeId = chain.pop();
+            treePath = TreeEntityUtil.buildTreePath(treePath, nodeId);
+            treePaths.put(nodeId, treePath);
+        }
+        return treePath;
+    }
+
+    /**
+     * 某一版本的树形结构快照, 节点均为游离状态且子节点集合只读, 只以副本的形式返回给调用方
+     * @param <Entity> 树形结构实体类型
+     */
+    private static final class TreeSnapshot<Entity> {
+
+        /**
+         * 构建快照时的版本号
+         */
+        private final long version;
+
+        /**
+         * 构建快照时表的指纹
+         */
+        private final List<Object> fingerprint;
+
+        /**
+         * 树根集合
+         */
+        private final List<Entity> roots;
+
+        /**
+         * 上次确认指纹未变化的时间 纳秒
+         */
+        private volatile long verifiedAt;
+
+        private TreeSnapshot(long version, List<Object> fingerprint, List<Entity> roots) {
+            this.version = version;
+            this.fingerprint = fingerprint;
+            this.roots = roots;
+            this.verifiedAt = System.nanoTime();
+        }
+    }
 }
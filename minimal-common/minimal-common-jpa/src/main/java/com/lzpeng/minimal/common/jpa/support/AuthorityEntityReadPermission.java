@@ -0,0 +1,28 @@
+package com.lzpeng.minimal.common.jpa.support;
+
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * 按当前用户的权限校验实体读权限
+ * 与生成的控制器上的 hasAnyAuthority(QUERY_PERM) 一致, 未登录或没有该实体查询权限时不能读取
+ * @author: Lzpeng
+ */
+public class AuthorityEntityReadPermission implements EntityReadPermission {
+
+    @Override
+    public boolean isReadable(Class<? extends BaseEntity> entityClass, String permission) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (permission.equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+package com.lzpeng.minimal.common.jpa.support;
+
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.CacheObj;
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 分页查询总数的短时缓存
+ * key 为实体类型 + 规范化后的查询条件, 过期前不再执行 count 查询
+ * @author: Lzpeng
+ */
+@Component
+public class CountCache {
+
+    /**
+     * 总数缓存, 超过容量时淘汰最久未使用的
+     */
+    private final Cache<String, Long> cache;
+
+    public CountCache(MinimalJpaProperties jpaProperties) {
+        MinimalJpaProperties.Count count = jpaProperties.getCount();
+        this.cache = CacheUtil.newLRUCache(count.getCacheCapacity(), count.getCacheTtl());
+    }
+
+    /**
+     * 获取缓存的总数, 不存在或已过期时执行 counter 并缓存
+     * 读取时不刷新过期时间
+     * @param key 实体类型 + 查询条件
+     * @param counter count 查询
+     * @return 总数
+     */
+    public long get(String key, LongSupplier counter) {
+        Long total = cache.get(key, false);
+        if (total == null) {
+            total = counter.getAsLong();
+            cache.put(key, total);
+        }
+        return total;
+    }
+
+    /**
+     * 清除某个实体类型的所有缓存总数
+     * @param entityClass 实体类型
+     */
+    public void evict(Class<?> entityClass) {
+        String prefix = entityClass.getName() + ":";
+        List<String> keys = new ArrayList<>();
+        Iterator<CacheObj<String, Long>> iterator = cache.cacheObjIterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next().getKey();
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        keys.forEach(cache::remove);
+    }
+}
@@ -0,0 +1,281 @@
+package com.lzpeng.minimal.common.jpa.support;
+
+import com.lzpeng.minimal.common.jpa.annotation.EntityIdReference;
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
+import com.lzpeng.minimal.common.jpa.domain.enums.EntityIdFormat;
+import com.lzpeng.minimal.common.jpa.hibernate.EncodedIdType;
+import com.lzpeng.minimal.common.jpa.service.TreeService;
+import com.lzpeng.minimal.common.jpa.util.JpaIdUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ReflectionUtils;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * 实体 id 格式迁移工具
+ * 将已有数据的 id 重新编码为指定格式, 同时更新所有引用它的外键列、中间表和 {@link EntityIdReference} 标记的列, 最后重建树形实体的祖先路径
+ * 雪花id 不变, 只改变编码方式. 表和列从 Hibernate 映射中读取, 更新期间关闭外键检查, 只支持 MySQL
+ * 迁移在 MySQL 命名锁中进行, 多个实例同时启动时依次执行, 后执行的实例没有需要迁移的 id
+ * BIGINT 存储方式下 id 格式只在读取时决定, 只重建由 id 拼接的祖先路径
+ * 开启 minimal.jpa.id.migrate-on-startup 时在 Web 服务启动前迁移为 minimal.jpa.id.format 格式,
+ * 迁移期间仍在运行的旧实例会读写旧格式的 id, 应停止其他实例后启动单个实例迁移
+ * @author: Lzpeng
+ */
+@Slf4j
+@Component
+public class EntityIdMigrator implements SmartInitializingSingleton {
+
+    /**
+     * 迁移使用的 MySQL 命名锁
+     */
+    private static final String LOCK_NAME = "minimal_entity_id_migration";
+
+    /**
+     * 等待其他实例迁移完成的时间 秒
+     */
+    private static final int LOCK_TIMEOUT_SECONDS = 600;
+
+    private final EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final MinimalJpaProperties jpaProperties;
+
+    private final ObjectProvider<TreeService<?>> treeServices;
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    public EntityIdMigrator(EntityManager entityManager, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            MinimalJpaProperties jpaProperties, ObjectProvider<TreeService<?>> treeServices, ObjectProvider<CacheManager> cacheManager) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.jpaProperties = jpaProperties;
+        this.treeServices = treeServices;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * 所有单例创建后, Web 服务启动前按配置迁移, 迁移期间本实例不接收请求
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        migrateOnStartup();
+    }
+
+    /**
+     * 按配置迁移
+     */
+    public void migrateOnStartup() {
+        MinimalJpaProperties.Id id = jpaProperties.getId();
+        if (id.isMigrateOnStartup()) {
+            int count = migrate(id.getFormat());
+            log.info("{} 个实体 id 已迁移为 {} 格式, 请关闭 minimal.jpa.id.migrate-on-startup", count, id.getFormat());
+        }
+    }
+
+    /**
+     * 将所有实体的 id 迁移为指定格式, 在一个事务中完成
+     * @param format 目标格式
+     * @return 迁移的实体数量
+     * @throws IllegalStateException 数据库不是 MySQL, 或等待其他实例迁移超时
+     */
+    public int migrate(EntityIdFormat format) {
+        if (EncodedIdType.isNumeric()) {
+            // 只存储雪花id, 读取时已按 minimal.jpa.id.format 编码, 只有由 id 拼接的祖先路径需要重建
+            return rebuildStaleTreePaths();
+        }
+        SessionFactoryImplementor sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+        if (!(dialect instanceof MySQLDialect)) {
+            throw new IllegalStateException("实体 id 迁移只支持 MySQL, 当前数据库方言为 " + dialect);
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Integer count = transactionTemplate.execute(status -> {
+            entityManager.flush();
+            // 命名锁属于连接, 事务中 JdbcTemplate 使用同一个连接
+            Integer locked = jdbcTemplate.queryForObject("select get_lock(?, ?)", Integer.class, LOCK_NAME, LOCK_TIMEOUT_SECONDS);
+            if (locked == null || locked != 1) {
+                throw new IllegalStateException(String.format("等待其他实例迁移实体 id 超过 %d 秒", LOCK_TIMEOUT_SECONDS));
+            }
+            try {
+                jdbcTemplate.execute("SET FOREIGN_KEY_CHECKS = 0");
+                try {
+                    return migrateAll(sessionFactory, format);
+                } finally {
+                    jdbcTemplate.execute("SET FOREIGN_KEY_CHECKS = 1");
+                }
+            } finally {
+                jdbcTemplate.queryForObject("select release_lock(?)", Integer.class, LOCK_NAME);
+            }
+        });
+        cacheManager.ifAvailable(manager -> manager.getCacheNames().forEach(name -> {
+            Cache cache = manager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 重建 id 格式与读出的 id 不一致的祖先路径
+     * @return 祖先路径有变化的节点数量
+     */
+    private int rebuildStaleTreePaths() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Integer count = transactionTemplate.execute(status -> treeServices.orderedStream()
+                .filter(TreeService::isTreePathStale)
+                .mapToInt(TreeService::rebuildTreePath)
+                .sum());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 迁移所有实体
+     * @param sessionFactory Hibernate SessionFactory
+     * @param format 目标格式
+     * @return 迁移的实体数量
+     */
+    private int migrateAll(SessionFactoryImplementor sessionFactory, EntityIdFormat format) {
+        Map<String, List<String[]>> references = findReferences(sessionFactory);
+        Set<String> migratedTables = new HashSet<>();
+        int count = 0;
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            if (!(persister instanceof AbstractEntityPersister)) {
+                continue;
+            }
+            AbstractEntityPersister entityPersister = (AbstractEntityPersister) persister;
+            Class<?> entityClass = entityPersister.getMappedClass();
+            String table = entityPersister.getTableName();
+            if (entityPersister.getIdentifierType().getReturnedClass() != String.class || !migratedTables.add(table)) {
+                continue;
+            }
+            String idColumn = entityPersister.getIdentifierColumnNames()[0];
+            List<Object[]> changes = new ArrayList<>();
+            for (String oldId : jdbcTemplate.queryForList(String.format("select %s from %s", idColumn, table), String.class)) {
+                String newId = reencode(entityClass, oldId, format);
+                if (newId != null && !newId.equals(oldId)) {
+                    changes.add(new Object[]{newId, oldId});
+                }
+            }
+            if (changes.isEmpty()) {
+                continue;
+            }
+            jdbcTemplate.batchUpdate(String.format("update %s set %s = ? where %s = ?", table, idColumn, idColumn), changes);
+            for (String[] reference : references.getOrDefault(entityPersister.getEntityName(), Collections.emptyList())) {
+                jdbcTemplate.batchUpdate(String.format("update %s set %s = ? where %s = ?", reference[0], reference[1], reference[1]), changes);
+            }
+            log.info("{} 迁移 {} 个 id", table, changes.size());
+            count += changes.size();
+        }
+        if (count > 0) {
+            entityManager.clear();
+            // 祖先路径由 id 拼接而成
+            treeServices.orderedStream().forEach(TreeService::rebuildTreePath);
+        }
+        return count;
+    }
+
+    /**
+     * 查找引用每个实体的列
+     * 多对一和拥有方一对一的外键列, {@link EntityIdReference} 标记的列,
+     * 拥有方集合(多对多中间表, 单向 @OneToMany @JoinColumn, @ElementCollection)引用所属实体的列, 多对多中间表引用元素实体的列
+     * @param sessionFactory Hibernate SessionFactory
+     * @return 实体名称 与 [表名, 列名] 列表
+     */
+    private Map<String, List<String[]>> findReferences(SessionFactoryImplementor sessionFactory) {
+        Map<String, List<String[]>> references = new HashMap<>();
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            if (!(persister instanceof AbstractEntityPersister)) {
+                continue;
+            }
+            AbstractEntityPersister entityPersister = (AbstractEntityPersister) persister;
+            String[] propertyNames = entityPersister.getPropertyNames();
+            Type[] types = entityPersister.getPropertyTypes();
+            for (int i = 0; i < types.length; i++) {
+                String[] columns = entityPersister.getPropertyColumnNames(i);
+                if (types[i] instanceof EntityType) {
+                    // mappedBy 的一对一没有外键列
+                    String target = ((EntityType) types[i]).getAssociatedEntityName();
+                    addReferences(references, target, entityPersister.getTableName(), columns);
+                    continue;
+                }
+                Field field = ReflectionUtils.findField(entityPersister.getMappedClass(), propertyNames[i]);
+                EntityIdReference reference = field == null ? null : field.getAnnotation(EntityIdReference.class);
+                if (reference != null) {
+                    EntityPersister target = sessionFactory.getMetamodel().entityPersister(reference.value());
+                    addReferences(references, target.getEntityName(), entityPersister.getTableName(), columns);
+                }
+            }
+        }
+        for (CollectionPersister persister : sessionFactory.getMetamodel().collectionPersisters().values()) {
+            // mappedBy 的集合由另一方的多对一外键维护
+            if (!(persister instanceof AbstractCollectionPersister) || persister.isInverse()) {
+                continue;
+            }
+            AbstractCollectionPersister collectionPersister = (AbstractCollectionPersister) persister;
+            // 单向 @OneToMany @JoinColumn 的表为元素实体的表
+            String table = collectionPersister.getTableName();
+            addReferences(references, collectionPersister.getOwnerEntityPersister().getEntityName(), table, collectionPersister.getKeyColumnNames());
+            if (collectionPersister.isManyToMany() && collectionPersister.getElementType() instanceof EntityType) {
+                String target = ((EntityType) collectionPersister.getElementType()).getAssociatedEntityName();
+                addReferences(references, target, table, collectionPersister.getElementColumnNames());
+            }
+        }
+        return references;
+    }
+
+    /**
+     * 记录引用实体的列
+     * @param references 实体名称 与 [表名, 列名] 列表
+     * @param entityName 被引用的实体名称
+     * @param table 表名
+     * @param columns 列名
+     */
+    private void addReferences(Map<String, List<String[]>> references, String entityName, String table, String[] columns) {
+        for (String column : columns) {
+            references.computeIfAbsent(entityName, key -> new ArrayList<>()).add(new String[]{table, column});
+        }
+    }
+
+    /**
+     * 将 id 重新编码为指定格式
+     * @param entityClass 实体类
+     * @param oldId 原 id
+     * @param format 目标格式
+     * @return 新 id, 不是编码 id 时返回 null
+     */
+    private String reencode(Class<?> entityClass, String oldId, EntityIdFormat format) {
+        if (JpaIdUtil.getEntityIdFormat(oldId) == format) {
+            return oldId;
+        }
+        try {
+            return JpaIdUtil.encodeEntityId(entityClass, JpaIdUtil.getSnowflakeId(oldId), format);
+        } catch (IllegalArgumentException e) {
+            log.warn("跳过无法解码的 id {}: {}", oldId, e.getMessage());
+            return null;
+        }
+    }
+}
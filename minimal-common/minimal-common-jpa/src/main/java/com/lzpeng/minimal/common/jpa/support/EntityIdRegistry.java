@@ -0,0 +1,53 @@
+package com.lzpeng.minimal.common.jpa.support;
+
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+import com.lzpeng.minimal.common.jpa.util.JpaIdUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 实体 id 注册表
+ * 启动时注册所有实体类的 id 前缀, 使可排序格式的 id 在任意实例上都可以解码出实体类
+ * @author: Lzpeng
+ */
+@Slf4j
+@Component
+public class EntityIdRegistry {
+
+    /**
+     * 使用编码 id 的实体类
+     */
+    private final List<Class<? extends BaseEntity>> entityClasses;
+
+    public EntityIdRegistry(EntityManagerFactory entityManagerFactory) {
+        List<Class<? extends BaseEntity>> entityClasses = new ArrayList<>();
+        for (EntityType<?> entityType : entityManagerFactory.getMetamodel().getEntities()) {
+            Class<?> javaType = entityType.getJavaType();
+            if (!BaseEntity.class.isAssignableFrom(javaType)) {
+                continue;
+            }
+            try {
+                JpaIdUtil.registerEntityClass(javaType);
+                entityClasses.add(javaType.asSubclass(BaseEntity.class));
+            } catch (IllegalArgumentException e) {
+                // 不在约定包下的实体类不生成编码 id
+                log.debug("跳过实体类 {}: {}", javaType.getName(), e.getMessage());
+            }
+        }
+        this.entityClasses = Collections.unmodifiableList(entityClasses);
+        log.debug("注册 {} 个实体类的 id 前缀", entityClasses.size());
+    }
+
+    /**
+     * @return 使用编码 id 的实体类
+     */
+    public List<Class<? extends BaseEntity>> getEntityClasses() {
+        return entityClasses;
+    }
+}
@@ -0,0 +1,230 @@
+package com.lzpeng.minimal.common.jpa.support;
+
+import com.lzpeng.minimal.common.core.util.StringConstant;
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+import com.lzpeng.minimal.common.jpa.domain.enums.EntityIdFormat;
+import com.lzpeng.minimal.common.jpa.util.JpaIdUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+/**
+ * 根据 id 解析实体, 调用方不需要知道实体类型
+ * 启动时为每个实体类的两种格式的 id 前缀建立到 Repository 的路由表
+ * 每次解析只截取 id 前缀查表, 不经过正则和类名解码. 批量解析时同一类型的 id 合并为 in 查询
+ * 只返回当前用户有查询权限 (如 system:user:query) 的实体, 见 {@link EntityReadPermission}
+ * @author: Lzpeng
+ */
+@Slf4j
+@Component
+public class EntityIdResolver implements SmartInitializingSingleton {
+
+    /**
+     * 实体包名后缀
+     */
+    private static final String ENTITY_PACKAGE_SUFFIX = ".domain.entity";
+
+    private final ListableBeanFactory beanFactory;
+
+    private final EntityIdRegistry entityIdRegistry;
+
+    private final MinimalJpaProperties jpaProperties;
+
+    private final ObjectProvider<EntityReadPermission> readPermission;
+
+    /**
+     * id 前缀(以分隔符结尾) 与 路由
+     */
+    private volatile Map<String, Route> routes = Collections.emptyMap();
+
+    public EntityIdResolver(ListableBeanFactory beanFactory, EntityIdRegistry entityIdRegistry,
+                            MinimalJpaProperties jpaProperties, ObjectProvider<EntityReadPermission> readPermission) {
+        this.beanFactory = beanFactory;
+        this.entityIdRegistry = entityIdRegistry;
+        this.jpaProperties = jpaProperties;
+        this.readPermission = readPermission;
+    }
+
+    /**
+     * 所有 Repository 创建后建立路由表
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void afterSingletonsInstantiated() {
+        Repositories repositories = new Repositories(beanFactory);
+        Map<Class<? extends BaseEntity>, JpaRepository<? extends BaseEntity, String>> entityRepositories = new LinkedHashMap<>();
+        for (Class<? extends BaseEntity> entityClass : entityIdRegistry.getEntityClasses()) {
+            Optional<Object> repository = repositories.getRepositoryFor(entityClass);
+            if (!repository.isPresent() || !(repository.get() instanceof JpaRepository)) {
+                log.debug("实体类 {} 没有 JpaRepository, 不能通过 id 解析", entityClass.getName());
+                continue;
+            }
+            entityRepositories.put(entityClass, (JpaRepository<? extends BaseEntity, String>) repository.get());
+        }
+        registerRoutes(entityRepositories);
+    }
+
+    /**
+     * 为每个实体类的两种格式的 id 前缀建立路由
+     * @param entityRepositories 实体类 与 Repository
+     */
+    void registerRoutes(Map<Class<? extends BaseEntity>, JpaRepository<? extends BaseEntity, String>> entityRepositories) {
+        Map<String, Route> routes = new HashMap<>();
+        for (Map.Entry<Class<? extends BaseEntity>, JpaRepository<? extends BaseEntity, String>> entry : entityRepositories.entrySet()) {
+            Class<? extends BaseEntity> entityClass = entry.getKey();
+            Route route = new Route(entityClass, entry.getValue(), getQueryPermission(entityClass));
+            for (EntityIdFormat format : EntityIdFormat.values()) {
+                routes.put(JpaIdUtil.getEntityIdPrefix(entityClass, format), route);
+            }
+        }
+        this.routes = Collections.unmodifiableMap(routes);
+        log.debug("建立 {} 个实体 id 前缀的路由", routes.size());
+    }
+
+    /**
+     * 根据 id 解析实体
+     * @param id 任意实体的 id
+     * @return 实体, 不存在, 无法识别或没有读权限时返回 null
+     */
+    public BaseEntity resolve(String id) {
+        Route route = getRoute(id);
+        if (route == null || getSnowflakeId(id) == null || !isReadable(route)) {
+            return null;
+        }
+        return route.repository.findById(id).orElse(null);
+    }
+
+    /**
+     * 根据 id 批量解析实体, 同一类型的 id 按批次大小合并为 in 查询
+     * 查询结果按雪花id 对应回传入的 id, 传入的 id 与实体当前的 id 格式不同(如切换 id 格式或 BIGINT 存储方式下重新编码)时也能对应
+     * @param ids 任意实体的 id
+     * @return 传入的 id 与 实体, 按传入顺序排列, 不包含不存在, 无法识别或没有读权限的 id
+     */
+    public Map<String, BaseEntity> resolveAll(Collection<String> ids) {
+        // 路由 与 该类型的 雪花id 与 传入的 id
+        Map<Route, Map<Long, List<String>>> groups = new LinkedHashMap<>();
+        Set<String> distinctIds = new LinkedHashSet<>(ids);
+        for (String id : distinctIds) {
+            Route route = getRoute(id);
+            Long snowflakeId = route == null ? null : getSnowflakeId(id);
+            if (snowflakeId != null) {
+                groups.computeIfAbsent(route, key -> new LinkedHashMap<>())
+                        .computeIfAbsent(snowflakeId, key -> new ArrayList<>(1)).add(id);
+            }
+        }
+        int chunkSize = jpaProperties.getBatch().getChunkSize();
+        Map<String, BaseEntity> entities = new HashMap<>(distinctIds.size() * 2);
+        for (Map.Entry<Route, Map<Long, List<String>>> group : groups.entrySet()) {
+            Route route = group.getKey();
+            if (!isReadable(route)) {
+                continue;
+            }
+            Map<Long, List<String>> requestedIds = group.getValue();
+            List<String> groupIds = new ArrayList<>(distinctIds.size());
+            requestedIds.values().forEach(groupIds::addAll);
+            for (int from = 0; from < groupIds.size(); from += chunkSize) {
+                for (BaseEntity entity : route.repository.findAllById(groupIds.subList(from, Math.min(from + chunkSize, groupIds.size())))) {
+                    Long snowflakeId = getSnowflakeId(entity.getId());
+                    List<String> matched = snowflakeId == null ? null : requestedIds.get(snowflakeId);
+                    if (matched != null) {
+                        matched.forEach(id -> entities.put(id, entity));
+                    }
+                }
+            }
+        }
+        Map<String, BaseEntity> result = new LinkedHashMap<>(entities.size() * 2);
+        for (String id : distinctIds) {
+            BaseEntity entity = entities.get(id);
+            if (entity != null) {
+                result.put(id, entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 截取 id 前缀查找路由
+     * @param id 实体 id
+     * @return 路由, 无法识别时返回 null
+     */
+    private Route getRoute(String id) {
+        if (!StringUtils.hasLength(id)) {
+            return null;
+        }
+        int end = id.lastIndexOf(StringConstant.DELIMITER);
+        if (end <= 0 || end == id.length() - 1) {
+            return null;
+        }
+        return routes.get(id.substring(0, end + 1));
+    }
+
+    /**
+     * 解码 id 中的雪花id
+     * @param id 实体 id
+     * @return 雪花id, 不合法时返回 null
+     */
+    private static Long getSnowflakeId(String id) {
+        try {
+            return JpaIdUtil.getSnowflakeId(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 没有 {@link EntityReadPermission} 时拒绝读取, 避免绕过实体控制器上的查询权限
+     * @param route 路由
+     * @return 当前用户是否可以读取该类型的实体
+     */
+    private boolean isReadable(Route route) {
+        EntityReadPermission permission = readPermission.getIfAvailable();
+        return permission != null && permission.isReadable(route.entityClass, route.permission);
+    }
+
+    /**
+     * 得到实体的查询权限, 规则与生成的控制器一致: 模块名:首字母小写的类名:query
+     * @param entityClass 实体类
+     * @return 查询权限
+     */
+    private static String getQueryPermission(Class<?> entityClass) {
+        String packageName = entityClass.getPackage().getName();
+        int end = packageName.length() - ENTITY_PACKAGE_SUFFIX.length();
+        String moduleName = packageName.substring(packageName.lastIndexOf(StringConstant.PACKAGE_DELIMITER, end - 1) + 1, end);
+        return moduleName + ":" + StringUtils.uncapitalize(entityClass.getSimpleName()) + ":query";
+    }
+
+    /**
+     * 实体类型的路由
+     */
+    private static final class Route {
+
+        /**
+         * 实体类
+         */
+        private final Class<? extends BaseEntity> entityClass;
+
+        /**
+         * 实体的 Repository
+         */
+        private final JpaRepository<? extends BaseEntity, String> repository;
+
+        /**
+         * 实体的查询权限
+         */
+        private final String permission;
+
+        private Route(Class<? extends BaseEntity> entityClass, JpaRepository<? extends BaseEntity, String> repository, String permission) {
+            this.entityClass = entityClass;
+            this.repository = repository;
+            this.permission = permission;
+        }
+    }
+}
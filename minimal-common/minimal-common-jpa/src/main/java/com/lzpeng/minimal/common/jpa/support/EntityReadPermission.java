@@ -0,0 +1,21 @@
+package com.lzpeng.minimal.common.jpa.support;
+
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+
+/**
+ * 通过 id 解析实体时的读权限校验
+ * 引入 Spring Security 时默认为 {@link AuthorityEntityReadPermission}, 可以声明此 Bean 覆盖
+ * 没有此 Bean 时 {@link EntityIdResolver} 拒绝解析所有实体
+ * @author: Lzpeng
+ */
+@FunctionalInterface
+public interface EntityReadPermission {
+
+    /**
+     * 当前用户是否可以读取该类型的实体
+     * @param entityClass 实体类
+     * @param permission 该实体的查询权限, 与生成的控制器一致, 如 system:menu:query
+     * @return 是否可以读取
+     */
+    boolean isReadable(Class<? extends BaseEntity> entityClass, String permission);
+}
@@ -2,6 +2,7 @@ package com.lzpeng.minimal.common.jpa.support;
 
 import cn.hutool.core.lang.Snowflake;
 import com.lzpeng.minimal.common.core.domain.ProjectInfo;
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
 import com.lzpeng.minimal.common.jpa.util.JpaIdUtil;
 import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,10 +10,15 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
 import javax.persistence.PrePersist;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 /**
  * id 生成器
  * 生成规则 实体类全路径截取跟包之后 + snowflake 生成的id 并转为16进制大写
+ * 格式由 minimal.jpa.id.format 指定
  * @author: Lzpeng
  */
 @Component
@@ -21,8 +27,17 @@ public class GenerateEntityIdListener {
     @Autowired
     private Snowflake snowflake;
 
+    @Autowired
+    private MinimalJpaProperties jpaProperties;
+
     private String baseEntityPackage = ProjectInfo.get().getBaseModulePackage() + ".domain.entity";
 
+    /**
+     * 当前线程中已提前分配 id 的实体, 按引用比较
+     * 批量保存时提前分配 id, persist 时不再重复生成
+     */
+    private static final ThreadLocal<Set<Object>> ASSIGNED = ThreadLocal.withInitial(() -> Collections.newSetFromMap(new IdentityHashMap<>()));
+
     /**
      * 实体保存前操作
      * @param target 待保存的实体
@@ -31,15 +46,57 @@ public class GenerateEntityIdListener {
     public void touchForCreate(Object target) {
         Assert.notNull(target, "Entity must not be null!");
         if (target instanceof BaseEntity) {
-            BaseEntity entity = (BaseEntity) target;
-            if (!entity.getClass().getPackage().getName().equals(baseEntityPackage)){
-                throw new RuntimeException("请将实体类 "+ entity.getClass() +" 放至 " + baseEntityPackage + " 包下");
+            if (ASSIGNED.get().remove(target)) {
+                // 已提前分配过 id
+                return;
             }
-            long longId = snowflake.nextId();
-            // 编码实体id
-            String entityId = JpaIdUtil.encodeEntityId(entity.getClass(), longId);
-            entity.setId(entityId);
+            generateId((BaseEntity) target);
+        }
+    }
+
+    /**
+     * 提前为实体分配 id, 之后 persist 时保留此 id
+     * 使用后须调用 {@link #clearAssigned(Collection)} 清理
+     * @param entity 待保存的实体
+     * @return 分配的 id
+     */
+    public String assignId(BaseEntity entity) {
+        Assert.notNull(entity, "Entity must not be null!");
+        String entityId = generateId(entity);
+        ASSIGNED.get().add(entity);
+        return entityId;
+    }
+
+    /**
+     * 清理给定实体未被 persist 的提前分配记录
+     * 只清理本批次的实体, 外层批次(如嵌套的保存)已分配的记录保留
+     * @param entities 本批次提前分配过 id 的实体
+     */
+    public void clearAssigned(Collection<?> entities) {
+        Set<Object> assigned = ASSIGNED.get();
+        // 按引用逐个移除, Set.removeAll 可能改用参数集合的 equals 比较
+        for (Object entity : entities) {
+            assigned.remove(entity);
+        }
+        if (assigned.isEmpty()) {
+            ASSIGNED.remove();
+        }
+    }
+
+    /**
+     * 生成并设置实体 id
+     * @param entity 实体
+     * @return 生成的 id
+     */
+    private String generateId(BaseEntity entity) {
+        if (!entity.getClass().getPackage().getName().equals(baseEntityPackage)){
+            throw new RuntimeException("请将实体类 "+ entity.getClass() +" 放至 " + baseEntityPackage + " 包下");
         }
+        long longId = snowflake.nextId();
+        // 编码实体id
+        String entityId = JpaIdUtil.encodeEntityId(entity.getClass(), longId, jpaProperties.getId().getFormat());
+        entity.setId(entityId);
+        return entityId;
     }
 
 
@@ -0,0 +1,70 @@
+package com.lzpeng.minimal.common.jpa.support;
+
+import cn.hutool.core.util.StrUtil;
+import com.lzpeng.minimal.common.core.util.StringConstant;
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 游标分页的游标, 由上一页最后一条数据的 (createTime, id) 组成
+ * 历史数据的 createTime 可能为空, 这些数据按 MySQL 的倒序规则排在最后, 此时游标只有 id
+ * 对外表现为不透明的 url 安全 Base64 字符串
+ * @author: Lzpeng
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+
+    /**
+     * 上一页最后一条数据的创建时间, 为空时只按 id 翻页
+     */
+    private final Date createTime;
+
+    /**
+     * 上一页最后一条数据的 id
+     */
+    private final String id;
+
+    /**
+     * 由实体生成游标
+     * @param entity 上一页最后一条数据
+     * @return 游标
+     */
+    public static KeysetCursor of(BaseEntity entity) {
+        return new KeysetCursor(entity.getCreateTime(), entity.getId());
+    }
+
+    /**
+     * 编码为字符串
+     * @return 游标字符串
+     */
+    public String encode() {
+        String raw = (createTime == null ? "" : String.valueOf(createTime.getTime())) + StringConstant.DELIMITER + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标字符串
+     * @param token 游标字符串
+     * @return 游标, 字符串为空时返回 null
+     */
+    public static KeysetCursor decode(String token) {
+        if (StrUtil.isBlank(token)) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // 时间戳中不含分隔符, 只按第一个分隔符拆分
+            int index = raw.indexOf(StringConstant.DELIMITER);
+            Date createTime = index == 0 ? null : new Date(Long.parseLong(raw.substring(0, index)));
+            return new KeysetCursor(createTime, raw.substring(index + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的游标: " + token, e);
+        }
+    }
+}
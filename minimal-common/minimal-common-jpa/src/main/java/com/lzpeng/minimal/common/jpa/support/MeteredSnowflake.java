@@ -0,0 +1,120 @@
+package com.lzpeng.minimal.common.jpa.support;
+
+import cn.hutool.core.lang.Snowflake;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 统计序列号耗尽的 snowflake
+ * 同一毫秒内 4096 个序列号用完后, 生成 id 需等待到下一毫秒, 此时计数 minimal.jpa.snowflake.sequence.exhausted
+ * 使用 {@link WorkerIdAllocator} 时每次生成 id 前检查租约, 租约失效时抛出异常拒绝生成, 改用新的 worker id 后从新的 worker id 继续生成
+ * @author: Lzpeng
+ */
+public class MeteredSnowflake extends Snowflake {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 序列号位数
+     */
+    private static final int SEQUENCE_BITS = 12;
+
+    /**
+     * 序列号掩码
+     */
+    private static final long SEQUENCE_MASK = ~(-1L << SEQUENCE_BITS);
+
+    /**
+     * worker id 低位部分的数量
+     */
+    private static final int WORKER_PART = 32;
+
+    /**
+     * 时间戳左移位数
+     */
+    private static final int TIMESTAMP_SHIFT = 22;
+
+    /**
+     * 序列号耗尽次数, 没有 MeterRegistry 时为 null
+     */
+    private final transient Counter exhausted;
+
+    /**
+     * 上一次生成的 id
+     */
+    private long lastId;
+
+    /**
+     * worker id 分配器, 固定 worker id 时为 null
+     */
+    private final transient WorkerIdAllocator workerIdAllocator;
+
+    /**
+     * 改用新的 worker id 后使用的 snowflake, 与构造时的 worker id 相同时使用父类生成
+     */
+    private transient Snowflake delegate;
+
+    /**
+     * delegate 的 worker id
+     */
+    private int delegateWorkerId;
+
+    /**
+     * 构造时的 worker id
+     */
+    private final int initialWorkerId;
+
+    /**
+     * @param workerId 终端ID
+     * @param datacenterId 数据中心ID
+     * @param meterRegistry 指标注册表, 可以为 null
+     */
+    public MeteredSnowflake(long workerId, long datacenterId, MeterRegistry meterRegistry) {
+        this(workerId, datacenterId, meterRegistry, null);
+    }
+
+    /**
+     * @param workerIdAllocator worker id 分配器, 生成 id 前检查租约
+     * @param meterRegistry 指标注册表, 可以为 null
+     */
+    public MeteredSnowflake(WorkerIdAllocator workerIdAllocator, MeterRegistry meterRegistry) {
+        this(workerIdAllocator.getSnowflakeWorkerId(), workerIdAllocator.getSnowflakeDatacenterId(), meterRegistry, workerIdAllocator);
+    }
+
+    private MeteredSnowflake(long workerId, long datacenterId, MeterRegistry meterRegistry, WorkerIdAllocator workerIdAllocator) {
+        super(workerId, datacenterId);
+        this.workerIdAllocator = workerIdAllocator;
+        this.initialWorkerId = (int) (datacenterId * WORKER_PART + workerId);
+        this.exhausted = meterRegistry == null ? null : Counter.builder("minimal.jpa.snowflake.sequence.exhausted")
+                .description("snowflake 序列号耗尽, 等待下一毫秒的次数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public synchronized long nextId() {
+        long id = workerIdAllocator == null ? super.nextId() : nextLeasedId();
+        // 上一个 id 用完了该毫秒的最后一个序列号, 当前 id 从下一毫秒的 0 开始
+        if (exhausted != null && (lastId & SEQUENCE_MASK) == SEQUENCE_MASK && (id & SEQUENCE_MASK) == 0
+                && (id >>> TIMESTAMP_SHIFT) == (lastId >>> TIMESTAMP_SHIFT) + 1) {
+            exhausted.increment();
+        }
+        lastId = id;
+        return id;
+    }
+
+    /**
+     * 使用当前租用的 worker id 生成 id
+     * @return id
+     */
+    private long nextLeasedId() {
+        int workerId = workerIdAllocator.getLeasedWorkerId();
+        if (workerId == initialWorkerId) {
+            return super.nextId();
+        }
+        if (delegate == null || delegateWorkerId != workerId) {
+            delegate = new Snowflake(workerId % WORKER_PART, workerId / WORKER_PART);
+            delegateWorkerId = workerId;
+        }
+        return delegate.nextId();
+    }
+}
@@ -0,0 +1,97 @@
+package com.lzpeng.minimal.common.jpa.support;
+
+import cn.hutool.core.exceptions.UtilException;
+import cn.hutool.core.util.TypeUtil;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 泛型参数注册表
+ * Service, Controller, 枚举转换器 的泛型参数(实体类型, 左树类型, 枚举类型)每个类只解析一次
+ * 同时缓存实体的无参构造器
+ * @author: Lzpeng
+ */
+public final class TypeArgumentRegistry {
+
+    /**
+     * 类 与 泛型参数缓存, 无法解析为 Class 的泛型参数为 null
+     */
+    private static final Map<Class<?>, Class<?>[]> TYPE_ARGUMENT_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 类 与 无参构造器缓存
+     */
+    private static final Map<Class<?>, Constructor<?>> CONSTRUCTOR_CACHE = new ConcurrentHashMap<>();
+
+    private TypeArgumentRegistry() {
+    }
+
+    /**
+     * 得到类的第 index 个泛型参数
+     * @param clazz 继承了泛型父类的类
+     * @param index 泛型参数位置
+     * @param <T> 泛型参数类型
+     * @return 泛型参数, 不存在或不是 Class 时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Class<T> getTypeArgument(Class<?> clazz, int index) {
+        Class<?>[] typeArguments = TYPE_ARGUMENT_CACHE.computeIfAbsent(clazz, TypeArgumentRegistry::resolveTypeArguments);
+        return index < typeArguments.length ? (Class<T>) typeArguments[index] : null;
+    }
+
+    /**
+     * 得到类的第一个泛型参数
+     * @param clazz 继承了泛型父类的类
+     * @param <T> 泛型参数类型
+     * @return 泛型参数, 不存在或不是 Class 时返回 null
+     */
+    public static <T> Class<T> getTypeArgument(Class<?> clazz) {
+        return getTypeArgument(clazz, 0);
+    }
+
+    /**
+     * 使用缓存的无参构造器创建实例
+     * @param clazz 实例类型
+     * @param <T> 实例类型
+     * @return 新实例
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T newInstance(Class<T> clazz) {
+        Constructor<T> constructor = (Constructor<T>) CONSTRUCTOR_CACHE.computeIfAbsent(clazz, key -> {
+            try {
+                Constructor<?> declared = key.getDeclaredConstructor();
+                declared.setAccessible(true);
+                return declared;
+            } catch (NoSuchMethodException e) {
+                throw new UtilException(e, "{} 没有无参构造器", key.getName());
+            }
+        });
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new UtilException(e, "实例化 {} 失败", clazz.getName());
+        }
+    }
+
+    /**
+     * 解析类的所有泛型参数
+     * @param clazz 继承了泛型父类的类
+     * @return 泛型参数
+     */
+    private static Class<?>[] resolveTypeArguments(Class<?> clazz) {
+        Type[] types = TypeUtil.getTypeArguments(clazz);
+        if (types == null) {
+            return new Class<?>[0];
+        }
+        Class<?>[] classes = new Class<?>[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] instanceof Class) {
+                classes[i] = (Class<?>) types[i];
+            }
+        }
+        return classes;
+    }
+}
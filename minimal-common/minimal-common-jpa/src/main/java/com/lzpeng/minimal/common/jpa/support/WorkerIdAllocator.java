@@ -0,0 +1,250 @@
+package com.lzpeng.minimal.common.jpa.support;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.RuntimeUtil;
+import cn.hutool.system.SystemUtil;
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * snowflake worker id 分配器
+ * 每个运行中的实例独占一个 worker id(0 至 1023, 拆分为 snowflake 的 datacenterId 和 workerId), 避免多副本生成重复 id
+ * 优先使用 nacos 实例元数据 spring.cloud.nacos.discovery.metadata.worker-id 指定的 worker id,
+ * 未指定时从数据库租约表租用, 定时续约, 实例关闭时释放, 超过有效时间未续约的 worker id 可被其他实例回收
+ * 租约的过期时间统一使用数据库时钟(MySQL), 不比较各主机的系统时钟
+ * 本地从最后一次续约请求发出时起计算租约有效期, 超过有效期或发现租约被其他实例占用时 {@link #getLeasedWorkerId()} 拒绝生成 id,
+ * 直到续约成功或租用到新的 worker id
+ * @author: Lzpeng
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "minimal.jpa.worker", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class WorkerIdAllocator {
+
+    /**
+     * snowflake 每部分的 id 数量 (5 位)
+     */
+    private static final int MAX_PART_ID = 32;
+
+    /**
+     * 可分配的 worker id 数量
+     */
+    public static final int MAX_WORKER_ID = MAX_PART_ID * MAX_PART_ID;
+
+    /**
+     * nacos 实例元数据中的 worker id
+     */
+    private static final String METADATA_WORKER_ID = "spring.cloud.nacos.discovery.metadata.worker-id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final MinimalJpaProperties.Worker properties;
+
+    /**
+     * 当前实例标识 主机名:进程号:随机数
+     */
+    private final String instanceId;
+
+    /**
+     * 分配的 worker id, 租约被占用后重新租用时改变
+     */
+    private volatile int workerId;
+
+    /**
+     * 本地租约截止时间 System.nanoTime
+     */
+    private volatile long leaseDeadline;
+
+    /**
+     * 租约是否已被其他实例占用
+     */
+    private volatile boolean lost;
+
+    /**
+     * 是否从租约表租用, 需要续约和释放
+     */
+    private final boolean leased;
+
+    public WorkerIdAllocator(JdbcTemplate jdbcTemplate, MinimalJpaProperties jpaProperties, Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = jpaProperties.getWorker();
+        this.instanceId = SystemUtil.getHostInfo().getName() + ":" + RuntimeUtil.getPid() + ":" + IdUtil.fastSimpleUUID().substring(0, 8);
+        String metadataWorkerId = environment.getProperty(METADATA_WORKER_ID);
+        if (metadataWorkerId != null) {
+            this.workerId = Integer.parseInt(metadataWorkerId.trim());
+            if (workerId < 0 || workerId >= MAX_WORKER_ID) {
+                throw new IllegalArgumentException(METADATA_WORKER_ID + " 必须在 0 至 " + (MAX_WORKER_ID - 1) + " 之间: " + metadataWorkerId);
+            }
+            this.leased = false;
+        } else {
+            createTableIfAbsent();
+            long start = System.nanoTime();
+            this.workerId = lease();
+            this.leaseDeadline = start + TimeUnit.MILLISECONDS.toNanos(properties.getLeaseTtl());
+            this.leased = true;
+        }
+        log.info("实例 {} 使用 worker id {} (datacenterId={}, workerId={}), 来源: {}", instanceId, workerId,
+                getSnowflakeDatacenterId(), getSnowflakeWorkerId(), leased ? "租约表" : "nacos 元数据");
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("minimal.jpa.snowflake.worker", this, WorkerIdAllocator::getWorkerId)
+                    .description("当前实例分配的 snowflake worker id")
+                    .tag("source", leased ? "lease" : "metadata")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * @return 分配的 worker id, 0 至 1023
+     */
+    public int getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * 得到可用于生成 id 的 worker id
+     * @return 分配的 worker id
+     * @throws IllegalStateException 租约已被其他实例占用, 或超过有效期仍未续约成功
+     */
+    public int getLeasedWorkerId() {
+        if (leased) {
+            if (lost) {
+                throw new IllegalStateException("worker id " + workerId + " 的租约已被其他实例占用, 等待租用新的 worker id");
+            }
+            if (System.nanoTime() - leaseDeadline > 0) {
+                throw new IllegalStateException("worker id " + workerId + " 的租约已过期, 等待续约");
+            }
+        }
+        return workerId;
+    }
+
+    /**
+     * @return snowflake 的 workerId, worker id 的低 5 位
+     */
+    public long getSnowflakeWorkerId() {
+        return workerId % MAX_PART_ID;
+    }
+
+    /**
+     * @return snowflake 的 datacenterId, worker id 的高 5 位
+     */
+    public long getSnowflakeDatacenterId() {
+        return workerId / MAX_PART_ID;
+    }
+
+    /**
+     * 定时续约, 租约已过期且未被其他实例占用时重新占用
+     * 已被其他实例占用时停止生成 id, 并租用新的 worker id
+     */
+    @Scheduled(initialDelayString = "${minimal.jpa.worker.heartbeat-interval:20000}", fixedDelayString = "${minimal.jpa.worker.heartbeat-interval:20000}")
+    public void heartbeat() {
+        if (!leased) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (!lost) {
+                long now = currentTimeMillis();
+                int count = jdbcTemplate.update(String.format("update %s set instance_id = ?, expire_at = ? where worker_id = ? and (instance_id = ? or expire_at < ?)", properties.getTable()),
+                        instanceId, now + properties.getLeaseTtl(), workerId, instanceId, now);
+                if (count == 1) {
+                    leaseDeadline = start + TimeUnit.MILLISECONDS.toNanos(properties.getLeaseTtl());
+                    return;
+                }
+                lost = true;
+                log.error("worker id {} 的租约已被其他实例占用, 停止生成 id 并租用新的 worker id", workerId);
+            }
+            int newWorkerId = lease();
+            leaseDeadline = start + TimeUnit.MILLISECONDS.toNanos(properties.getLeaseTtl());
+            workerId = newWorkerId;
+            lost = false;
+            log.warn("实例 {} 改用 worker id {}", instanceId, newWorkerId);
+        } catch (DataAccessException | IllegalStateException e) {
+            // 租约在本地有效期内仍然有效, 下次续约时重试
+            log.warn("worker id {} 续约失败: {}", workerId, e.getMessage());
+        }
+    }
+
+    /**
+     * 实例关闭时释放租约
+     */
+    @PreDestroy
+    public void release() {
+        if (!leased || lost) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(String.format("delete from %s where worker_id = ? and instance_id = ?", properties.getTable()), workerId, instanceId);
+        } catch (DataAccessException e) {
+            log.warn("worker id {} 释放失败, 将在租约过期后被回收: {}", workerId, e.getMessage());
+        }
+    }
+
+    /**
+     * 创建租约表
+     */
+    private void createTableIfAbsent() {
+        jdbcTemplate.execute(String.format("create table if not exists %s (" +
+                "worker_id int not null primary key, " +
+                "instance_id varchar(128) not null, " +
+                "expire_at bigint not null)", properties.getTable()));
+    }
+
+    /**
+     * 租用一个 worker id
+     * 一次查询所有租约, 依次尝试插入未被租用的 worker id 或按原过期时间更新已过期的 worker id, 冲突时尝试下一个
+     * @return 租用的 worker id
+     */
+    private int lease() {
+        Map<Integer, Long> expireAts = new HashMap<>();
+        jdbcTemplate.query(String.format("select worker_id, expire_at from %s", properties.getTable()),
+                (RowCallbackHandler) rs -> expireAts.put(rs.getInt(1), rs.getLong(2)));
+        long now = currentTimeMillis();
+        long expireAt = now + properties.getLeaseTtl();
+        for (int id = 0; id < MAX_WORKER_ID; id++) {
+            Long storedExpireAt = expireAts.get(id);
+            if (storedExpireAt == null) {
+                try {
+                    jdbcTemplate.update(String.format("insert into %s (worker_id, instance_id, expire_at) values (?, ?, ?)", properties.getTable()), id, instanceId, expireAt);
+                    return id;
+                } catch (DuplicateKeyException e) {
+                    // 被其他实例抢先租用
+                    continue;
+                }
+            }
+            if (storedExpireAt < now && jdbcTemplate.update(String.format("update %s set instance_id = ?, expire_at = ? where worker_id = ? and expire_at = ?", properties.getTable()),
+                    instanceId, expireAt, id, storedExpireAt) == 1) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("没有可用的 worker id, " + MAX_WORKER_ID + " 个 worker id 均已被租用");
+    }
+
+    /**
+     * 得到数据库当前时间, 所有实例的租约使用同一个时钟
+     * @return 数据库当前时间 毫秒
+     */
+    private long currentTimeMillis() {
+        Long now = jdbcTemplate.queryForObject("select round(unix_timestamp(now(3)) * 1000)", Long.class);
+        if (now == null) {
+            throw new IllegalStateException("无法获取数据库时间");
+        }
+        return now;
+    }
+}
@@ -3,13 +3,22 @@ package com.lzpeng.minimal.common.jpa.util;
 import com.lzpeng.minimal.common.core.domain.ProjectInfo;
 import com.lzpeng.minimal.common.core.util.RadixNumberUtils;
 import com.lzpeng.minimal.common.core.util.StringConstant;
+import com.lzpeng.minimal.common.jpa.domain.enums.EntityIdFormat;
 
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 
 /**
  * 进制编码解码工具
+ * 实体 id 格式为 编码后的包名_编码后的类名_62进制的snowflake雪花id
+ * 每个实体类的前缀(编码后的包名_编码后的类名)只计算一次, 雪花id 通过查表在 char[] 上编码, 解码时不经过 BigInteger
+ * 格式见 {@link EntityIdFormat}
  * @author: Lzpeng
  */
 public class JpaIdUtil {
@@ -36,11 +45,72 @@ public class JpaIdUtil {
      * 实体类必须符合的正则表达式
      */
     private static final String PATTERN = "^" + ProjectInfo.get().getBaseProjectPackage() +".([a-z]+).domain.entity.([A-Z][a-zA-Z]+)$";
+    /**
+     * 预编译的实体类正则表达式
+     */
+    private static final Pattern ENTITY_CLASS_PATTERN = Pattern.compile(PATTERN);
     /**
      * 类名模板
      */
     private static final String FORMAT = ProjectInfo.get().getBaseProjectPackage() + ".%s.domain.entity.%s";
 
+    /**
+     * 进制数
+     */
+    private static final int RADIX = DEFAULT_DIGITS.length();
+
+    /**
+     * 编码字符表, 下标为数值
+     */
+    private static final char[] DIGIT_CHARS = DEFAULT_DIGITS.toCharArray();
+
+    /**
+     * 解码表, 下标为字符, 值为数值, 非法字符为 -1
+     */
+    private static final byte[] DIGIT_VALUES = new byte[128];
+
+    /**
+     * long 最多的编码位数
+     */
+    private static final int MAX_LONG_DIGITS = 11;
+
+    /**
+     * 可排序格式的进制数, 数字和小写字母在大小写不敏感的排序规则下顺序不变
+     */
+    private static final int SORTABLE_RADIX = 36;
+
+    /**
+     * 可排序格式雪花id 的固定位数, long 最大值的 36 进制位数
+     */
+    private static final int SORTABLE_WIDTH = 13;
+
+    /**
+     * 实体类 与 id 前缀(编码后的包名_编码后的类名_)
+     */
+    private static final Map<Class<?>, String> PREFIX_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 实体类 与 可排序格式的 id 前缀(编码后的包名_类名的CRC32_)
+     */
+    private static final Map<Class<?>, String> SORTABLE_PREFIX_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * id 前缀(编码后的包名_编码后的类名) 与 实体类全路径
+     */
+    private static final Map<String, String> CLASS_NAME_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 每个线程复用的编码缓冲区
+     */
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[64]);
+
+    static {
+        Arrays.fill(DIGIT_VALUES, (byte) -1);
+        for (int i = 0; i < DIGIT_CHARS.length; i++) {
+            DIGIT_VALUES[DIGIT_CHARS[i]] = (byte) i;
+        }
+    }
+
     /**
      * 对数字编码
      * @param number 要编码的10进制数字
@@ -94,7 +164,7 @@ public class JpaIdUtil {
      * @return 编码后的结果
      */
     private static String encodeEntityClazz(String clazzName){
-        Matcher matcher = Pattern.compile(PATTERN).matcher(clazzName);
+        Matcher matcher = ENTITY_CLASS_PATTERN.matcher(clazzName);
         if (matcher.matches()) {
             // 包名
             String packageName = matcher.group(1);
@@ -158,12 +228,95 @@ public class JpaIdUtil {
     }
 
     /**
-     * 对数字解码
+     * 对数字解码, 查表累加, 超出 long 范围时才使用 BigInteger
+     * 固定 13 位的为可排序格式的 36 进制, 其余为 62 进制
      * @param str 编码后的字符串
+     * @param from 开始位置(包含)
+     * @param to 结束位置(不包含)
      * @return 解码为snowflake雪花id
      */
-    private static Number decodeNumber(String str){
-        return RadixNumberUtils.parseBigInteger(str, DEFAULT_DIGITS.length(), DEFAULT_DIGITS);
+    private static Number decodeNumber(String str, int from, int to){
+        if (from >= to) {
+            throw new IllegalArgumentException("实体id不合法: " + str);
+        }
+        // 36 进制的字符与 62 进制的前 36 个字符相同
+        int radix = to - from == SORTABLE_WIDTH ? SORTABLE_RADIX : RADIX;
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            char ch = str.charAt(i);
+            int digit = ch < DIGIT_VALUES.length ? DIGIT_VALUES[ch] : -1;
+            if (digit < 0 || digit >= radix) {
+                throw new IllegalArgumentException("实体id不合法: " + str);
+            }
+            if (result > (Long.MAX_VALUE - digit) / radix) {
+                return RadixNumberUtils.parseBigInteger(str.substring(from, to), radix, DEFAULT_DIGITS);
+            }
+            result = result * radix + digit;
+        }
+        return result;
+    }
+
+    /**
+     * 类名的 CRC32 转为 36 进制, 最多 7 位
+     * @param clazz 实体类
+     * @return 类名的 CRC32
+     */
+    private static String hashClazzName(Class<?> clazz){
+        CRC32 crc32 = new CRC32();
+        crc32.update(clazz.getSimpleName().getBytes(StandardCharsets.UTF_8));
+        return Long.toString(crc32.getValue(), SORTABLE_RADIX);
+    }
+
+    /**
+     * 得到实体类的 id 前缀, 每个实体类只计算一次
+     * @param clazz 实体类
+     * @return 编码后的包名_编码后的类名_
+     */
+    public static String getEntityIdPrefix(Class<?> clazz){
+        return PREFIX_CACHE.computeIfAbsent(clazz, key -> {
+            String encodeClazzName = encodeEntityClazz(key);
+            CLASS_NAME_CACHE.putIfAbsent(encodeClazzName, key.getName());
+            return encodeClazzName + DELIMITER;
+        });
+    }
+
+    /**
+     * 得到实体类指定格式的 id 前缀, 每个实体类只计算一次
+     * @param clazz 实体类
+     * @param format id 格式
+     * @return id 前缀, 以分隔符结尾
+     */
+    public static String getEntityIdPrefix(Class<?> clazz, EntityIdFormat format){
+        if (format != EntityIdFormat.SORTABLE) {
+            return getEntityIdPrefix(clazz);
+        }
+        return SORTABLE_PREFIX_CACHE.computeIfAbsent(clazz, key -> {
+            String packagePrefix = getEntityIdPrefix(key);
+            // 编码后的包名 与 默认格式相同
+            String encodeClazzName = packagePrefix.substring(0, packagePrefix.indexOf(DELIMITER) + 1) + hashClazzName(key);
+            String registered = CLASS_NAME_CACHE.putIfAbsent(encodeClazzName, key.getName());
+            if (registered != null && !registered.equals(key.getName())) {
+                throw new IllegalStateException("实体类 " + key.getName() + " 与 " + registered + " 的 id 前缀冲突: " + encodeClazzName);
+            }
+            return encodeClazzName + DELIMITER;
+        });
+    }
+
+    /**
+     * 注册实体类, 使可排序格式的 id 可以解码出实体类
+     * @param clazz 实体类
+     */
+    public static void registerEntityClass(Class<?> clazz){
+        getEntityIdPrefix(clazz, EntityIdFormat.SORTABLE);
+    }
+
+    /**
+     * 得到实体id 的格式
+     * @param encodeId 编码后的实体id
+     * @return id 格式
+     */
+    public static EntityIdFormat getEntityIdFormat(String encodeId){
+        return encodeId.length() - encodeId.lastIndexOf(DELIMITER) - 1 == SORTABLE_WIDTH ? EntityIdFormat.SORTABLE : EntityIdFormat.DEFAULT;
     }
 
     /**
@@ -174,9 +327,116 @@ public class JpaIdUtil {
      * @return 实体编码后的字符串
      */
     public static <T> String encodeEntityId(Class<T> clazz,Number id){
-        String encodeClazzName = encodeEntityClazz(clazz);
-        String encodeId = encodeNumber(id);
-        return String.join(DELIMITER, encodeClazzName, encodeId);
+        if (id instanceof BigInteger) {
+            return getEntityIdPrefix(clazz) + encodeNumber(id);
+        }
+        return encodeEntityId(clazz, id.longValue());
+    }
+
+    /**
+     * 编码实体Id, 前缀和雪花id 写入线程复用的 char[] 后一次生成字符串
+     * @param clazz 实体类
+     * @param id snowflake雪花id
+     * @return 实体编码后的字符串
+     */
+    public static String encodeEntityId(Class<?> clazz, long id){
+        if (id < 0) {
+            return getEntityIdPrefix(clazz) + encodeNumber(id);
+        }
+        return writeEntityId(getEntityIdPrefix(clazz), id, RADIX, 0);
+    }
+
+    /**
+     * 按指定格式编码实体Id
+     * @param clazz 实体类
+     * @param id snowflake雪花id
+     * @param format id 格式
+     * @return 实体编码后的字符串
+     */
+    public static String encodeEntityId(Class<?> clazz, long id, EntityIdFormat format){
+        if (format != EntityIdFormat.SORTABLE) {
+            return encodeEntityId(clazz, id);
+        }
+        if (id < 0) {
+            throw new IllegalArgumentException("可排序格式不支持负数雪花id: " + id);
+        }
+        return writeEntityId(getEntityIdPrefix(clazz, format), id, SORTABLE_RADIX, SORTABLE_WIDTH);
+    }
+
+    /**
+     * 前缀和雪花id 写入线程复用的 char[] 后一次生成字符串
+     * @param prefix id 前缀
+     * @param id 非负的snowflake雪花id
+     * @param radix 进制数
+     * @param width 雪花id 补 0 至此位数, 0 表示不补
+     * @return 实体编码后的字符串
+     */
+    private static String writeEntityId(String prefix, long id, int radix, int width){
+        int length = prefix.length() + Math.max(MAX_LONG_DIGITS, width);
+        char[] buf = BUFFER.get();
+        if (buf.length < length) {
+            buf = new char[length];
+            BUFFER.set(buf);
+        }
+        // 从后向前写入雪花id
+        int pos = length;
+        do {
+            buf[--pos] = DIGIT_CHARS[(int) (id % radix)];
+            id /= radix;
+        } while (id > 0);
+        while (length - pos < width) {
+            buf[--pos] = DIGIT_CHARS[0];
+        }
+        int start = pos - prefix.length();
+        prefix.getChars(0, prefix.length(), buf, start);
+        return new String(buf, start, length - start);
+    }
+
+    /**
+     * 得到实体id 的类全路径, 不解码雪花id
+     * @param encodeId 编码后的实体id
+     * @return 实体类全路径
+     */
+    public static String getEntityClassName(String encodeId){
+        int end = encodeId.lastIndexOf(DELIMITER);
+        if (end <= 0) {
+            throw new IllegalArgumentException("实体id不合法: " + encodeId);
+        }
+        return getEntityClassName(encodeId, end);
+    }
+
+    /**
+     * 根据 id 前缀得到实体类全路径, 每个前缀只解码一次
+     * @param encodeId 编码后的实体id
+     * @param end 前缀结束位置(不包含)
+     * @return 实体类全路径
+     */
+    private static String getEntityClassName(String encodeId, int end){
+        String encodeClazzName = encodeId.substring(0, end);
+        String clazzName = CLASS_NAME_CACHE.get(encodeClazzName);
+        if (clazzName == null) {
+            if (encodeClazzName.indexOf(DELIMITER) <= 0) {
+                throw new IllegalArgumentException("实体id不合法: " + encodeId);
+            }
+            if (encodeId.length() - end - 1 == SORTABLE_WIDTH) {
+                throw new IllegalArgumentException("可排序格式的实体id前缀未注册: " + encodeId);
+            }
+            clazzName = CLASS_NAME_CACHE.computeIfAbsent(encodeClazzName, JpaIdUtil::decodeEntityClazz);
+        }
+        return clazzName;
+    }
+
+    /**
+     * 解码实体id 中的雪花id
+     * @param encodeId 编码后的实体id
+     * @return snowflake雪花id
+     */
+    public static long getSnowflakeId(String encodeId){
+        int end = encodeId.lastIndexOf(DELIMITER);
+        if (end <= 0) {
+            throw new IllegalArgumentException("实体id不合法: " + encodeId);
+        }
+        return decodeNumber(encodeId, end + 1, encodeId.length()).longValue();
     }
 
     /**
@@ -185,11 +445,13 @@ public class JpaIdUtil {
      * @return 实体类名:snowID
      */
     public static String decodeEntityId(String encodeId){
-        String[] encodes = encodeId.split("\\" + DELIMITER);
-        String packageName = decodePackageName(encodes[0]);
-        String clazzName = decodeClazzName(encodes[1]);
-        Number longId = decodeNumber(encodes[2]);
-        return String.format(FORMAT, packageName, clazzName) + ":" + longId;
+        int end = encodeId.lastIndexOf(DELIMITER);
+        if (end <= 0) {
+            throw new IllegalArgumentException("实体id不合法: " + encodeId);
+        }
+        String clazzName = getEntityClassName(encodeId, end);
+        Number longId = decodeNumber(encodeId, end + 1, encodeId.length());
+        return clazzName + ":" + longId;
     }
 
 }
@@ -1,12 +1,14 @@
 package com.lzpeng.minimal.common.jpa.util;
 
+import com.lzpeng.minimal.common.core.util.BeanAccessor;
 import com.lzpeng.minimal.common.jpa.domain.entity.TreeEntity;
-import org.springframework.util.CollectionUtils;
+import com.lzpeng.minimal.common.jpa.support.TypeArgumentRegistry;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
+ * 树形结构工具类
+ * 以 id 为键建立索引, 查找父节点和去重都不依赖 equals, 时间复杂度为 O(n)
  * @date: 2020/4/4
  * @time: 10:41
  * @author: Lzpeng
@@ -14,84 +16,107 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 public class TreeEntityUtil {
 
     /**
-     * 将每个实体的父节点也加入集合中去
-     * @param entities
-     * @return
+     * 按顺序号升序排列
      */
-    private static <Entity extends TreeEntity<Entity>> List<Entity> addParentToList(Collection<Entity> entities) {
-        // 因为是树形结构, 所以将每个实体的父节点也加入返回结果中
-        List<Entity> result = new ArrayList<>();
-        Queue<Entity> queue = new ConcurrentLinkedQueue<>(entities);
-        while (!queue.isEmpty()) {
-            //出队
-            Entity child = queue.remove();
-            if (child.getParent() != null) {
-                //入队
-                queue.offer(child.getParent());
-            }
-            // 避免重复元素
-            if (!result.contains(child)) {
-                result.add(child);
+    private static final Comparator<TreeEntity<?>> ORDER_NUM_COMPARATOR = Comparator.comparingInt(TreeEntity::getOrderNum);
+
+    /**
+     * 将每个实体及其祖先节点按 id 加入索引
+     * 沿父节点向上查找, 遇到已在索引中的节点即停止, 每个节点只访问一次
+     * @param entities 实体集合
+     * @return id 与 实体, 保持遍历顺序
+     */
+    private static <Entity extends TreeEntity<Entity>> Map<String, Entity> indexWithAncestors(Collection<Entity> entities) {
+        Map<String, Entity> index = new LinkedHashMap<>(entities.size() * 2);
+        for (Entity entity : entities) {
+            Entity node = entity;
+            while (node != null && index.putIfAbsent(node.getId(), node) == null) {
+                node = node.getParent();
             }
         }
-        return result;
+        return index;
     }
 
     /**
-     * 设置子节点为空
-     *
-     * @param entities
-     * @return
+     * 将根节点及其所有子孙节点按 id 加入索引 BFS 遍历
+     * @param root 根节点
+     * @return id 与 实体, 保持遍历顺序
      */
-    private static <Entity extends TreeEntity<Entity>> List<Entity> setChildrenWithEmpty(List<Entity> entities) {
-        if (!CollectionUtils.isEmpty(entities)) {
-            for (Entity entity : entities) {
-                entity.getChildren().clear();
+    private static <Entity extends TreeEntity<Entity>> Map<String, Entity> indexWithDescendants(Entity root) {
+        Map<String, Entity> index = new LinkedHashMap<>();
+        Deque<Entity> queue = new ArrayDeque<>();
+        // 入队
+        queue.offer(root);
+        while (!queue.isEmpty()) {
+            // 出队
+            Entity parent = queue.poll();
+            if (index.putIfAbsent(parent.getId(), parent) == null) {
+                for (Entity child : parent.getChildren()) {
+                    // 入队
+                    queue.offer(child);
+                }
             }
         }
-        return entities;
+        return index;
     }
 
     /**
-     * TODO 将扁平化数据转为树形数据
-     * 类似最小生成树算法,通过节点列表，和节点之间的关系将扁平化数据生成树形数据,返回树根集合
-     *
-     * @param entities
-     * @return
+     * 重置子节点, 设置父节点ID, 并根据顺序号稳定排序
+     * @param index id 与 实体
+     * @return 扁平化结构数据
      */
-    private static <Entity extends TreeEntity<Entity>> List<Entity> convertFlatToTree(List<Entity> entities) {
-        List<Entity> result = new ArrayList<>();
-        // 收集所有实体 id
-        if (!CollectionUtils.isEmpty(entities)) {
-            for (Entity entity : entities) {
-                // 得到父节点
-                Entity parent = entity.getParent();
+    private static <Entity extends TreeEntity<Entity>> List<Entity> toFlatList(Map<String, Entity> index) {
+        List<Entity> result = new ArrayList<>(index.values());
+        for (Entity entity : result) {
+            // 替换而不是 clear, 避免初始化懒加载的子节点集合
+            entity.setChildren(new ArrayList<>());
+            Entity parent = entity.getParent();
+            // 代理对象取 id 不会触发加载
+            entity.setParentId(parent == null ? null : parent.getId());
+        }
+        result.sort(ORDER_NUM_COMPARATOR);
+        return result;
+    }
+
+    /**
+     * 将扁平化数据转为树形数据, 返回树根集合
+     * 通过 parentId 在索引中查找父节点, 一次遍历完成连接
+     * 扁平化数据已按顺序号排序, 因此同级节点的顺序即为顺序号顺序
+     * @param flat 已排序的扁平化数据
+     * @return 树根集合
+     */
+    private static <Entity extends TreeEntity<Entity>> List<Entity> linkFlatToTree(List<Entity> flat) {
+        Map<String, Entity> index = new HashMap<>(flat.size() * 2);
+        for (Entity entity : flat) {
+            index.put(entity.getId(), entity);
+        }
+        List<Entity> roots = new ArrayList<>();
+        for (Entity entity : flat) {
+            Entity parent = entity.getParentId() == null ? null : index.get(entity.getParentId());
+            if (parent == null) {
                 // 没有父节点说明是根节点 加入返回集合
-                if (parent == null) {
-                    result.add(entity);
-                } else {
-                    // 有父节点则将此节点设置子为其父节点的子节点
-                    parent.getChildren().add(entity);
-                }
+                roots.add(entity);
+            } else {
+                parent.getChildren().add(entity);
             }
         }
-        return result;
+        return roots;
     }
 
     /**
      * 根据顺序号升序排列
      * 设置父节点ID
-     * @param entities
+     * @param entities 树根集合
      */
     public static <Entity extends TreeEntity<Entity>> void sortTreeData(List<Entity> entities) {
-        // 根据顺序号排序
-        Queue<Entity> queue = new ConcurrentLinkedQueue<>(entities);
+        Deque<Entity> queue = new ArrayDeque<>(entities);
         while (!queue.isEmpty()) {
             // 出队
-            Entity parent = queue.remove();
+            Entity parent = queue.poll();
+            List<Entity> children = parent.getChildren();
             // 根据顺序号升序排列子节点
-            parent.getChildren().sort(Comparator.comparingInt(TreeEntity::getOrderNum));
-            for (Entity child : parent.getChildren()) {
+            children.sort(ORDER_NUM_COMPARATOR);
+            for (Entity child : children) {
                 // 设置父节点ID
                 child.setParentId(parent.getId());
                 // 入队
@@ -99,16 +124,7 @@ public class TreeEntityUtil {
             }
         }
         // 根据顺序号升序排列根节点
-        entities.sort(Comparator.comparingInt(TreeEntity::getOrderNum));
-    }
-
-    private static <Entity extends TreeEntity<Entity>> boolean check(Entity parent, Entity child) {
-        if (child.getParent() == null) {
-            return false;
-        }
-        String parentId = parent.getId();
-        String childParentId = child.getParent().getId();
-        return childParentId.equals(parentId);
+        entities.sort(ORDER_NUM_COMPARATOR);
     }
 
     /**
@@ -121,10 +137,7 @@ public class TreeEntityUtil {
         // 先构建扁平化数据
         List<Entity> result = flatData(entities);
         // 构建树形结构数据
-        result = convertFlatToTree(result);
-        // 排序
-        sortTreeData(result);
-        return result;
+        return linkFlatToTree(result);
     }
 
     /**
@@ -134,20 +147,7 @@ public class TreeEntityUtil {
      * @return 扁平化结构数据
      */
     public static <Entity extends TreeEntity<Entity>> List<Entity> flatData(Collection<Entity> entities){
-        // 将每个节点的父节点也加入集合中去
-        List<Entity> result = addParentToList(entities);
-        // 并删除所有的Children
-        result = setChildrenWithEmpty(result);
-        // 排序
-        result.sort(Comparator.comparingInt(TreeEntity::getOrderNum));
-        // 设置父节点ID
-        for (Entity entity : result) {
-            Entity parent = entity.getParent();
-            if (parent != null) {
-                entity.setParentId(parent.getId());
-            }
-        }
-        return result;
+        return toFlatList(indexWithAncestors(entities));
     }
 
     /**
@@ -157,43 +157,96 @@ public class TreeEntityUtil {
      * @return 扁平化结构数据
      */
     public static <Entity extends TreeEntity<Entity>> List<Entity> flatData(Entity root){
-        // 将每个节点的父节点也加入集合中去
-        List<Entity> result = addChildToList(root);
-        // 并删除所有的Children
-        result = setChildrenWithEmpty(result);
-        // 排序
-        result.sort(Comparator.comparingInt(TreeEntity::getOrderNum));
-        // 设置父节点ID
-        for (Entity entity : result) {
-            Entity parent = entity.getParent();
-            if (parent != null) {
-                entity.setParentId(parent.getId());
+        return toFlatList(indexWithDescendants(root));
+    }
+
+    /**
+     * 复制树形结构, 每个节点复制为新实例, 父子关系指向副本, 子节点集合可修改
+     * 除 parent 和 children 外的字段为浅复制
+     * @param roots 树根集合
+     * @param <Entity> 树形结构实体类型
+     * @return 副本的树根集合
+     */
+    public static <Entity extends TreeEntity<Entity>> List<Entity> copyTree(List<Entity> roots) {
+        List<Entity> copies = new ArrayList<>(roots.size());
+        Deque<Entity> queue = new ArrayDeque<>();
+        Deque<Entity> copyQueue = new ArrayDeque<>();
+        for (Entity root : roots) {
+            Entity copy = copyNode(root, null);
+            copies.add(copy);
+            queue.offer(root);
+            copyQueue.offer(copy);
+        }
+        while (!queue.isEmpty()) {
+            Entity node = queue.poll();
+            Entity copy = copyQueue.poll();
+            List<Entity> children = new ArrayList<>(node.getChildren().size());
+            for (Entity child : node.getChildren()) {
+                Entity childCopy = copyNode(child, copy);
+                children.add(childCopy);
+                queue.offer(child);
+                copyQueue.offer(childCopy);
             }
+            copy.setChildren(children);
         }
-        return result;
+        return copies;
     }
 
     /**
-     * 将根节点的所有字节点加入集合
-     * @param root 根节点
-     * @param <Entity>
-     * @return
+     * 复制单个节点的字段
+     * @param node 节点
+     * @param parent 副本的父节点, 根节点为 null
+     * @param <Entity> 树形结构实体类型
+     * @return 副本
      */
-    private static <Entity extends TreeEntity<Entity>> List<Entity> addChildToList(Entity root) {
+    @SuppressWarnings("unchecked")
+    private static <Entity extends TreeEntity<Entity>> Entity copyNode(Entity node, Entity parent) {
+        Class<Entity> clazz = (Class<Entity>) node.getClass();
+        Entity copy = TypeArgumentRegistry.newInstance(clazz);
+        for (BeanAccessor.Property property : BeanAccessor.of(clazz).getProperties()) {
+            property.setDirectly(copy, property.get(node));
+        }
+        copy.setParent(parent);
+        return copy;
+    }
 
-        // 因为是树形结构, 所以将每个实体的子节点也加入返回结果中 BFS 遍历
-        List<Entity> result = new ArrayList<>();
-        Queue<Entity> queue = new ConcurrentLinkedQueue<>();
-        // 入队
-        queue.offer(root);
-        while (!queue.isEmpty()) {
-            // 出队
-            Entity parent = queue.remove();
-            for (Entity child : parent.getChildren()) {
-                // 入队
-                queue.offer(child);
+    /**
+     * 拼接节点的祖先路径
+     * @param parentPath 父节点的祖先路径, 根节点为 null
+     * @param id 节点 id
+     * @return 节点的祖先路径 /根节点id/.../父节点id/本节点id/
+     */
+    public static String buildTreePath(String parentPath, String id) {
+        String prefix = parentPath == null ? TreeEntity.PATH_SEPARATOR : parentPath;
+        return prefix + id + TreeEntity.PATH_SEPARATOR;
+    }
+
+    /**
+     * 从祖先路径中解析祖先节点 id, 不包含节点本身
+     * @param treePath 祖先路径
+     * @return 从根节点到父节点的 id
+     */
+    public static List<String> getAncestorIds(String treePath) {
+        if (treePath == null) {
+            return Collections.emptyList();
+        }
+        List<String> ids = new ArrayList<>();
+        for (String id : treePath.split(TreeEntity.PATH_SEPARATOR)) {
+            if (!id.isEmpty()) {
+                ids.add(id);
             }
         }
-        return result;
+        return ids.isEmpty() ? ids : ids.subList(0, ids.size() - 1);
+    }
+
+    /**
+     * 转义 like 通配符, 转义符为 !, 查询中须带 escape '!'
+     * id 中的 _ 会被 like 当作单字符通配符
+     * @param value 原始值
+     * @return 转义后的值
+     */
+    public static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
     }
+
 }
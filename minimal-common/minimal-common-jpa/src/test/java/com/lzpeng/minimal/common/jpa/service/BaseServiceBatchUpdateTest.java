@@ -0,0 +1,74 @@
+package com.lzpeng.minimal.common.jpa.service;
+
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
+import com.lzpeng.minimal.common.jpa.domain.enums.EntityIdFormat;
+import com.lzpeng.minimal.common.jpa.repository.BaseRepository;
+import com.lzpeng.minimal.common.jpa.util.JpaIdUtil;
+import com.lzpeng.minimal.system.domain.entity.Menu;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 批量更新单元测试
+ * 数据库中的 id 为可排序格式, 请求中的 id 为默认格式, 模拟切换 id 格式后读出的 id 与传入的 id 不同
+ * @author : Lzpeng
+ */
+class BaseServiceBatchUpdateTest {
+
+    private BaseRepository<Menu> baseRepository;
+
+    private BaseService<Menu> service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        JpaIdUtil.registerEntityClass(Menu.class);
+        baseRepository = mock(BaseRepository.class);
+        service = new BaseService<Menu>() {
+        };
+        service.baseRepository = baseRepository;
+        service.entityManager = mock(EntityManager.class);
+        service.jpaProperties = new MinimalJpaProperties();
+    }
+
+    /**
+     * 按雪花id 匹配更新的数据, 没有对应更新数据的行跳过
+     */
+    @Test
+    void matchBySnowflakeId() {
+        Menu stored = menu(JpaIdUtil.encodeEntityId(Menu.class, 42L, EntityIdFormat.SORTABLE), "old");
+        Menu unrequested = menu(JpaIdUtil.encodeEntityId(Menu.class, 44L, EntityIdFormat.SORTABLE), "other");
+        when(baseRepository.findAllById(any())).thenReturn(Arrays.asList(stored, unrequested));
+        Map<String, Menu> models = new HashMap<>();
+        models.put(JpaIdUtil.encodeEntityId(Menu.class, 42L, EntityIdFormat.DEFAULT), menu(null, "new"));
+        models.put(JpaIdUtil.encodeEntityId(Menu.class, 43L, EntityIdFormat.DEFAULT), menu(null, "missing"));
+
+        assertEquals(1, service.updateAllInBatch(models, 0));
+
+        assertEquals("new", stored.getName());
+        assertEquals("other", unrequested.getName());
+        verify(service.entityManager).flush();
+    }
+
+    /**
+     * 创建菜单
+     * @param id id
+     * @param name 名称
+     * @return 菜单
+     */
+    private static Menu menu(String id, String name) {
+        Menu menu = new Menu();
+        menu.setId(id);
+        menu.setName(name);
+        return menu;
+    }
+}
@@ -0,0 +1,142 @@
+package com.lzpeng.minimal.common.jpa.service;
+
+import com.lzpeng.minimal.common.core.response.QueryResult;
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+import com.lzpeng.minimal.common.jpa.domain.enums.CountMode;
+import com.lzpeng.minimal.common.jpa.support.CountCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分页总数统计方式单元测试
+ * 表统计信息固定为 1000, 精确统计固定为 42, 每页 2 条, 查询到 3 条表示有下一页
+ * @author : Lzpeng
+ */
+class BaseServiceCountModeTest {
+
+    /**
+     * 表统计信息估算的总数
+     */
+    private static final long ESTIMATE = 1000L;
+
+    /**
+     * 精确统计的总数
+     */
+    private static final long EXACT = 42L;
+
+    /**
+     * 每页行数
+     */
+    private static final int SIZE = 2;
+
+    /**
+     * 多查一条的查询结果
+     */
+    private final List<String> list = Arrays.asList("a", "b", "c");
+
+    /**
+     * 精确统计的执行次数
+     */
+    private final AtomicInteger counted = new AtomicInteger();
+
+    /**
+     * 估算的执行次数
+     */
+    private final AtomicInteger estimated = new AtomicInteger();
+
+    private BaseService<BaseEntity> service;
+
+    @BeforeEach
+    void setUp() {
+        service = new BaseService<BaseEntity>() {
+            @Override
+            protected Long estimateCount() {
+                estimated.incrementAndGet();
+                return ESTIMATE;
+            }
+        };
+        service.countCache = new CountCache(new MinimalJpaProperties());
+    }
+
+    /**
+     * 精确统计执行 count 查询
+     */
+    @Test
+    void exact() {
+        QueryResult<String> result = query(CountMode.EXACT, true, "exact");
+        assertEquals(EXACT, result.getTotal());
+        assertEquals(1, counted.get());
+        assertEquals(0, estimated.get());
+    }
+
+    /**
+     * 不统计时只根据多查的一条判断是否有下一页
+     */
+    @Test
+    void none() {
+        QueryResult<String> result = query(CountMode.NONE, true, "none");
+        assertEquals(QueryResult.UNKNOWN, result.getTotal());
+        assertEquals(QueryResult.UNKNOWN, result.getTotalPage());
+        assertTrue(result.isHasNext());
+        assertEquals(SIZE, result.getList().size());
+        assertEquals(0, counted.get());
+        assertEquals(0, estimated.get());
+    }
+
+    /**
+     * 缓存统计时相同条件只执行一次 count 查询
+     */
+    @Test
+    void cached() {
+        assertEquals(EXACT, query(CountMode.CACHED, true, "cached").getTotal());
+        assertEquals(EXACT, query(CountMode.CACHED, true, "cached").getTotal());
+        assertEquals(1, counted.get());
+        assertEquals(0, estimated.get());
+    }
+
+    /**
+     * 无查询条件时使用表统计信息
+     */
+    @Test
+    void estimatedWithoutFilter() {
+        QueryResult<String> result = query(CountMode.ESTIMATED, false, "estimated");
+        assertEquals(ESTIMATE, result.getTotal());
+        assertEquals(ESTIMATE / SIZE, result.getTotalPage());
+        assertEquals(1, estimated.get());
+        assertEquals(0, counted.get());
+    }
+
+    /**
+     * 有查询条件时表统计信息不准确, 同 CACHED
+     */
+    @Test
+    void estimatedWithFilter() {
+        QueryResult<String> result = query(CountMode.ESTIMATED, true, "estimated:filtered");
+        assertEquals(EXACT, result.getTotal());
+        assertEquals(0, estimated.get());
+        assertEquals(1, counted.get());
+    }
+
+    /**
+     * 查询第一页
+     * @param countMode 总数统计方式
+     * @param filtered 是否有查询条件
+     * @param countKey 总数缓存的 key
+     * @return 分页结果
+     */
+    private QueryResult<String> query(CountMode countMode, boolean filtered, String countKey) {
+        LongSupplier counter = () -> {
+            counted.incrementAndGet();
+            return EXACT;
+        };
+        return service.getQueryResult(list, 0, SIZE, countMode, filtered, countKey, counter);
+    }
+}
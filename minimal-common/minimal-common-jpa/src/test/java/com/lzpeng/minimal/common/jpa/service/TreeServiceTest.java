@@ -0,0 +1,307 @@
+package com.lzpeng.minimal.common.jpa.service;
+
+import cn.hutool.core.lang.Snowflake;
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
+import com.lzpeng.minimal.common.jpa.domain.dto.BatchModel;
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+import com.lzpeng.minimal.common.jpa.support.CountCache;
+import com.lzpeng.minimal.common.jpa.support.GenerateEntityIdListener;
+import com.lzpeng.minimal.common.jpa.util.JpaIdUtil;
+import com.lzpeng.minimal.common.jpa.util.TreeEntityUtil;
+import com.lzpeng.minimal.system.domain.entity.Menu;
+import com.lzpeng.minimal.system.domain.entity.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.Type;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 树形结构Service单元测试
+ * EntityManager 使用 mock, 记录 persist 的节点作为写入数据库的行
+ * @author : Lzpeng
+ */
+class TreeServiceTest {
+
+    /**
+     * 每批次的节点数量, 小于节点总数以覆盖跨批次的父节点
+     */
+    private static final int CHUNK_SIZE = 2;
+
+    /**
+     * persist 的节点, 按写入顺序
+     */
+    private final List<Menu> persisted = new ArrayList<>();
+
+    /**
+     * 数据库中的节点, id:祖先路径, 历史数据的祖先路径为 null
+     */
+    private final Map<String, String> treePaths = new LinkedHashMap<>();
+
+    /**
+     * 重建祖先路径时根据 parent_id 计算出的路径
+     */
+    private final Map<String, String> rebuiltPaths = new HashMap<>();
+
+    /**
+     * 按执行顺序记录的删除语句, 表名 + 本批次的 id
+     */
+    private final List<String> deletes = new ArrayList<>();
+
+    private int rebuildCount;
+
+    private EntityManager entityManager;
+
+    private TreeService<Menu> service;
+
+    @BeforeEach
+    void setUp() {
+        entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+        when(entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(any()))
+                .thenAnswer(invocation -> ((BaseEntity) invocation.getArgument(0)).getId());
+        doAnswer(invocation -> persisted.add(invocation.getArgument(0))).when(entityManager).persist(any());
+        // 之前批次的节点已游离, 使用引用
+        when(entityManager.getReference(eq(Menu.class), anyString())).thenAnswer(invocation -> {
+            Menu reference = new Menu();
+            reference.setId(invocation.getArgument(1));
+            return reference;
+        });
+        MinimalJpaProperties jpaProperties = new MinimalJpaProperties();
+        jpaProperties.getBatch().setChunkSize(CHUNK_SIZE);
+        GenerateEntityIdListener generateEntityIdListener = new GenerateEntityIdListener();
+        ReflectionTestUtils.setField(generateEntityIdListener, "snowflake", new Snowflake(1, 1));
+        ReflectionTestUtils.setField(generateEntityIdListener, "jpaProperties", jpaProperties);
+        mockQueries();
+        service = new TreeService<Menu>() {
+            @Override
+            public int rebuildTreePath() {
+                // 模拟根据 parent_id 补全祖先路径
+                rebuildCount++;
+                treePaths.putAll(rebuiltPaths);
+                return rebuiltPaths.size();
+            }
+        };
+        service.entityManager = entityManager;
+        service.jpaProperties = jpaProperties;
+        service.generateEntityIdListener = generateEntityIdListener;
+        service.countCache = new CountCache(jpaProperties);
+        // r ─┬─ a ─┬─ a1
+        //    │     └─ a2
+        //    └─ b ─── b1
+        // o
+        treePaths.put("r", "/r/");
+        treePaths.put("a", "/r/a/");
+        treePaths.put("a1", "/r/a/a1/");
+        treePaths.put("a2", "/r/a/a2/");
+        treePaths.put("b", "/r/b/");
+        treePaths.put("b1", "/r/b/b1/");
+        treePaths.put("o", "/o/");
+    }
+
+    /**
+     * 嵌套的树按层序保存, 父节点在子节点之前, 每个节点的 id 为新生成的 id, 祖先路径由这些 id 组成
+     */
+    @Test
+    void saveNestedTree() {
+        Menu root = menu("root", 0);
+        // 导入的数据带有 id, 新节点仍使用生成的 id
+        root.setId("imported-root");
+        for (int i = 0; i < 2; i++) {
+            Menu child = menu("child" + i, i);
+            for (int j = 0; j < 2; j++) {
+                child.getChildren().add(menu("child" + i + "-" + j, j));
+            }
+            root.getChildren().add(child);
+        }
+
+        Menu saved = service.save(root);
+
+        assertSame(root, saved);
+        assertEquals(7, persisted.size());
+        // 7 个节点每 2 个 flush 一次, 最后再 flush 一次
+        verify(entityManager, times(4)).flush();
+        verify(entityManager, times(3)).clear();
+        Map<String, Menu> rows = new HashMap<>();
+        for (Menu menu : persisted) {
+            assertNotEquals("imported-root", menu.getId());
+            assertEquals(Menu.class.getName(), JpaIdUtil.getEntityClassName(menu.getId()));
+            assertNull(rows.put(menu.getId(), menu), "id 重复: " + menu.getId());
+            Menu parent = menu.getParent();
+            if (parent == null) {
+                assertEquals(TreeEntityUtil.buildTreePath(null, menu.getId()), menu.getTreePath());
+            } else {
+                // 父节点先于子节点写入
+                Menu parentRow = rows.get(parent.getId());
+                assertNotNull(parentRow, "父节点未先写入: " + menu.getName());
+                assertEquals(parentRow.getTreePath() + menu.getId() + "/", menu.getTreePath());
+            }
+        }
+        assertEquals("root", persisted.get(0).getName());
+        assertEquals(2, persisted.stream().filter(menu -> menu.getTreePath().split("/").length == 3).count());
+        assertEquals(4, persisted.stream().filter(menu -> menu.getTreePath().split("/").length == 4).count());
+    }
+
+    /**
+     * 删除子树时先清理中间表, 再由深到浅逐层删除节点
+     */
+    @Test
+    void deleteSubtreeCleansJoinTable() {
+        assertEquals(3, service.deleteSubtree("a"));
+
+        assertEquals(Arrays.asList("role_menu [a, a1]", "role_menu [a2]", "Menu [a1, a2]", "Menu [a]"), deletes);
+        assertEquals(new HashSet<>(Arrays.asList("r", "b", "b1", "o")), treePaths.keySet());
+        verify(entityManager).clear();
+    }
+
+    /**
+     * 历史数据没有祖先路径时, 先补全再删除, 不会只删除根节点
+     */
+    @Test
+    void deleteSubtreeRebuildsNullTreePath() {
+        treePaths.put("c", null);
+        treePaths.put("c1", null);
+        rebuiltPaths.put("c", "/r/c/");
+        rebuiltPaths.put("c1", "/r/c/c1/");
+
+        assertEquals(2, service.deleteSubtree("c"));
+
+        assertEquals(1, rebuildCount);
+        assertFalse(treePaths.containsKey("c"));
+        assertFalse(treePaths.containsKey("c1"));
+        assertEquals(Arrays.asList("role_menu [c, c1]", "Menu [c1]", "Menu [c]"), deletes);
+    }
+
+    /**
+     * 批量删除按子树删除, 嵌套的 id 只删除一次, 不存在的 id 被忽略
+     */
+    @Test
+    void batchDeleteRemovesSubtrees() {
+        BatchModel<Menu> batch = new BatchModel<>();
+        batch.setDelete(new String[]{"a1", "a", "b", "missing"});
+
+        assertEquals(5, service.batch(batch).getDeleted());
+
+        assertEquals(new HashSet<>(Arrays.asList("r", "o")), treePaths.keySet());
+        assertEquals(0, rebuildCount);
+        List<String> joinTableIds = deletes.stream().filter(delete -> delete.startsWith("role_menu"))
+                .flatMap(delete -> Arrays.stream(delete.replaceAll(".*\\[|]", "").split(", ")))
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("a", "a1", "a2", "b", "b1"), joinTableIds);
+    }
+
+    /**
+     * 模拟元模型和查询, 查询与删除作用于 treePaths
+     * 删除节点时如果还有子节点, 视为违反外键约束
+     */
+    @SuppressWarnings("unchecked")
+    private void mockQueries() {
+        Metamodel metamodel = mock(Metamodel.class);
+        when(entityManager.getMetamodel()).thenReturn(metamodel);
+        EntityType<Menu> menuType = mock(EntityType.class);
+        when(menuType.getName()).thenReturn("Menu");
+        when(metamodel.entity(Menu.class)).thenReturn(menuType);
+        // Role.menus 为引用 Menu 的多对多属性
+        PluralAttribute<Role, ?, ?> menus = mock(PluralAttribute.class);
+        when(menus.getPersistentAttributeType()).thenReturn(Attribute.PersistentAttributeType.MANY_TO_MANY);
+        doReturn(ReflectionUtils.findField(Role.class, "menus")).when(menus).getJavaMember();
+        Type<Menu> elementType = mock(Type.class);
+        when(elementType.getJavaType()).thenReturn(Menu.class);
+        doReturn(elementType).when(menus).getElementType();
+        EntityType<Role> roleType = mock(EntityType.class);
+        when(roleType.getJavaType()).thenReturn(Role.class);
+        doReturn(Collections.singleton(menus)).when(roleType).getPluralAttributes();
+        doReturn(new HashSet<>(Arrays.asList(menuType, roleType))).when(metamodel).getEntities();
+
+        doAnswer(invocation -> {
+            String jpql = invocation.getArgument(0);
+            if (jpql.startsWith("select t.treePath from Menu t where t.id in")) {
+                return selectQuery("ids", ids -> ((List<String>) ids).stream()
+                        .filter(treePaths::containsKey).map(treePaths::get).collect(Collectors.toList()));
+            }
+            if (jpql.startsWith("select t.id, t.treePath from Menu t where t.treePath like")) {
+                return selectQuery("prefix", prefix -> treePaths.entrySet().stream()
+                        .filter(entry -> entry.getValue() != null && entry.getValue().startsWith(((String) prefix).replace("%", "")))
+                        .map(entry -> new Object[]{entry.getKey(), entry.getValue()}).collect(Collectors.toList()));
+            }
+            throw new IllegalArgumentException(jpql);
+        }).when(entityManager).createQuery(anyString(), any(Class.class));
+        when(entityManager.createQuery(startsWith("delete from Menu t"))).thenAnswer(invocation -> updateQuery(ids -> {
+            deletes.add("Menu " + ids);
+            ids.forEach(treePaths::remove);
+            for (Object id : ids) {
+                assertTrue(treePaths.values().stream().noneMatch(treePath -> treePath != null && treePath.contains("/" + id + "/")),
+                        "子节点未先删除: " + id);
+            }
+            return ids.size();
+        }));
+        when(entityManager.createNativeQuery(startsWith("delete from role_menu where menu_id in"))).thenAnswer(invocation -> updateQuery(ids -> {
+            assertTrue(treePaths.keySet().containsAll(ids), "中间表应在节点之前清理");
+            deletes.add("role_menu " + ids);
+            return ids.size();
+        }));
+    }
+
+    /**
+     * 创建查询, 记录一个参数, 结果由参数计算
+     * @param name 参数名
+     * @param results 参数值:查询结果
+     * @return 查询
+     */
+    private static TypedQuery<?> selectQuery(String name, Function<Object, List<?>> results) {
+        TypedQuery<?> query = mock(TypedQuery.class);
+        Object[] value = new Object[1];
+        when(query.setParameter(eq(name), any())).thenAnswer(invocation -> {
+            value[0] = invocation.getArgument(1);
+            return query;
+        });
+        when(query.getResultList()).thenAnswer(invocation -> results.apply(value[0]));
+        return query;
+    }
+
+    /**
+     * 创建带 ids 参数的 update/delete 语句
+     * @param update 本批次的 id:影响的行数
+     * @return 语句
+     */
+    private static Query updateQuery(ToIntFunction<List<?>> update) {
+        Query query = mock(Query.class);
+        List<?>[] ids = new List<?>[1];
+        when(query.setParameter(eq("ids"), any())).thenAnswer(invocation -> {
+            ids[0] = new ArrayList<>((List<?>) invocation.getArgument(1));
+            return query;
+        });
+        when(query.executeUpdate()).thenAnswer(invocation -> update.applyAsInt(ids[0]));
+        return query;
+    }
+
+    /**
+     * 创建节点
+     * @param name 名称
+     * @param orderNum 顺序号
+     * @return 节点
+     */
+    private static Menu menu(String name, int orderNum) {
+        Menu menu = new Menu();
+        menu.setName(name);
+        menu.setOrderNum(orderNum);
+        return menu;
+    }
+}
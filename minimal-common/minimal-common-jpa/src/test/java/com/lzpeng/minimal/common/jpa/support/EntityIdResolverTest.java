@@ -0,0 +1,135 @@
+package com.lzpeng.minimal.common.jpa.support;
+
+import com.lzpeng.minimal.common.core.util.StringConstant;
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+import com.lzpeng.minimal.common.jpa.domain.enums.EntityIdFormat;
+import com.lzpeng.minimal.common.jpa.util.JpaIdUtil;
+import com.lzpeng.minimal.system.domain.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 实体 id 解析的读权限单元测试
+ * @author : Lzpeng
+ */
+class EntityIdResolverTest {
+
+    /**
+     * 用户的查询权限
+     */
+    private static final String USER_QUERY = "system:user:query";
+
+    /**
+     * 用户的雪花id
+     */
+    private static final long SNOWFLAKE_ID = 1234567890123L;
+
+    private final User user = new User();
+
+    private JpaRepository<User, String> repository;
+
+    private ObjectProvider<EntityReadPermission> readPermission;
+
+    private EntityIdResolver resolver;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        user.setId(JpaIdUtil.encodeEntityId(User.class, SNOWFLAKE_ID));
+        repository = mock(JpaRepository.class);
+        when(repository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(repository.findAllById(any())).thenReturn(Collections.singletonList(user));
+        readPermission = mock(ObjectProvider.class);
+        when(readPermission.getIfAvailable()).thenReturn(new AuthorityEntityReadPermission());
+        resolver = new EntityIdResolver(null, null, new MinimalJpaProperties(), readPermission);
+        resolver.registerRoutes(Collections.singletonMap(User.class, repository));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * 有查询权限时可以解析
+     */
+    @Test
+    void resolveWithPermission() {
+        login(USER_QUERY);
+        assertSame(user, resolver.resolve(user.getId()));
+        Map<String, BaseEntity> entities = resolver.resolveAll(Collections.singletonList(user.getId()));
+        assertSame(user, entities.get(user.getId()));
+    }
+
+    /**
+     * 没有 system:user:query 的用户不能解析用户 id, 也不会查询数据库
+     */
+    @Test
+    void resolveWithoutPermission() {
+        login("system:role:query");
+        assertNull(resolver.resolve(user.getId()));
+        assertTrue(resolver.resolveAll(Collections.singletonList(user.getId())).isEmpty());
+        verifyNoInteractions(repository);
+    }
+
+    /**
+     * 未登录时不能解析
+     */
+    @Test
+    void resolveAnonymous() {
+        assertNull(resolver.resolve(user.getId()));
+        verifyNoInteractions(repository);
+    }
+
+    /**
+     * 没有配置读权限校验时拒绝解析
+     */
+    @Test
+    void resolveWithoutReadPermissionBean() {
+        when(readPermission.getIfAvailable()).thenReturn(null);
+        login(USER_QUERY);
+        assertNull(resolver.resolve(user.getId()));
+        assertTrue(resolver.resolveAll(Collections.singletonList(user.getId())).isEmpty());
+        verifyNoInteractions(repository);
+    }
+
+    /**
+     * 传入的 id 与实体当前的 id 格式不同时, 结果仍以传入的 id 为 key, 不合法的 id 被忽略
+     */
+    @Test
+    void resolveAllKeyedByRequestedId() {
+        login(USER_QUERY);
+        String defaultId = user.getId();
+        String sortableId = JpaIdUtil.encodeEntityId(User.class, SNOWFLAKE_ID, EntityIdFormat.SORTABLE);
+        user.setId(sortableId);
+        String invalidId = defaultId.substring(0, defaultId.lastIndexOf(StringConstant.DELIMITER) + 1) + "!";
+        Map<String, BaseEntity> entities = resolver.resolveAll(Arrays.asList(defaultId, invalidId, sortableId));
+        assertEquals(Arrays.asList(defaultId, sortableId), Arrays.asList(entities.keySet().toArray()));
+        assertSame(user, entities.get(defaultId));
+        assertSame(user, entities.get(sortableId));
+        assertNull(resolver.resolve(invalidId));
+    }
+
+    /**
+     * 设置当前用户
+     * @param authorities 用户的权限
+     */
+    private void login(String... authorities) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("test", null, authorities));
+    }
+}
@@ -0,0 +1,62 @@
+package com.lzpeng.minimal.common.jpa.support;
+
+import cn.hutool.core.lang.Snowflake;
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
+import com.lzpeng.minimal.system.domain.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * id 生成器单元测试
+ * @author : Lzpeng
+ */
+class GenerateEntityIdListenerTest {
+
+    private GenerateEntityIdListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new GenerateEntityIdListener();
+        ReflectionTestUtils.setField(listener, "snowflake", new Snowflake(1, 1));
+        ReflectionTestUtils.setField(listener, "jpaProperties", new MinimalJpaProperties());
+    }
+
+    /**
+     * 提前分配的 id 在 persist 时保留, 未分配的重新生成
+     */
+    @Test
+    void keepAssignedId() {
+        User assigned = new User();
+        String id = listener.assignId(assigned);
+        listener.touchForCreate(assigned);
+        assertEquals(id, assigned.getId());
+
+        User imported = new User();
+        imported.setId("imported");
+        listener.touchForCreate(imported);
+        assertNotEquals("imported", imported.getId());
+    }
+
+    /**
+     * 清理内层批次时保留外层批次的分配
+     */
+    @Test
+    void clearOnlyOwnChunk() {
+        User outer = new User();
+        String outerId = listener.assignId(outer);
+        User inner = new User();
+        String innerId = listener.assignId(inner);
+
+        listener.clearAssigned(Collections.singletonList(inner));
+
+        listener.touchForCreate(outer);
+        assertEquals(outerId, outer.getId());
+        listener.touchForCreate(inner);
+        assertNotEquals(innerId, inner.getId());
+    }
+}
@@ -0,0 +1,82 @@
+package com.lzpeng.minimal.common.jpa.util;
+
+import com.lzpeng.minimal.system.domain.entity.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实体 id 编码解码基准测试, 对比优化前每次编译正则并通过 BigInteger 编码的实现
+ * 运行 main 方法或 java -cp target/test-classes:... org.openjdk.jmh.Main EntityIdCodecBenchmark
+ * @author : Lzpeng
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityIdCodecBenchmark {
+
+    /**
+     * 预先生成的雪花id 个数, 2 的幂
+     */
+    private static final int SIZE = 1024;
+
+    private final long[] snowflakeIds = new long[SIZE];
+
+    private final String[] ids = new String[SIZE];
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(20200707L);
+        // 与雪花id 相同的时间戳位数
+        long timestamp = System.currentTimeMillis() << 22;
+        for (int i = 0; i < SIZE; i++) {
+            snowflakeIds[i] = timestamp + random.nextInt(1 << 22);
+            ids[i] = JpaIdUtil.encodeEntityId(User.class, snowflakeIds[i]);
+        }
+    }
+
+    /**
+     * @return 下一个下标
+     */
+    private int next() {
+        return index = (index + 1) & (SIZE - 1);
+    }
+
+    @Benchmark
+    public String encodeLegacy() {
+        return LegacyEntityIdCodec.encodeEntityId(User.class, snowflakeIds[next()]);
+    }
+
+    @Benchmark
+    public String encode() {
+        return JpaIdUtil.encodeEntityId(User.class, snowflakeIds[next()]);
+    }
+
+    @Benchmark
+    public String decodeLegacy() {
+        return LegacyEntityIdCodec.decodeEntityId(ids[next()]);
+    }
+
+    @Benchmark
+    public String decode() {
+        return JpaIdUtil.decodeEntityId(ids[next()]);
+    }
+
+    @Benchmark
+    public long snowflakeId() {
+        return JpaIdUtil.getSnowflakeId(ids[next()]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EntityIdCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
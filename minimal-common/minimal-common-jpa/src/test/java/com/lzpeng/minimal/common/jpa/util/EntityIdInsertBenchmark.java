@@ -0,0 +1,80 @@
+package com.lzpeng.minimal.common.jpa.util;
+
+import com.lzpeng.minimal.common.jpa.domain.enums.EntityIdFormat;
+import com.lzpeng.minimal.system.domain.entity.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按生成顺序插入实体 id 的基准测试, 对比默认格式与可排序格式
+ * 以有序索引(TreeMap) 的插入代替 InnoDB 聚簇索引: 可排序格式总是追加到末尾, 默认格式的字符串顺序与生成顺序无关, 插入位置随机
+ * 同时统计没有追加到末尾的插入比例, 即聚簇索引中会插入到已有页中间的比例
+ * 实际数据库的插入吞吐量与页分裂次数需要在 MySQL 上测量
+ * @author : Lzpeng
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityIdInsertBenchmark {
+
+    /**
+     * 每次插入的 id 个数
+     */
+    private static final int SIZE = 100_000;
+
+    @Param({"DEFAULT", "SORTABLE"})
+    public EntityIdFormat format;
+
+    /**
+     * 按生成顺序排列的 id
+     */
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(20200707L);
+        // 与雪花id 相同的位布局: 时间戳左移 22 位, 同一毫秒内序列号递增
+        long snowflakeId = System.currentTimeMillis() << 22;
+        ids = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            snowflakeId += 1 + random.nextInt(1 << 12);
+            ids[i] = JpaIdUtil.encodeEntityId(User.class, snowflakeId, format);
+        }
+        int middle = 0;
+        TreeMap<String, Boolean> index = new TreeMap<>();
+        for (String id : ids) {
+            if (!index.isEmpty() && id.compareTo(index.lastKey()) < 0) {
+                middle++;
+            }
+            index.put(id, Boolean.TRUE);
+        }
+        System.out.printf("%n%s: %.2f%% 的插入不在索引末尾%n", format, middle * 100.0 / SIZE);
+    }
+
+    /**
+     * 按生成顺序插入有序索引
+     * @return 索引
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public TreeMap<String, Boolean> insert() {
+        TreeMap<String, Boolean> index = new TreeMap<>();
+        for (String id : ids) {
+            index.put(id, Boolean.TRUE);
+        }
+        return index;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EntityIdInsertBenchmark.class.getSimpleName()).build()).run();
+    }
+}
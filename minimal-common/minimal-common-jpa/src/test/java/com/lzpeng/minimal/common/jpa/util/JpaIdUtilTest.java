@@ -0,0 +1,181 @@
+package com.lzpeng.minimal.common.jpa.util;
+
+import com.lzpeng.minimal.common.core.util.StringConstant;
+import com.lzpeng.minimal.common.jpa.domain.enums.EntityIdFormat;
+import com.lzpeng.minimal.system.domain.entity.Buckeroo;
+import com.lzpeng.minimal.system.domain.entity.Plumless;
+import com.lzpeng.minimal.system.domain.entity.Role;
+import com.lzpeng.minimal.system.domain.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 实体 id 编码解码单元测试
+ * 随机雪花id 往返编码, 默认格式与优化前的编码结果对比, 可排序格式的顺序与雪花id 一致
+ * @author : Lzpeng
+ */
+class JpaIdUtilTest {
+
+    /**
+     * 随机测试的次数
+     */
+    private static final int SAMPLES = 2000;
+
+    /**
+     * 可排序格式雪花id 的固定位数
+     */
+    private static final int SORTABLE_WIDTH = 13;
+
+    /**
+     * 固定种子, 失败时可以重现
+     */
+    private final Random random = new Random(20200707L);
+
+    /**
+     * 默认格式往返编码, 与优化前的结果一致
+     */
+    @Test
+    void defaultRoundTrip() {
+        for (int i = 0; i < SAMPLES; i++) {
+            assertDefaultRoundTrip(User.class, random.nextLong() & Long.MAX_VALUE);
+            assertDefaultRoundTrip(Role.class, random.nextLong() & Long.MAX_VALUE);
+        }
+        assertDefaultRoundTrip(User.class, 0L);
+        assertDefaultRoundTrip(User.class, Long.MAX_VALUE);
+    }
+
+    /**
+     * 优化前的 id 可以解码
+     */
+    @Test
+    void decodeLegacyId() {
+        long snowflakeId = random.nextLong() & Long.MAX_VALUE;
+        String legacyId = LegacyEntityIdCodec.encodeEntityId(Role.class, snowflakeId);
+        assertEquals(LegacyEntityIdCodec.decodeEntityId(legacyId), JpaIdUtil.decodeEntityId(legacyId));
+        assertEquals(snowflakeId, JpaIdUtil.getSnowflakeId(legacyId));
+    }
+
+    /**
+     * 前缀每个实体类只计算一次, 不同实体类不同
+     */
+    @Test
+    void entityIdPrefix() {
+        String prefix = JpaIdUtil.getEntityIdPrefix(User.class);
+        assertSame(prefix, JpaIdUtil.getEntityIdPrefix(User.class));
+        assertSame(prefix, JpaIdUtil.getEntityIdPrefix(User.class, EntityIdFormat.DEFAULT));
+        assertTrue(prefix.endsWith(StringConstant.DELIMITER));
+        assertNotEquals(prefix, JpaIdUtil.getEntityIdPrefix(Role.class));
+        assertTrue(JpaIdUtil.encodeEntityId(User.class, 1L).startsWith(prefix));
+    }
+
+    /**
+     * 非法 id 和不符合规则的实体类
+     */
+    @Test
+    void invalidInput() {
+        String id = JpaIdUtil.encodeEntityId(User.class, 1L);
+        String prefix = JpaIdUtil.getEntityIdPrefix(User.class);
+        assertThrows(IllegalArgumentException.class, () -> JpaIdUtil.decodeEntityId("abc"));
+        assertThrows(IllegalArgumentException.class, () -> JpaIdUtil.getEntityClassName("abc"));
+        assertThrows(IllegalArgumentException.class, () -> JpaIdUtil.getSnowflakeId(prefix));
+        assertThrows(IllegalArgumentException.class, () -> JpaIdUtil.getSnowflakeId(prefix + "1!"));
+        assertThrows(IllegalArgumentException.class, () -> JpaIdUtil.encodeEntityId(JpaIdUtilTest.class, 1L));
+        assertEquals(User.class.getName(), JpaIdUtil.getEntityClassName(id));
+    }
+
+    /**
+     * 可排序格式往返编码, 雪花id 部分固定位数
+     */
+    @Test
+    void sortableRoundTrip() {
+        for (int i = 0; i < SAMPLES; i++) {
+            assertSortableRoundTrip(User.class, random.nextLong() & Long.MAX_VALUE);
+            assertSortableRoundTrip(Role.class, random.nextLong() & Long.MAX_VALUE);
+        }
+        assertSortableRoundTrip(User.class, 0L);
+        assertSortableRoundTrip(User.class, Long.MAX_VALUE);
+        assertThrows(IllegalArgumentException.class, () -> JpaIdUtil.encodeEntityId(User.class, -1L, EntityIdFormat.SORTABLE));
+    }
+
+    /**
+     * 可排序格式的字符串顺序与雪花id 顺序一致, 大小写敏感和不敏感的排序规则下都成立
+     */
+    @Test
+    void sortableOrder() {
+        long[] snowflakeIds = new long[SAMPLES];
+        String[] ids = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            snowflakeIds[i] = random.nextLong() & Long.MAX_VALUE;
+        }
+        Arrays.sort(snowflakeIds);
+        for (int i = 0; i < SAMPLES; i++) {
+            ids[i] = JpaIdUtil.encodeEntityId(User.class, snowflakeIds[i], EntityIdFormat.SORTABLE);
+        }
+        for (int i = 1; i < SAMPLES; i++) {
+            int expected = Long.compare(snowflakeIds[i - 1], snowflakeIds[i]);
+            assertEquals(expected, Integer.signum(ids[i - 1].compareTo(ids[i])));
+            assertEquals(expected, Integer.signum(ids[i - 1].compareToIgnoreCase(ids[i])));
+        }
+    }
+
+    /**
+     * 可排序格式的前缀使用类名的 CRC32, 同一个包下 CRC32 相同的实体类注册时报错
+     */
+    @Test
+    void sortablePrefixCollision() {
+        JpaIdUtil.registerEntityClass(Plumless.class);
+        assertThrows(IllegalStateException.class, () -> JpaIdUtil.registerEntityClass(Buckeroo.class));
+        assertThrows(IllegalStateException.class, () -> JpaIdUtil.encodeEntityId(Buckeroo.class, 1L, EntityIdFormat.SORTABLE));
+        String id = JpaIdUtil.encodeEntityId(Plumless.class, 1L, EntityIdFormat.SORTABLE);
+        assertEquals(Plumless.class.getName(), JpaIdUtil.getEntityClassName(id));
+    }
+
+    /**
+     * 可排序格式的前缀不能从 id 解码出类名, 未注册时报错
+     */
+    @Test
+    void sortableUnregisteredPrefix() {
+        String prefix = JpaIdUtil.getEntityIdPrefix(User.class);
+        // CRC32 的 36 进制最多为 1z141z3, zzzzzzz 不会被注册
+        String id = prefix.substring(0, prefix.indexOf(StringConstant.DELIMITER) + 1) + "zzzzzzz" + StringConstant.DELIMITER + "0000000000001";
+        assertEquals(EntityIdFormat.SORTABLE, JpaIdUtil.getEntityIdFormat(id));
+        assertEquals(1L, JpaIdUtil.getSnowflakeId(id));
+        assertThrows(IllegalArgumentException.class, () -> JpaIdUtil.getEntityClassName(id));
+        assertThrows(IllegalArgumentException.class, () -> JpaIdUtil.decodeEntityId(id));
+    }
+
+    /**
+     * 断言可排序格式往返编码一致
+     * @param clazz 实体类
+     * @param snowflakeId 雪花id
+     */
+    private void assertSortableRoundTrip(Class<?> clazz, long snowflakeId) {
+        String id = JpaIdUtil.encodeEntityId(clazz, snowflakeId, EntityIdFormat.SORTABLE);
+        String prefix = JpaIdUtil.getEntityIdPrefix(clazz, EntityIdFormat.SORTABLE);
+        assertTrue(id.startsWith(prefix));
+        assertEquals(SORTABLE_WIDTH, id.length() - prefix.length());
+        assertEquals(EntityIdFormat.SORTABLE, JpaIdUtil.getEntityIdFormat(id));
+        assertEquals(clazz.getName(), JpaIdUtil.getEntityClassName(id));
+        assertEquals(snowflakeId, JpaIdUtil.getSnowflakeId(id));
+        assertEquals(clazz.getName() + ":" + snowflakeId, JpaIdUtil.decodeEntityId(id));
+    }
+
+    /**
+     * 断言默认格式往返编码一致, 且与优化前的编码结果相同
+     * @param clazz 实体类
+     * @param snowflakeId 雪花id
+     */
+    private void assertDefaultRoundTrip(Class<?> clazz, long snowflakeId) {
+        String id = JpaIdUtil.encodeEntityId(clazz, snowflakeId);
+        assertEquals(LegacyEntityIdCodec.encodeEntityId(clazz, snowflakeId), id);
+        assertEquals(EntityIdFormat.DEFAULT, JpaIdUtil.getEntityIdFormat(id));
+        assertEquals(clazz.getName(), JpaIdUtil.getEntityClassName(id));
+        assertEquals(snowflakeId, JpaIdUtil.getSnowflakeId(id));
+        assertEquals(clazz.getName() + ":" + snowflakeId, JpaIdUtil.decodeEntityId(id));
+        assertEquals(id, JpaIdUtil.encodeEntityId(clazz, Long.valueOf(snowflakeId)));
+    }
+}
@@ -0,0 +1,74 @@
+package com.lzpeng.minimal.common.jpa.util;
+
+import com.lzpeng.minimal.common.core.domain.ProjectInfo;
+import com.lzpeng.minimal.common.core.util.RadixNumberUtils;
+import com.lzpeng.minimal.common.core.util.StringConstant;
+
+import java.math.BigInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 优化前的实体 id 编码解码, 每次编译正则并通过 BigInteger 编码包名, 类名和雪花id
+ * 用于验证 {@link JpaIdUtil} 生成的 id 与原格式一致, 以及基准测试对比
+ * @author : Lzpeng
+ */
+final class LegacyEntityIdCodec {
+
+    private static final String SIMPLE_CLASS_NAME = StringConstant.KEYBOARD;
+
+    private static final String PACKAGE_NAME = StringConstant.PACKAGE_NAME;
+
+    private static final String DEFAULT_DIGITS = StringConstant.DEFAULT_DIGITS;
+
+    private static final String DELIMITER = StringConstant.DELIMITER;
+
+    private static final String PATTERN = "^" + ProjectInfo.get().getBaseProjectPackage() + ".([a-z]+).domain.entity.([A-Z][a-zA-Z]+)$";
+
+    private static final String FORMAT = ProjectInfo.get().getBaseProjectPackage() + ".%s.domain.entity.%s";
+
+    private LegacyEntityIdCodec() {
+    }
+
+    /**
+     * 编码实体Id
+     * @param clazz 实体类
+     * @param id snowflake雪花id
+     * @return 实体编码后的字符串
+     */
+    static String encodeEntityId(Class<?> clazz, long id) {
+        Matcher matcher = Pattern.compile(PATTERN).matcher(clazz.getName());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("实体类名不合法: " + clazz.getName());
+        }
+        String packageName = convert(matcher.group(1), PACKAGE_NAME, DEFAULT_DIGITS);
+        String clazzName = convert(matcher.group(2), SIMPLE_CLASS_NAME, DEFAULT_DIGITS);
+        String encodeId = RadixNumberUtils.toString(id, DEFAULT_DIGITS.length(), DEFAULT_DIGITS);
+        return String.join(DELIMITER, packageName, clazzName, encodeId);
+    }
+
+    /**
+     * 解码实体id
+     * @param encodeId 编码后的实体id
+     * @return 实体类名:snowID
+     */
+    static String decodeEntityId(String encodeId) {
+        String[] encodes = encodeId.split("\\" + DELIMITER);
+        String packageName = convert(encodes[0], DEFAULT_DIGITS, PACKAGE_NAME);
+        String clazzName = convert(encodes[1], DEFAULT_DIGITS, SIMPLE_CLASS_NAME);
+        BigInteger longId = RadixNumberUtils.parseBigInteger(encodes[2], DEFAULT_DIGITS.length(), DEFAULT_DIGITS);
+        return String.format(FORMAT, packageName, clazzName) + ":" + longId;
+    }
+
+    /**
+     * 在两个字符表之间转换
+     * @param str 字符串
+     * @param fromDigits 原字符表
+     * @param toDigits 目标字符表
+     * @return 转换后的字符串
+     */
+    private static String convert(String str, String fromDigits, String toDigits) {
+        BigInteger num = RadixNumberUtils.parseBigInteger(str, fromDigits.length(), fromDigits);
+        return RadixNumberUtils.toString(num, toDigits.length(), toDigits);
+    }
+}
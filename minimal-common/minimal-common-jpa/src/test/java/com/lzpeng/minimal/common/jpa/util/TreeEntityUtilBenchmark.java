@@ -0,0 +1,151 @@
+package com.lzpeng.minimal.common.jpa.util;
+
+import com.lzpeng.minimal.system.domain.entity.Menu;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1 万和 10 万个节点的树形结构工具基准测试
+ * 每个节点 10 个子节点, 顺序号随机, 输入列表打乱顺序, 与数据库查询结果的顺序无关
+ * 运行 main 方法或 java -cp target/test-classes:... org.openjdk.jmh.Main TreeEntityUtilBenchmark
+ * @author : Lzpeng
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeEntityUtilBenchmark {
+
+    /**
+     * 每个节点的子节点数量
+     */
+    private static final int FANOUT = 10;
+
+    /**
+     * 树的节点数量
+     */
+    @Param({"10000", "100000"})
+    public int nodes;
+
+    /**
+     * 所有节点, 带父节点
+     */
+    private List<Menu> all;
+
+    /**
+     * 模糊查询的结果, 每 10 个节点取 1 个
+     */
+    private List<Menu> matched;
+
+    /**
+     * 连接好的树根
+     */
+    private List<Menu> roots;
+
+    @Setup
+    public void setUp() {
+        all = buildTree(nodes);
+        matched = new ArrayList<>(nodes / FANOUT);
+        for (int i = 0; i < all.size(); i += FANOUT) {
+            matched.add(all.get(i));
+        }
+        roots = TreeEntityUtil.treeData(new ArrayList<>(all));
+    }
+
+    /**
+     * 所有节点构建树, 每次都会重置并重新连接子节点
+     */
+    @Benchmark
+    public List<Menu> treeData() {
+        return TreeEntityUtil.treeData(all);
+    }
+
+    /**
+     * 模糊查询的结果补全祖先节点后扁平化, 不依赖子节点集合
+     */
+    @Benchmark
+    public List<Menu> flatDataWithAncestors() {
+        return TreeEntityUtil.flatData(matched);
+    }
+
+    /**
+     * 从根节点扁平化, 会清空子节点集合, 每次调用前重新连接
+     */
+    @Benchmark
+    public List<Menu> flatDataFromRoot(LinkedTree tree) {
+        return TreeEntityUtil.flatData(tree.root);
+    }
+
+    /**
+     * 复制树, 树形结构快照返回给调用方前执行
+     */
+    @Benchmark
+    public List<Menu> copyTree() {
+        return TreeEntityUtil.copyTree(roots);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TreeEntityUtilBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * 每次调用前重新连接子节点的树
+     */
+    @State(Scope.Thread)
+    public static class LinkedTree {
+
+        /**
+         * 树的节点数量, 与外层同名参数取值相同
+         */
+        @Param({"10000", "100000"})
+        public int nodes;
+
+        private List<Menu> all;
+
+        private Menu root;
+
+        @Setup
+        public void setUp() {
+            all = buildTree(nodes);
+        }
+
+        @Setup(Level.Invocation)
+        public void link() {
+            root = TreeEntityUtil.treeData(all).get(0);
+        }
+    }
+
+    /**
+     * 构建节点 i 的父节点为节点 (i - 1) / FANOUT 的树, 打乱顺序返回
+     * @param nodes 节点数量
+     * @return 所有节点
+     */
+    private static List<Menu> buildTree(int nodes) {
+        Random random = new Random(20200707L);
+        List<Menu> all = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            Menu menu = new Menu();
+            menu.setId(Integer.toString(i));
+            menu.setName("menu" + i);
+            menu.setOrderNum(random.nextInt(FANOUT));
+            if (i > 0) {
+                Menu parent = all.get((i - 1) / FANOUT);
+                menu.setParent(parent);
+                parent.getChildren().add(menu);
+            }
+            all.add(menu);
+        }
+        Collections.shuffle(all, random);
+        return all;
+    }
+}
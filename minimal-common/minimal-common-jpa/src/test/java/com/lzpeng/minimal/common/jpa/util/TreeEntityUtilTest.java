@@ -0,0 +1,154 @@
+package com.lzpeng.minimal.common.jpa.util;
+
+import com.lzpeng.minimal.system.domain.entity.Menu;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 树形结构工具单元测试
+ * 测试树:
+ * r(0) ─┬─ c(2) ─── c1(0)
+ *       ├─ a(1) ─┬─ a2(1)
+ *       │        └─ a1(0)
+ *       └─ b(1)
+ * s(-1)
+ * @author : Lzpeng
+ */
+class TreeEntityUtilTest {
+
+    private final Map<String, Menu> nodes = new LinkedHashMap<>();
+
+    TreeEntityUtilTest() {
+        node("r", 0, null);
+        node("c", 2, "r");
+        node("a", 1, "r");
+        node("b", 1, "r");
+        node("c1", 0, "c");
+        node("a2", 1, "a");
+        node("a1", 0, "a");
+        node("s", -1, null);
+    }
+
+    /**
+     * 树根和每层子节点按顺序号稳定排序, 设置父节点id
+     */
+    @Test
+    void treeData() {
+        List<Menu> roots = TreeEntityUtil.treeData(new ArrayList<>(nodes.values()));
+
+        assertEquals(Arrays.asList("s", "r"), ids(roots));
+        Menu r = roots.get(1);
+        assertEquals(Arrays.asList("a", "b", "c"), ids(r.getChildren()));
+        assertEquals(Arrays.asList("a1", "a2"), ids(r.getChildren().get(0).getChildren()));
+        assertEquals(Collections.singletonList("c1"), ids(r.getChildren().get(2).getChildren()));
+        assertTrue(r.getChildren().get(1).getChildren().isEmpty());
+        assertNull(r.getParentId());
+        assertEquals("r", r.getChildren().get(0).getParentId());
+        assertEquals("a", r.getChildren().get(0).getChildren().get(0).getParentId());
+    }
+
+    /**
+     * 模糊查询只查到叶子节点时, 补全祖先节点后构建树
+     */
+    @Test
+    void treeDataWithAncestors() {
+        List<Menu> roots = TreeEntityUtil.treeData(Arrays.asList(nodes.get("a2"), nodes.get("c1")));
+
+        assertEquals(Collections.singletonList("r"), ids(roots));
+        assertEquals(Arrays.asList("a", "c"), ids(roots.get(0).getChildren()));
+        assertEquals(Collections.singletonList("a2"), ids(roots.get(0).getChildren().get(0).getChildren()));
+    }
+
+    /**
+     * 扁平化数据包含祖先节点, 每个节点只出现一次, 按顺序号稳定排序, 顺序号相同时保持遍历顺序
+     */
+    @Test
+    void flatDataOrder() {
+        List<Menu> flat = TreeEntityUtil.flatData(Arrays.asList(nodes.get("a2"), nodes.get("a1"), nodes.get("b"), nodes.get("s")));
+
+        // 遍历顺序 a2 a r a1 b s
+        assertEquals(Arrays.asList("s", "r", "a1", "a2", "a", "b"), ids(flat));
+        assertTrue(flat.stream().allMatch(menu -> menu.getChildren().isEmpty()));
+        assertEquals("a", nodes.get("a2").getParentId());
+        assertNull(nodes.get("s").getParentId());
+    }
+
+    /**
+     * 从根节点按层遍历得到所有子孙节点, 按顺序号稳定排序
+     */
+    @Test
+    void flatDataFromRoot() {
+        List<Menu> flat = TreeEntityUtil.flatData(nodes.get("r"));
+
+        // 遍历顺序 r c a b c1 a2 a1
+        assertEquals(Arrays.asList("r", "c1", "a1", "a", "b", "a2", "c"), ids(flat));
+        assertEquals("c", nodes.get("c1").getParentId());
+    }
+
+    /**
+     * 副本与原节点相互独立, 父子关系指向副本
+     */
+    @Test
+    void copyTree() {
+        List<Menu> roots = TreeEntityUtil.treeData(new ArrayList<>(nodes.values()));
+
+        List<Menu> copies = TreeEntityUtil.copyTree(roots);
+
+        assertEquals(ids(roots), ids(copies));
+        Menu r = copies.get(1);
+        assertNotSame(roots.get(1), r);
+        assertEquals("r", r.getName());
+        Menu a = r.getChildren().get(0);
+        assertNotSame(nodes.get("a"), a);
+        assertSame(r, a.getParent());
+        assertSame(a, a.getChildren().get(0).getParent());
+        r.getChildren().clear();
+        assertEquals(3, roots.get(1).getChildren().size());
+    }
+
+    @Test
+    void buildTreePath() {
+        assertEquals("/r/", TreeEntityUtil.buildTreePath(null, "r"));
+        assertEquals("/r/a/", TreeEntityUtil.buildTreePath("/r/", "a"));
+        assertEquals("/r/a/a1/", TreeEntityUtil.buildTreePath(TreeEntityUtil.buildTreePath("/r/", "a"), "a1"));
+    }
+
+    @Test
+    void getAncestorIds() {
+        assertTrue(TreeEntityUtil.getAncestorIds(null).isEmpty());
+        assertTrue(TreeEntityUtil.getAncestorIds("/r/").isEmpty());
+        assertEquals(Arrays.asList("r", "a"), TreeEntityUtil.getAncestorIds("/r/a/a1/"));
+    }
+
+    @Test
+    void escapeLike() {
+        assertEquals("/a!_b/100!%!!/", TreeEntityUtil.escapeLike("/a_b/100%!/"));
+    }
+
+    /**
+     * 创建节点, 连接父子关系
+     * @param id id, 同时作为名称
+     * @param orderNum 顺序号
+     * @param parentId 父节点 id
+     */
+    private void node(String id, int orderNum, String parentId) {
+        Menu menu = new Menu();
+        menu.setId(id);
+        menu.setName(id);
+        menu.setOrderNum(orderNum);
+        if (parentId != null) {
+            Menu parent = nodes.get(parentId);
+            menu.setParent(parent);
+            parent.getChildren().add(menu);
+        }
+        nodes.put(id, menu);
+    }
+
+    private static List<String> ids(List<Menu> menus) {
+        return menus.stream().map(Menu::getId).collect(Collectors.toList());
+    }
+}
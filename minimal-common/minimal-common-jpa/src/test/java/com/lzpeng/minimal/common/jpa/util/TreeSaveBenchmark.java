@@ -0,0 +1,155 @@
+package com.lzpeng.minimal.common.jpa.util;
+
+import cn.hutool.core.lang.Snowflake;
+import com.lzpeng.minimal.common.jpa.config.MinimalJpaProperties;
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+import com.lzpeng.minimal.common.jpa.service.TreeService;
+import com.lzpeng.minimal.common.jpa.support.GenerateEntityIdListener;
+import com.lzpeng.minimal.system.domain.entity.Menu;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * 保存 20000 个节点的嵌套树的基准测试
+ * EntityManager 只记录 persist 次数, 测量的是 {@link TreeService#save} 在写入数据库之外的开销:
+ * 层序展开, 提前分配 id, 计算祖先路径, 按批次 flush
+ * JDBC 批量写入的耗时需要在 MySQL 上配合 hibernate.jdbc.batch_size 测量
+ * @author : Lzpeng
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TreeSaveBenchmark {
+
+    /**
+     * 树的节点数量
+     */
+    private static final int NODES = 20_000;
+
+    /**
+     * 每个节点的子节点数量, 决定树的深度
+     */
+    @Param({"5", "50"})
+    public int fanout;
+
+    private TreeService<Menu> service;
+
+    private Menu root;
+
+    /**
+     * persist 的节点数量
+     */
+    private int persisted;
+
+    @Setup(Level.Trial)
+    public void setUpService() {
+        MinimalJpaProperties jpaProperties = new MinimalJpaProperties();
+        GenerateEntityIdListener generateEntityIdListener = new GenerateEntityIdListener();
+        ReflectionTestUtils.setField(generateEntityIdListener, "snowflake", new Snowflake(1, 1));
+        ReflectionTestUtils.setField(generateEntityIdListener, "jpaProperties", jpaProperties);
+        service = new TreeService<Menu>() {
+        };
+        ReflectionTestUtils.setField(service, "entityManager", entityManager());
+        ReflectionTestUtils.setField(service, "jpaProperties", jpaProperties);
+        ReflectionTestUtils.setField(service, "generateEntityIdListener", generateEntityIdListener);
+    }
+
+    /**
+     * 每次保存前构建新的树, 保存会修改节点
+     */
+    @Setup(Level.Invocation)
+    public void setUpTree() {
+        persisted = 0;
+        root = menu(0);
+        Deque<Menu> queue = new ArrayDeque<>();
+        queue.offer(root);
+        int count = 1;
+        while (count < NODES) {
+            Menu parent = queue.poll();
+            for (int i = 0; i < fanout && count < NODES; i++, count++) {
+                Menu child = menu(i);
+                parent.getChildren().add(child);
+                queue.offer(child);
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void checkPersisted() {
+        if (persisted != NODES) {
+            throw new IllegalStateException("保存了 " + persisted + " 个节点, 应为 " + NODES);
+        }
+    }
+
+    @Benchmark
+    public Menu save() {
+        return service.save(root);
+    }
+
+    /**
+     * 只记录 persist 次数的 EntityManager, 所有节点视为仍在持久化上下文中
+     * @return EntityManager
+     */
+    private EntityManager entityManager() {
+        PersistenceUnitUtil persistenceUnitUtil = proxy(PersistenceUnitUtil.class, (method, args) ->
+                "getIdentifier".equals(method) ? ((BaseEntity) args[0]).getId() : null);
+        EntityManagerFactory entityManagerFactory = proxy(EntityManagerFactory.class, (method, args) ->
+                "getPersistenceUnitUtil".equals(method) ? persistenceUnitUtil : null);
+        return proxy(EntityManager.class, (method, args) -> {
+            switch (method) {
+                case "getEntityManagerFactory":
+                    return entityManagerFactory;
+                case "contains":
+                    return true;
+                case "persist":
+                    persisted++;
+                    return null;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * 创建接口的代理
+     * @param type 接口
+     * @param handler 方法名与参数 到 返回值
+     * @param <T> 接口类型
+     * @return 代理
+     */
+    private static <T> T proxy(Class<T> type, BiFunction<String, Object[], Object> handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.apply(method.getName(), args)));
+    }
+
+    /**
+     * 创建节点
+     * @param orderNum 顺序号
+     * @return 节点
+     */
+    private static Menu menu(int orderNum) {
+        Menu menu = new Menu();
+        menu.setName("menu" + orderNum);
+        menu.setOrderNum(orderNum);
+        return menu;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TreeSaveBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,11 @@
+package com.lzpeng.minimal.system;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * 测试用启动类, 使 {@link com.lzpeng.minimal.common.core.domain.ProjectInfo} 得到项目根包 com.lzpeng.minimal
+ * @author : Lzpeng
+ */
+@SpringBootApplication
+public class SystemTestApplication {
+}
@@ -0,0 +1,10 @@
+package com.lzpeng.minimal.system.domain.entity;
+
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+
+/**
+ * 测试用实体, 类名的 CRC32 与 Plumless 相同, 用于测试可排序格式的前缀冲突
+ * @author : Lzpeng
+ */
+public class Buckeroo extends BaseEntity {
+}
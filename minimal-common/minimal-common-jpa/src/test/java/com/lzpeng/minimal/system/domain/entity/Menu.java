@@ -0,0 +1,21 @@
+package com.lzpeng.minimal.system.domain.entity;
+
+import com.lzpeng.minimal.common.jpa.domain.entity.TreeEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * 测试用树形结构实体, 包名和类名符合实体 id 的编码规则
+ * @author : Lzpeng
+ */
+@Data
+@EqualsAndHashCode(callSuper = true, exclude = {"parent"})
+@ToString(callSuper = true, exclude = {"parent"})
+public class Menu extends TreeEntity<Menu> {
+
+    /**
+     * 名称
+     */
+    private String name;
+}
@@ -0,0 +1,22 @@
+package com.lzpeng.minimal.system.domain.entity;
+
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+
+import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
+import javax.persistence.ManyToMany;
+import java.util.Set;
+
+/**
+ * 测试用实体, 包名和类名符合实体 id 的编码规则
+ * @author : Lzpeng
+ */
+public class Role extends BaseEntity {
+
+    /**
+     * 角色的菜单, 删除菜单子树时需要清理中间表
+     */
+    @ManyToMany
+    @JoinTable(name = "role_menu", joinColumns = @JoinColumn(name = "role_id"), inverseJoinColumns = @JoinColumn(name = "menu_id"))
+    private Set<Menu> menus;
+}
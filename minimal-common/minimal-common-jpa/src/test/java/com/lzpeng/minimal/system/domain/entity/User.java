@@ -0,0 +1,10 @@
+package com.lzpeng.minimal.system.domain.entity;
+
+import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+
+/**
+ * 测试用实体, 包名和类名符合实体 id 的编码规则
+ * @author : Lzpeng
+ */
+public class User extends BaseEntity {
+}
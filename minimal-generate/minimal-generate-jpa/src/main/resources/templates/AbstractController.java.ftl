@@ -20,6 +20,7 @@ import javax.annotation.Generated;
 import javax.validation.Valid;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
 * ${chineseClassName}抽象控制器 提供增删改查接口
@@ -152,6 +153,7 @@ public class Abstract${simpleClassName}Controller extends ${entityType}Controlle
     * 分页查询${chineseClassName}列表
     * @param page 页码
     * @param size 每页行数
+    * @param count 总数统计方式: exact 精确统计(默认), none 不统计, cached 缓存统计, estimated 估算
     * @param model JPA Example 查询条件
     * @return 查询结果
     */
@@ -159,8 +161,40 @@ public class Abstract${simpleClassName}Controller extends ${entityType}Controlle
     @GetMapping("/{page:[0-9]+}/{size:[0-9]+}")
     @ApiOperation("分页查询${chineseClassName}列表")
     @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
-    public Result<QueryResult<${simpleClassName}>> query(@ApiParam(value = "页码", required = true) @PathVariable("page") int page, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, ${simpleClassName} model) {
-        return super.query(page, size, model);
+    public Result<QueryResult<${simpleClassName}>> query(@ApiParam(value = "页码", required = true) @PathVariable("page") int page, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, @ApiParam(value = "总数统计方式: exact, none, cached, estimated") @RequestParam(value = "count", required = false) String count, ${simpleClassName} model) {
+        return super.query(page, size, count, model);
+    }
+
+    /**
+    * 分页查询${chineseClassName}列表的部分字段
+    * @param page 页码
+    * @param size 每页行数
+    * @param count 总数统计方式: exact 精确统计(默认), none 不统计, cached 缓存统计, estimated 估算
+    * @param fields 要查询的字段, 始终包含 id
+    * @param model JPA Example 查询条件
+    * @return 字段名与值的 Map 列表
+    */
+    @Override
+    @GetMapping(value = "/{page:[0-9]+}/{size:[0-9]+}", params = "fields")
+    @ApiOperation("分页查询${chineseClassName}列表的部分字段")
+    @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
+    public Result<QueryResult<Map<String, Object>>> queryFields(@ApiParam(value = "页码", required = true) @PathVariable("page") int page, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, @ApiParam(value = "总数统计方式: exact, none, cached, estimated") @RequestParam(value = "count", required = false) String count, @ApiParam(value = "要查询的字段", required = true) @RequestParam("fields") String[] fields, ${simpleClassName} model) {
+        return super.queryFields(page, size, count, fields, model);
+    }
+
+    /**
+    * 游标分页查询${chineseClassName}列表
+    * @param cursor 上一页返回的游标, 为空时查询第一页
+    * @param size 每页行数
+    * @param model JPA Example 查询条件
+    * @return 查询结果及下一页游标
+    */
+    @Override
+    @GetMapping("/seek/{size:[0-9]+}")
+    @ApiOperation("游标分页查询${chineseClassName}列表")
+    @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
+    public Result<QueryResult<${simpleClassName}>> seek(@ApiParam(value = "上一页返回的游标") @RequestParam(required = false) String cursor, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, ${simpleClassName} model) {
+        return super.seek(cursor, size, model);
     }
 
     /**
@@ -179,14 +213,14 @@ public class Abstract${simpleClassName}Controller extends ${entityType}Controlle
     /**
     * 从文件导入${chineseClassName}
     * @param file 上传的文件,支持 excel, json, xml
-    * @return 导入成功的${chineseClassName}
+    * @return 导入成功的${chineseClassName}数量
     * @throws IOException 文件读写异常
     */
     @Override
     @PostMapping("/import")
     @ApiOperation("从文件导入${chineseClassName}")
     @PreAuthorize("hasAnyAuthority('" + IMPORT_PERM + "')")
-    public Result<List<${simpleClassName}>> importData(MultipartFile file) throws IOException {
+    public Result<Long> importData(MultipartFile file) throws IOException {
         return super.importData(file);
     }
 
@@ -228,6 +262,48 @@ public class Abstract${simpleClassName}Controller extends ${entityType}Controlle
     public Result<List<${simpleClassName}>> treeData(${simpleClassName} model) {
         return super.treeData(model);
     }
+
+    /**
+    * 按层懒加载${chineseClassName}, 查询父节点的直接子节点
+    * @param parentId 父节点id, 为空时查询根节点
+    * @return 子节点, 带 hasChildren 和 childCount
+    */
+    @Override
+    @GetMapping("/children")
+    @ApiOperation("按层懒加载${chineseClassName}")
+    @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
+    public Result<List<${simpleClassName}>> children(@ApiParam(value = "父节点id") @RequestParam(required = false) String parentId) {
+        return super.children(parentId);
+    }
+
+    /**
+    * 移动${chineseClassName}到新的父节点下
+    * @param id ${chineseClassName}id
+    * @param parentId 新的父节点id, 为空时移动为根节点
+    * @param position 在新的同级节点中的位置, 从 0 开始, 为空时放在最后
+    * @return 移动结果
+    */
+    @Override
+    @PutMapping("/{id:^[a-zA-Z0-9]+_[a-zA-Z0-9]+_[a-zA-Z0-9]+$}/move")
+    @ApiOperation("移动${chineseClassName}")
+    @PreAuthorize("hasAnyAuthority('" + EDIT_PERM + "')")
+    public Result<Void> move(@ApiParam(value = "${chineseClassName}id", required = true) @PathVariable("id") String id, @ApiParam(value = "新的父节点id") @RequestParam(required = false) String parentId, @ApiParam(value = "在同级节点中的位置") @RequestParam(required = false) Integer position) {
+        return super.move(id, parentId, position);
+    }
+
+    /**
+    * 按给定顺序重排同一父节点下的${chineseClassName}
+    * @param parentId 父节点id, 为空时重排根节点
+    * @param ids 排好序的子节点id
+    * @return 更新的行数
+    */
+    @Override
+    @PutMapping("/reorder")
+    @ApiOperation("重排${chineseClassName}顺序")
+    @PreAuthorize("hasAnyAuthority('" + EDIT_PERM + "')")
+    public Result<Integer> reorder(@ApiParam(value = "父节点id") @RequestParam(required = false) String parentId, @ApiParam(value = "排好序的子节点id", required = true) @RequestBody List<String> ids) {
+        return super.reorder(parentId, ids);
+    }
     </#if>
 
     <#if entityType=="LeftTreeRightTable">
@@ -242,6 +318,19 @@ public class Abstract${simpleClassName}Controller extends ${entityType}Controlle
     public Result<List<${leftTree.simpleClassName}>> leftTreeData() {
         return super.leftTreeData();
     }
+
+    /**
+    * 按层懒加载左树数据
+    * @param parentId 父节点id, 为空时查询根节点
+    * @return 子节点, 带 hasChildren 和 childCount
+    */
+    @Override
+    @GetMapping("/leftTree/children")
+    @ApiOperation("按层懒加载左树数据")
+    @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
+    public Result<List<${leftTree.simpleClassName}>> leftTreeChildren(@ApiParam(value = "父节点id") @RequestParam(required = false) String parentId) {
+        return super.leftTreeChildren(parentId);
+    }
     </#if>
 
 }
\ No newline at end of file
@@ -1,7 +1,5 @@
 package ${baseModulePackage}.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import ${baseProjectPackage}.common.jpa.service.${entityType}Service;
 import ${fullClassName};
 import ${baseModulePackage}.repository.${simpleClassName}Repository;<#if entityType=="LeftTreeRightTable">
@@ -15,7 +13,6 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Generated;
 import javax.transaction.Transactional;
-import java.util.List;
 
 /**
 * ${chineseClassName} 抽象业务层 提供基于注解的缓存配置
@@ -108,18 +105,4 @@ public abstract class Abstract${simpleClassName}Service extends ${entityType}Ser
         return super.findById(id);
     }
 
-    /**
-    * 从 json 读取实体列表
-    * 必须重写此方法否则,TypeReference获取不到泛型参数
-    * @param json json字符串
-    * @return 实体列表
-    * @throws JsonProcessingException json解析异常
-    */
-    @Override
-    public List<${simpleClassName}> readDataFromJson(String json) throws JsonProcessingException {
-        List<${simpleClassName}> list = objectMapper.readValue(json, new TypeReference<List<${simpleClassName}>>() {
-        });
-        return list;
-    }
-
 }
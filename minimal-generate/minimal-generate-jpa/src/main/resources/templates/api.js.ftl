@@ -88,6 +88,35 @@ export function get${simpleClassName}Page(page, size, model) {
   })
 }
 
+/**
+ * 分页查询${chineseClassName}的部分字段
+ * @param page 第几页
+ * @param size 每页多少条数据
+ * @param fields 要查询的字段数组
+ * @param model 查询条件
+ */
+export function query${simpleClassName}Fields(page, size, fields, model) {
+  return request({
+    url: `${r'${baseUrl}'}/${r'${page}'}/${r'${size}'}`,
+    method: 'get',
+    params: { ...model, fields: fields.join(',') }
+  })
+}
+
+/**
+ * 游标分页查询${chineseClassName}
+ * @param cursor 上一页返回的游标, 查询第一页时不传
+ * @param size 每页多少条数据
+ * @param model 查询条件
+ */
+export function seek${simpleClassName}Page(cursor, size, model) {
+  return request({
+    url: `${r'${baseUrl}'}/seek/${r'${size}'}`,
+    method: 'get',
+    params: { ...model, cursor }
+  })
+}
+
 /**
  * 批量操作${chineseClassName}
  * @param model
@@ -112,6 +141,46 @@ export function get${simpleClassName}Tree(model) {
     params: model
   })
 }
+
+/**
+* 按层懒加载${chineseClassName}, 查询父节点的直接子节点
+* @param parentId 父节点id, 查询根节点时不传
+*/
+export function get${simpleClassName}Children(parentId) {
+  return request({
+    url: `${r'${baseUrl}'}/children`,
+    method: 'get',
+    params: { parentId }
+  })
+}
+
+/**
+* 移动${chineseClassName}到新的父节点下
+* @param id ${chineseClassName}id
+* @param parentId 新的父节点id, 移动为根节点时不传
+* @param position 在同级节点中的位置, 放在最后时不传
+*/
+export function move${simpleClassName}(id, parentId, position) {
+  return request({
+    url: `${r'${baseUrl}'}/${r'${id}'}/move`,
+    method: 'put',
+    params: { parentId, position }
+  })
+}
+
+/**
+* 按给定顺序重排同一父节点下的${chineseClassName}
+* @param parentId 父节点id, 重排根节点时不传
+* @param ids 排好序的子节点id数组
+*/
+export function reorder${simpleClassName}(parentId, ids) {
+  return request({
+    url: `${r'${baseUrl}'}/reorder`,
+    method: 'put',
+    params: { parentId },
+    data: ids
+  })
+}
 </#if>
 <#if entityType=="LeftTreeRightTable">
 
@@ -124,4 +193,16 @@ export function leftTreeData() {
     method: 'get'
   })
 }
+
+/**
+* 按层懒加载${chineseClassName}的左树数据
+* @param parentId 父节点id, 查询根节点时不传
+*/
+export function leftTreeChildren(parentId) {
+  return request({
+    url: `${r'${baseUrl}'}/leftTree/children`,
+    method: 'get',
+    params: { parentId }
+  })
+}
 </#if>
\ No newline at end of file
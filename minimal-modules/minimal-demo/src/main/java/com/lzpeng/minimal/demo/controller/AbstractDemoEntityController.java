@@ -19,6 +19,7 @@ import javax.annotation.Generated;
 import javax.validation.Valid;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
 * 测试实体抽象控制器 提供增删改查接口
@@ -151,6 +152,7 @@ public class AbstractDemoEntityController extends BaseController<DemoEntity> {
     * 分页查询测试实体列表
     * @param page 页码
     * @param size 每页行数
+    * @param count 总数统计方式: exact 精确统计(默认), none 不统计, cached 缓存统计, estimated 估算
     * @param model JPA Example 查询条件
     * @return 查询结果
     */
@@ -158,8 +160,40 @@ public class AbstractDemoEntityController extends BaseController<DemoEntity> {
     @GetMapping("/{page:[0-9]+}/{size:[0-9]+}")
     @ApiOperation("分页查询测试实体列表")
     @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
-    public Result<QueryResult<DemoEntity>> query(@ApiParam(value = "页码", required = true) @PathVariable("page") int page, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, DemoEntity model) {
-        return super.query(page, size, model);
+    public Result<QueryResult<DemoEntity>> query(@ApiParam(value = "页码", required = true) @PathVariable("page") int page, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, @ApiParam(value = "总数统计方式: exact, none, cached, estimated") @RequestParam(value = "count", required = false) String count, DemoEntity model) {
+        return super.query(page, size, count, model);
+    }
+
+    /**
+    * 分页查询测试实体列表的部分字段
+    * @param page 页码
+    * @param size 每页行数
+    * @param count 总数统计方式: exact 精确统计(默认), none 不统计, cached 缓存统计, estimated 估算
+    * @param fields 要查询的字段, 始终包含 id
+    * @param model JPA Example 查询条件
+    * @return 字段名与值的 Map 列表
+    */
+    @Override
+    @GetMapping(value = "/{page:[0-9]+}/{size:[0-9]+}", params = "fields")
+    @ApiOperation("分页查询测试实体列表的部分字段")
+    @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
+    public Result<QueryResult<Map<String, Object>>> queryFields(@ApiParam(value = "页码", required = true) @PathVariable("page") int page, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, @ApiParam(value = "总数统计方式: exact, none, cached, estimated") @RequestParam(value = "count", required = false) String count, @ApiParam(value = "要查询的字段", required = true) @RequestParam("fields") String[] fields, DemoEntity model) {
+        return super.queryFields(page, size, count, fields, model);
+    }
+
+    /**
+    * 游标分页查询测试实体列表
+    * @param cursor 上一页返回的游标, 为空时查询第一页
+    * @param size 每页行数
+    * @param model JPA Example 查询条件
+    * @return 查询结果及下一页游标
+    */
+    @Override
+    @GetMapping("/seek/{size:[0-9]+}")
+    @ApiOperation("游标分页查询测试实体列表")
+    @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
+    public Result<QueryResult<DemoEntity>> seek(@ApiParam(value = "上一页返回的游标") @RequestParam(required = false) String cursor, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, DemoEntity model) {
+        return super.seek(cursor, size, model);
     }
 
     /**
@@ -178,14 +212,14 @@ public class AbstractDemoEntityController extends BaseController<DemoEntity> {
     /**
     * 从文件导入测试实体
     * @param file 上传的文件,支持 excel, json, xml
-    * @return 导入成功的测试实体
+    * @return 导入成功的测试实体数量
     * @throws IOException 文件读写异常
     */
     @Override
     @PostMapping("/import")
     @ApiOperation("从文件导入测试实体")
     @PreAuthorize("hasAnyAuthority('" + IMPORT_PERM + "')")
-    public Result<List<DemoEntity>> importData(MultipartFile file) throws IOException {
+    public Result<Long> importData(MultipartFile file) throws IOException {
         return super.importData(file);
     }
 
@@ -19,6 +19,7 @@ import javax.annotation.Generated;
 import javax.validation.Valid;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
 * 部门抽象控制器 提供增删改查接口
@@ -151,6 +152,7 @@ public class AbstractDepartmentController extends TreeController<Department> {
     * 分页查询部门列表
     * @param page 页码
     * @param size 每页行数
+    * @param count 总数统计方式: exact 精确统计(默认), none 不统计, cached 缓存统计, estimated 估算
     * @param model JPA Example 查询条件
     * @return 查询结果
     */
@@ -158,8 +160,40 @@ public class AbstractDepartmentController extends TreeController<Department> {
     @GetMapping("/{page:[0-9]+}/{size:[0-9]+}")
     @ApiOperation("分页查询部门列表")
     @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
-    public Result<QueryResult<Department>> query(@ApiParam(value = "页码", required = true) @PathVariable("page") int page, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, Department model) {
-        return super.query(page, size, model);
+    public Result<QueryResult<Department>> query(@ApiParam(value = "页码", required = true) @PathVariable("page") int page, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, @ApiParam(value = "总数统计方式: exact, none, cached, estimated") @RequestParam(value = "count", required = false) String count, Department model) {
+        return super.query(page, size, count, model);
+    }
+
+    /**
+    * 分页查询部门列表的部分字段
+    * @param page 页码
+    * @param size 每页行数
+    * @param count 总数统计方式: exact 精确统计(默认), none 不统计, cached 缓存统计, estimated 估算
+    * @param fields 要查询的字段, 始终包含 id
+    * @param model JPA Example 查询条件
+    * @return 字段名与值的 Map 列表
+    */
+    @Override
+    @GetMapping(value = "/{page:[0-9]+}/{size:[0-9]+}", params = "fields")
+    @ApiOperation("分页查询部门列表的部分字段")
+    @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
+    public Result<QueryResult<Map<String, Object>>> queryFields(@ApiParam(value = "页码", required = true) @PathVariable("page") int page, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, @ApiParam(value = "总数统计方式: exact, none, cached, estimated") @RequestParam(value = "count", required = false) String count, @ApiParam(value = "要查询的字段", required = true) @RequestParam("fields") String[] fields, Department model) {
+        return super.queryFields(page, size, count, fields, model);
+    }
+
+    /**
+    * 游标分页查询部门列表
+    * @param cursor 上一页返回的游标, 为空时查询第一页
+    * @param size 每页行数
+    * @param model JPA Example 查询条件
+    * @return 查询结果及下一页游标
+    */
+    @Override
+    @GetMapping("/seek/{size:[0-9]+}")
+    @ApiOperation("游标分页查询部门列表")
+    @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
+    public Result<QueryResult<Department>> seek(@ApiParam(value = "上一页返回的游标") @RequestParam(required = false) String cursor, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, Department model) {
+        return super.seek(cursor, size, model);
     }
 
     /**
@@ -178,14 +212,14 @@ public class AbstractDepartmentController extends TreeController<Department> {
     /**
     * 从文件导入部门
     * @param file 上传的文件,支持 excel, json, xml
-    * @return 导入成功的部门
+    * @return 导入成功的部门数量
     * @throws IOException 文件读写异常
     */
     @Override
     @PostMapping("/import")
     @ApiOperation("从文件导入部门")
     @PreAuthorize("hasAnyAuthority('" + IMPORT_PERM + "')")
-    public Result<List<Department>> importData(MultipartFile file) throws IOException {
+    public Result<Long> importData(MultipartFile file) throws IOException {
         return super.importData(file);
     }
 
@@ -227,5 +261,47 @@ public class AbstractDepartmentController extends TreeController<Department> {
         return super.treeData(model);
     }
 
+    /**
+     * 按层懒加载部门, 查询父节点的直接子节点
+     * @param parentId 父节点id, 为空时查询根节点
+     * @return 子节点, 带 hasChildren 和 childCount
+     */
+    @Override
+    @GetMapping("/children")
+    @ApiOperation("按层懒加载部门")
+    @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
+    public Result<List<Department>> children(@ApiParam(value = "父节点id") @RequestParam(required = false) String parentId) {
+        return super.children(parentId);
+    }
+
+    /**
+     * 移动部门到新的父节点下
+     * @param id 部门id
+     * @param parentId 新的父节点id, 为空时移动为根节点
+     * @param position 在新的同级节点中的位置, 从 0 开始, 为空时放在最后
+     * @return 移动结果
+     */
+    @Override
+    @PutMapping("/{id:^[a-zA-Z0-9]+_[a-zA-Z0-9]+_[a-zA-Z0-9]+$}/move")
+    @ApiOperation("移动部门")
+    @PreAuthorize("hasAnyAuthority('" + EDIT_PERM + "')")
+    public Result<Void> move(@ApiParam(value = "部门id", required = true) @PathVariable("id") String id, @ApiParam(value = "新的父节点id") @RequestParam(required = false) String parentId, @ApiParam(value = "在同级节点中的位置") @RequestParam(required = false) Integer position) {
+        return super.move(id, parentId, position);
+    }
+
+    /**
+     * 按给定顺序重排同一父节点下的部门
+     * @param parentId 父节点id, 为空时重排根节点
+     * @param ids 排好序的子节点id
+     * @return 更新的行数
+     */
+    @Override
+    @PutMapping("/reorder")
+    @ApiOperation("重排部门顺序")
+    @PreAuthorize("hasAnyAuthority('" + EDIT_PERM + "')")
+    public Result<Integer> reorder(@ApiParam(value = "父节点id") @RequestParam(required = false) String parentId, @ApiParam(value = "排好序的子节点id", required = true) @RequestBody List<String> ids) {
+        return super.reorder(parentId, ids);
+    }
+
 
 }
\ No newline at end of file
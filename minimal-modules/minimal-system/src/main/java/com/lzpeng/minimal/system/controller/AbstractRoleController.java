@@ -20,6 +20,7 @@ import javax.annotation.Generated;
 import javax.validation.Valid;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
 * 角色抽象控制器 提供增删改查接口
@@ -152,6 +153,7 @@ public class AbstractRoleController extends LeftTreeRightTableController<Departm
     * 分页查询角色列表
     * @param page 页码
     * @param size 每页行数
+    * @param count 总数统计方式: exact 精确统计(默认), none 不统计, cached 缓存统计, estimated 估算
     * @param model JPA Example 查询条件
     * @return 查询结果
     */
@@ -159,8 +161,40 @@ public class AbstractRoleController extends LeftTreeRightTableController<Departm
     @GetMapping("/{page:[0-9]+}/{size:[0-9]+}")
     @ApiOperation("分页查询角色列表")
     @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
-    public Result<QueryResult<Role>> query(@ApiParam(value = "页码", required = true) @PathVariable("page") int page, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, Role model) {
-        return super.query(page, size, model);
+    public Result<QueryResult<Role>> query(@ApiParam(value = "页码", required = true) @PathVariable("page") int page, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, @ApiParam(value = "总数统计方式: exact, none, cached, estimated") @RequestParam(value = "count", required = false) String count, Role model) {
+        return super.query(page, size, count, model);
+    }
+
+    /**
+    * 分页查询角色列表的部分字段
+    * @param page 页码
+    * @param size 每页行数
+    * @param count 总数统计方式: exact 精确统计(默认), none 不统计, cached 缓存统计, estimated 估算
+    * @param fields 要查询的字段, 始终包含 id
+    * @param model JPA Example 查询条件
+    * @return 字段名与值的 Map 列表
+    */
+    @Override
+    @GetMapping(value = "/{page:[0-9]+}/{size:[0-9]+}", params = "fields")
+    @ApiOperation("分页查询角色列表的部分字段")
+    @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
+    public Result<QueryResult<Map<String, Object>>> queryFields(@ApiParam(value = "页码", required = true) @PathVariable("page") int page, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, @ApiParam(value = "总数统计方式: exact, none, cached, estimated") @RequestParam(value = "count", required = false) String count, @ApiParam(value = "要查询的字段", required = true) @RequestParam("fields") String[] fields, Role model) {
+        return super.queryFields(page, size, count, fields, model);
+    }
+
+    /**
+    * 游标分页查询角色列表
+    * @param cursor 上一页返回的游标, 为空时查询第一页
+    * @param size 每页行数
+    * @param model JPA Example 查询条件
+    * @return 查询结果及下一页游标
+    */
+    @Override
+    @GetMapping("/seek/{size:[0-9]+}")
+    @ApiOperation("游标分页查询角色列表")
+    @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
+    public Result<QueryResult<Role>> seek(@ApiParam(value = "上一页返回的游标") @RequestParam(required = false) String cursor, @ApiParam(value = "每页数据条数", required = true) @PathVariable("size") int size, Role model) {
+        return super.seek(cursor, size, model);
     }
 
     /**
@@ -179,14 +213,14 @@ public class AbstractRoleController extends LeftTreeRightTableController<Departm
     /**
     * 从文件导入角色
     * @param file 上传的文件,支持 excel, json, xml
-    * @return 导入成功的角色
+    * @return 导入成功的角色数量
     * @throws IOException 文件读写异常
     */
     @Override
     @PostMapping("/import")
     @ApiOperation("从文件导入角色")
     @PreAuthorize("hasAnyAuthority('" + IMPORT_PERM + "')")
-    public Result<List<Role>> importData(MultipartFile file) throws IOException {
+    public Result<Long> importData(MultipartFile file) throws IOException {
         return super.importData(file);
     }
 
@@ -228,4 +262,17 @@ public class AbstractRoleController extends LeftTreeRightTableController<Departm
         return super.leftTreeData();
     }
 
+    /**
+    * 按层懒加载左树数据
+    * @param parentId 父节点id, 为空时查询根节点
+    * @return 子节点, 带 hasChildren 和 childCount
+    */
+    @Override
+    @GetMapping("/leftTree/children")
+    @ApiOperation("按层懒加载左树数据")
+    @PreAuthorize("hasAnyAuthority('" + QUERY_PERM + "')")
+    public Result<List<Department>> leftTreeChildren(@ApiParam(value = "父节点id") @RequestParam(required = false) String parentId) {
+        return super.leftTreeChildren(parentId);
+    }
+
 }
\ No newline at end of file
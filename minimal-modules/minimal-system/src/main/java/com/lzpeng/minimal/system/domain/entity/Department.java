@@ -13,6 +13,8 @@ import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
 /**
  * @author:  Lzpeng
@@ -22,6 +24,7 @@ import javax.persistence.Entity;
 @ApiModel("部门")
 @DynamicInsert
 @DynamicUpdate
+@Table(indexes = @Index(name = "idx_department_tree_path", columnList = "tree_path"))
 @EqualsAndHashCode(callSuper = true, exclude={"parent"})
 @ToString(callSuper = true, exclude={"parent"})
 @GenerateCode(editPage = GenerateCode.PageType.DIALOG)
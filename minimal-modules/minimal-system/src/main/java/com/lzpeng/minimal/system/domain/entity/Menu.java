@@ -26,6 +26,7 @@ import java.util.Set;
 @ApiModel("权限菜单")
 @DynamicInsert
 @DynamicUpdate
+@Table(indexes = @Index(name = "idx_menu_tree_path", columnList = "tree_path"))
 @EqualsAndHashCode(callSuper = true, exclude={"parent", "roles"})
 @ToString(callSuper = true, exclude={"parent", "roles"})
 @GenerateCode(editPage = GenerateCode.PageType.DIALOG)
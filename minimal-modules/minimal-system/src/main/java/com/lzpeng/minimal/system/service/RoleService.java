@@ -2,6 +2,7 @@ package com.lzpeng.minimal.system.service;
 
 import com.lzpeng.minimal.common.core.response.QueryResult;
 import com.lzpeng.minimal.common.jpa.domain.entity.BaseEntity;
+import com.lzpeng.minimal.common.jpa.domain.enums.CountMode;
 import com.lzpeng.minimal.common.jpa.util.TreeEntityUtil;
 import com.lzpeng.minimal.system.domain.entity.Menu;
 import com.lzpeng.minimal.system.domain.entity.Role;
@@ -64,11 +65,12 @@ public class RoleService extends AbstractRoleService {
      * @param page 页码
      * @param size 每页行数
      * @param model JPA Example 查询条件
+     * @param countMode 总数统计方式
      * @return 符合条件的角色列表
      */
     @Override
-    public QueryResult<Role> query(int page, int size, Role model) {
-        QueryResult<Role> result = super.query(page, size, model);
+    public QueryResult<Role> query(int page, int size, Role model, CountMode countMode) {
+        QueryResult<Role> result = super.query(page, size, model, countMode);
         for (Role role : result.getList()) {
             Collection<Menu> menus = role.getMenus();
             menus = TreeEntityUtil.flatData(menus);
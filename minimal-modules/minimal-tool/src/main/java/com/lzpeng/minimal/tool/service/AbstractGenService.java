@@ -1,7 +1,5 @@
 package com.lzpeng.minimal.tool.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.lzpeng.minimal.common.jpa.service.BaseService;
 import com.lzpeng.minimal.tool.domain.entity.Gen;
 import com.lzpeng.minimal.tool.repository.GenRepository;
@@ -13,7 +11,6 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Generated;
 import javax.transaction.Transactional;
-import java.util.List;
 
 /**
 * 代码生成模板 抽象业务层 提供基于注解的缓存配置
@@ -91,18 +88,4 @@ public abstract class AbstractGenService extends BaseService<Gen> {
         return super.findById(id);
     }
 
-    /**
-    * 从 json 读取实体列表
-    * 必须重写此方法否则,TypeReference获取不到泛型参数
-    * @param json json字符串
-    * @return 实体列表
-    * @throws JsonProcessingException json解析异常
-    */
-    @Override
-    public List<Gen> readDataFromJson(String json) throws JsonProcessingException {
-        List<Gen> list = objectMapper.readValue(json, new TypeReference<List<Gen>>() {
-        });
-        return list;
-    }
-
 }